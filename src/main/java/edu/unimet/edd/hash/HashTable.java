@@ -2,6 +2,7 @@ package edu.unimet.edd.hash;
 
 import edu.unimet.edd.listeners.HashTableListener;
 import edu.unimet.edd.tree.GenericSet;
+import edu.unimet.edd.tree.RegisterDiff;
 import edu.unimet.edd.utils.Person;
 import edu.unimet.edd.tree.Tree;
 import edu.unimet.edd.utils.LinkedListListeners;
@@ -176,12 +177,14 @@ public class HashTable {
     
     /**
      * Normalizes a name by standardizing the format for comparison. This method
-     * handles names with commas and other special characters.
+     * handles names with commas and other special characters. It is the rule
+     * that defines the keys of the table, so every index that has to agree
+     * with the table uses it.
      *
      * @param name The name to normalize.
      * @return The normalized name.
      */
-    private String normalizeName(String name) {
+    public static String normalizeName(String name) {
         if (name == null) {
             return null;
         }
@@ -227,6 +230,79 @@ public class HashTable {
         }
     }
 
+    /**
+     * Inserts several people at once, keyed by their normalized names, and
+     * notifies the listeners a single time. People whose key already exists
+     * are skipped, as in put.
+     *
+     * @param people The people to insert.
+     * @return The number of people inserted.
+     */
+    public int putAll(Person[] people) {
+        int inserted = insertAll(people);
+        if (inserted > 0) {
+            notifyListeners(); // One notification for the whole batch
+        }
+        return inserted;
+    }
+
+    /**
+     * Applies the changes of a reload: removes, updates and inserts only the
+     * entries in the diff, then notifies the listeners once. An empty diff
+     * leaves the table and its listeners untouched.
+     *
+     * @param diff The changes to apply.
+     * @return The number of changes applied.
+     */
+    public int applyDiff(RegisterDiff diff) {
+        if (diff.isEmpty()) {
+            return 0;
+        }
+        for (String key : diff.getRemoves()) {
+            if (table[getIndex(key)].remove(key)) {
+                size--;
+            }
+        }
+        for (Person person : diff.getUpdates()) {
+            String key = normalizeName(person.getName());
+            Node current = table[getIndex(key)].getFirstNode();
+            while (current != null && !current.getValue().getKey().equals(key)) {
+                current = current.getNext();
+            }
+            if (current != null) {
+                current.getValue().setValue(person); // Replace the record in place
+            }
+        }
+        insertAll(diff.getInserts());
+        notifyListeners(); // One notification for the whole reload
+        return diff.size();
+    }
+
+    /**
+     * Inserts several people without notifying the listeners. People whose
+     * key already exists are skipped.
+     *
+     * @param people The people to insert.
+     * @return The number of people inserted.
+     */
+    private int insertAll(Person[] people) {
+        int inserted = 0;
+        for (Person person : people) {
+            if (size >= table.length * loadFactor) {
+                resize(table.length * 2); // Resize if load factor is exceeded
+            }
+
+            String key = normalizeName(person.getName());
+            LinkedList bucket = table[getIndex(key)];
+            if (!bucket.containsKey(key)) {
+                bucket.add(key, person);
+                size++;
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
     /**
      * Method to retrieve a value by its key.
      *
@@ -321,6 +397,7 @@ public class HashTable {
             table[i] = new LinkedList(); // Replace each bucket with a new empty LinkedList
         }
         size = 0; // Reset the size to zero
+        notifyListeners(); // Notify listeners so cached views of the table are dropped
     }
 
     /**
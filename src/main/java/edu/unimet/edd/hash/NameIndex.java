@@ -0,0 +1,216 @@
+package edu.unimet.edd.hash;
+
+/**
+ * A hash index that maps names to dense int ids. It uses open addressing with
+ * linear probing over parallel arrays, so a lookup is a few array reads and no
+ * Entry or Node objects are allocated per key.
+ */
+public class NameIndex {
+
+    private static final int DEFAULT_CAPACITY = 16; // Default initial capacity
+    private static final int NOT_FOUND = -1; // Value returned for missing keys
+
+    private String[] keys; // Slots holding the keys (null means empty)
+    private int[] values; // Ids associated with each slot
+    private int size; // Number of keys stored
+
+    /**
+     * Constructs an empty index with the default capacity.
+     */
+    public NameIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty index sized to hold the expected number of keys
+     * without resizing.
+     *
+     * @param expectedSize The number of keys expected to be stored.
+     */
+    public NameIndex(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1; // Keep the load factor at or below 0.5
+        }
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Retrieves the id associated with a key.
+     *
+     * @param key The key to search for.
+     * @return The id associated with the key, or -1 if the key is not present.
+     */
+    public int get(String key) {
+        if (key == null) {
+            return NOT_FOUND;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Checks if a key exists in the index.
+     *
+     * @param key The key to search for.
+     * @return true if the key exists, false otherwise.
+     */
+    public boolean containsKey(String key) {
+        return get(key) != NOT_FOUND;
+    }
+
+    /**
+     * Inserts a key with its id, replacing the id if the key already exists.
+     *
+     * @param key The key to insert.
+     * @param value The id to associate with the key.
+     */
+    public void put(String key, int value) {
+        insert(key, value, true);
+    }
+
+    /**
+     * Inserts a key with its id only if the key is not present yet. This keeps
+     * the first record seen for a name, which is how the HashTable treats
+     * duplicates.
+     *
+     * @param key The key to insert.
+     * @param value The id to associate with the key.
+     * @return true if the key was inserted, false if it already existed.
+     */
+    public boolean putIfAbsent(String key, int value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Removes a key from the index. The following slots of the probe sequence
+     * are shifted back so later lookups never stop at a hole.
+     *
+     * @param key The key to remove.
+     * @return true if the key was removed, false if it was not present.
+     */
+    public boolean remove(String key) {
+        if (key == null) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of keys stored in the index.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts or updates a key.
+     *
+     * @param key The key to insert.
+     * @param value The id to associate with the key.
+     * @param replace Whether an existing id should be replaced.
+     * @return true if a new key was inserted, false if it already existed.
+     */
+    private boolean insert(String key, int value, boolean replace) {
+        if (key == null) {
+            return false; // Null names are never indexed
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                if (replace) {
+                    values[slot] = value;
+                }
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Fills the hole left at the given slot by moving back every following
+     * key whose home slot does not lie between the hole and its position.
+     *
+     * @param hole The slot that has just been emptied.
+     */
+    private void shiftBack(int hole) {
+        int mask = keys.length - 1;
+        keys[hole] = null;
+        int slot = (hole + 1) & mask;
+        while (keys[slot] != null) {
+            int home = hash(keys[slot]) & mask;
+            // Move the key if its home slot is cyclically outside (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                keys[slot] = null;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Rehashes every key into a larger table.
+     *
+     * @param newCapacity The new capacity, always a power of two.
+     */
+    private void resize(int newCapacity) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[newCapacity];
+        values = new int[newCapacity];
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the String hash code so that names which only differ
+     * in their last characters do not cluster in neighbouring slots.
+     *
+     * @param key The key to hash.
+     * @return The spread hash code.
+     */
+    private int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,12 +2,22 @@ package edu.unimet.edd.interfaces;
 
 import edu.unimet.edd.hash.HashTable;
 import edu.unimet.edd.listeners.HashTableListener;
+import edu.unimet.edd.listeners.LoadCompletionListener;
 import edu.unimet.edd.listeners.RegisterListener;
 import edu.unimet.edd.listeners.TreeLoadListener;
 import edu.unimet.edd.tree.GenericLinkedList;
+import edu.unimet.edd.tree.GenericNode;
+import edu.unimet.edd.tree.GraphSession;
+import edu.unimet.edd.tree.LazyTree;
+import edu.unimet.edd.tree.RegisterDiff;
 import edu.unimet.edd.tree.Tree;
 import edu.unimet.edd.tree.TreeNode;
+import edu.unimet.edd.tree.ValidationIssue;
+import edu.unimet.edd.tree.ValidationReport;
+import edu.unimet.edd.utils.ExportJson;
+import edu.unimet.edd.utils.GenealogyLoader;
 import edu.unimet.edd.utils.LoadJson;
+import edu.unimet.edd.utils.ParseReport;
 import edu.unimet.edd.utils.Person;
 import edu.unimet.edd.utils.PersonLinkedList;
 import org.graphstream.graph.Graph;
@@ -18,8 +28,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import org.graphstream.graph.Node;
 import org.graphstream.stream.ProxyPipe;
 import org.graphstream.ui.geom.Point3;
@@ -45,6 +54,12 @@ import org.graphstream.ui.geom.Point3;
 
 public class GenealogyGUI extends JFrame implements HashTableListener {
 
+    /**
+     * True to print the stage report of every load to the console, set with
+     * the "genealogy.debug" system property.
+     */
+    private static final boolean DEBUG = Boolean.getBoolean("genealogy.debug");
+
     /**
      * The genealogy tree structure.
      */
@@ -71,9 +86,9 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
     private boolean jsonLoaded = false;
 
     /**
-     * The graph representation of the genealogy tree.
+     * The graph shown by the viewer, updated in place by every query.
      */
-    private Graph graph;
+    private final GraphSession graphSession = new GraphSession("GenealogyTree");
 
     /**
      * Flag indicating if forefathers are to be displayed in the graph.
@@ -94,6 +109,32 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
      */
     private RegisterListener RegisterListener;
 
+    /**
+     * Loads genealogy files on a background thread.
+     */
+    private final GenealogyLoader loader = new GenealogyLoader();
+
+    /**
+     * Dialog showing the progress of the running load, null when idle.
+     */
+    private JDialog progressDialog;
+
+    /**
+     * Progress bar of the running load, in percent of the file read.
+     */
+    private JProgressBar progressBar;
+
+    /**
+     * Label with the number of people parsed and links resolved.
+     */
+    private JLabel progressLabel;
+
+    /**
+     * Flag set when the user cancels the running load, so a result that
+     * arrives afterwards is not published.
+     */
+    private boolean loadCancelled = false;
+
     /**
      * Constructs the GenealogyGUI interface. Initializes the components, sets
      * up the layout, and configures event listeners.
@@ -107,6 +148,17 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
         setLocationRelativeTo(null);
         table = HashTable.getInstance();
         table.addListener(this);
+        loader.setLenient(true); // One bad record should not cost the user a whole reload
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                try {
+                    loader.close(); // Stops a running load and deletes the cold field store
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
 
         // Set up the layout
         setLayout(new BorderLayout());
@@ -264,18 +316,15 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
     /**
      * Loads the tree structure and notifies the registered {@link TreeLoadListener}.
      * <p>
-     * This method first performs the logic to load the tree using the {@code loadTree()} method.
-     * Once the tree is successfully loaded, it triggers the {@code onTreeLoaded()} method
-     * of the registered listener, if any.
+     * This method starts the load with the {@code loadTree()} method, which
+     * runs in the background. Once the new register has been published, the
+     * {@code onTreeLoaded()} method of the registered listener, if any, is
+     * triggered on the event dispatch thread.
      * </p>
      */
     public void loadTreeLoaded() {
-        // Aquí iría la lógica para cargar el árbol
+        // Aquí iría la lógica para cargar el árbol; los listeners se notifican al publicar el registro
         loadTree();
-        // Una vez que el árbol ha sido cargado, notificamos a todos los listeners registrados
-        if (listener != null) {
-            listener.onTreeLoaded();  // Llamamos al método onTreeLoaded() del listener
-        }
     }
     
     /**
@@ -296,6 +345,30 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
         showDiagram();
     }
 
+    /**
+     * Handles the action of displaying how two people are related.
+     * <p>
+     * This method serves as an entry point to invoke the
+     * {@code showRelationship()} method, which asks for two names and draws
+     * the shortest chains of parents, children and marriages between them.
+     * </p>
+     */
+    public void onShowRelationship() {
+        showRelationship();
+    }
+
+    /**
+     * Handles the action of exporting the register.
+     * <p>
+     * This method serves as an entry point to invoke the
+     * {@code exportRegister()} method, which asks for a file and writes the
+     * resolved register to it in the background.
+     * </p>
+     */
+    public void onExport() {
+        exportRegister();
+    }
+
 
     
 //        public void onPersonSearch(String name) {
@@ -323,62 +396,294 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
     }
 
     /**
-     * Loads a genealogy tree from a JSON file selected by the user and
-     * visualizes it.
+     * Loads a genealogy tree from the JSON files or directories selected by
+     * the user and visualizes it. Every ".json", ".ndjson" or ".jsonl" file
+     * of a selected directory is loaded, compressed or not (".gz"), and all
+     * the files are merged into one register.
      */
     private void loadTree() {
-        // Open a file chooser dialog to select the JSON file
+        // Open a file chooser dialog to select the JSON files or directories
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select Genealogy JSON File");
+        fileChooser.setDialogTitle("Select Genealogy JSON Files or Directory");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
         int result = fileChooser.showOpenDialog(this);
 
         if (result == JFileChooser.APPROVE_OPTION) {
-            // Get the selected file
-            File selectedFile = fileChooser.getSelectedFile();
-            
-            if (!selectedFile.exists() || !selectedFile.isFile()) {
-                JOptionPane.showMessageDialog(this, "Invalid file selected.", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-            }
-            
-            if (!selectedFile.getName().toLowerCase().endsWith(".json")) {
-                JOptionPane.showMessageDialog(this, "Please select a valid JSON file.", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-            }
-            
-            try {
-                // Read the content of the selected file into a String
-                String jsonContent = new String(Files.readAllBytes(Paths.get(selectedFile.getAbsolutePath())));
-                
-                if (jsonContent.trim().isEmpty()) {
-                    JOptionPane.showMessageDialog(this, "The selected JSON file is empty.", "Error", JOptionPane.ERROR_MESSAGE);
+            // Collect the selected files, expanding directories
+            GenericLinkedList<Path> selected = new GenericLinkedList<>();
+            for (File selectedFile : fileChooser.getSelectedFiles()) {
+                if (selectedFile.isDirectory()) {
+                    try {
+                        for (Path file : GenealogyLoader.listGenealogyFiles(selectedFile.toPath())) {
+                            if (file.toFile().length() > 0) {
+                                selected.add(file); // Empty files in a directory are skipped
+                            }
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        JOptionPane.showMessageDialog(this, "Failed to read directory " + selectedFile.getName(), "Error", JOptionPane.ERROR_MESSAGE);
                         return;
+                    }
+                    continue;
                 }
 
-                // Load the genealogy data into the tree
-                LoadJson loadJson = new LoadJson();
-                
-                if(jsonContent != null && !table.isEmpty()){
-                    table.removeAll();    
+                if (!selectedFile.exists() || !selectedFile.isFile()) {
+                    JOptionPane.showMessageDialog(this, "Invalid file selected.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
                 }
-                
-                loadJson.loadGenealogy(jsonContent, tree);
-                jsonLoaded = true;
-                JOptionPane.showMessageDialog(rootPane, "JSON file correctly loaded");
-                table.removeDuplicates();
 
+                if (!LoadJson.isGenealogyFileName(selectedFile.getName())) {
+                    JOptionPane.showMessageDialog(this, "Please select a valid JSON file.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                }
+
+                if (selectedFile.length() == 0) {
+                    JOptionPane.showMessageDialog(this, "The selected JSON file is empty.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                }
+                selected.add(selectedFile.toPath());
+            }
+
+            if (selected.getSize() == 0) {
+                JOptionPane.showMessageDialog(this, "No JSON files were found in the selection.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            Path[] files = new Path[selected.getSize()];
+            GenericNode<Path> node = selected.getFirst();
+            for (int i = 0; node != null; i++, node = node.getNext()) {
+                files[i] = node.getData();
+            }
+
+            // Load in the background; the register is only replaced when the load completes
+            startLoad(files);
+        }
+    }
+
+    /**
+     * Starts loading the selected files on a background thread and shows a
+     * progress dialog with a Cancel button. The window stays responsive and
+     * the current register is left untouched until the load completes.
+     *
+     * @param files The JSON files to load, merged in this order.
+     */
+    private void startLoad(Path[] files) {
+        if (loader.isLoading()) {
+            JOptionPane.showMessageDialog(this, "A file is already being loaded.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        loadCancelled = false;
+        showProgressDialog(files.length == 1 ? files[0].getFileName().toString() : files.length + " files");
+
+        loader.load(files,
+                (bytesRead, totalBytes, peopleParsed, linksResolved)
+                -> SwingUtilities.invokeLater(() -> updateProgress(bytesRead, totalBytes, peopleParsed, linksResolved)),
+                new LoadCompletionListener() {
+            @Override
+            public void onLoadCompleted(Person[] people, int recordCount, ValidationReport conflicts, ParseReport skipped) {
+                SwingUtilities.invokeLater(() -> publishLoad(people, recordCount, conflicts, skipped));
+            }
+
+            @Override
+            public void onLoadFailed(Exception error) {
+                error.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    closeProgressDialog();
+                    JOptionPane.showMessageDialog(GenealogyGUI.this, "Failed to load tree file: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+
+            @Override
+            public void onLoadCancelled() {
+                SwingUtilities.invokeLater(() -> closeProgressDialog());
+            }
+        });
+    }
+
+    /**
+     * Publishes the people of a completed load as the new register, in one
+     * step that applies only the changed records, then validates it and
+     * notifies the {@link TreeLoadListener}.
+     *
+     * @param people The resolved people of the load.
+     * @param recordCount The number of person records in the files.
+     * @param conflicts The people found in more than one file.
+     * @param skipped The malformed records skipped by the lenient parser.
+     */
+    private void publishLoad(Person[] people, int recordCount, ValidationReport conflicts, ParseReport skipped) {
+        closeProgressDialog();
+        if (loadCancelled) {
+            return; // Cancelled after the loading thread had finished
+        }
+        if (!skipped.isEmpty()) {
+            showReport("Malformed records", skipped.getSummary(), skipped.toString());
+        }
+        if (recordCount == 0) {
+            JOptionPane.showMessageDialog(this, "The selected JSON file is empty.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Apply only the changed records in one step: listeners only see the complete table
+        boolean reloading = jsonLoaded;
+        RegisterDiff diff = loader.getPipeline().index(tree, people);
+        if (DEBUG) {
+            System.out.println(loader.getPipeline().getReport());
+        }
+        jsonLoaded = true;
+        if (reloading) {
+            JOptionPane.showMessageDialog(rootPane, "JSON file correctly loaded (" + diff + ")");
+        } else {
+            JOptionPane.showMessageDialog(rootPane, "JSON file correctly loaded");
+        }
+
+        // People in more than one file keep the record of the first file
+        if (!conflicts.isEmpty()) {
+            showReport("Merge conflicts", conflicts.count(ValidationIssue.Type.CONFLICT)
+                    + " people appear in more than one file; the first file's record was kept.", conflicts.toString());
+        }
+
+        // Validate the register once so data problems show up at load time
+        ValidationReport report = tree.validate();
+        if (!report.isEmpty()) {
+            showReport("Register validation", report.getSummary(), report.toString());
+        }
+
+        // Notify the listener now that the tree has been loaded
+        if (listener != null) {
+            listener.onTreeLoaded();
+        }
+    }
+
+    /**
+     * Shows a warning dialog with the summary of a report above the full
+     * report, in a scrollable text area so long reports fit on the screen.
+     *
+     * @param title The title of the dialog.
+     * @param summary The summary shown above the details.
+     * @param details The full report.
+     */
+    private void showReport(String title, String summary, String details) {
+        JTextArea detailsArea = new JTextArea(details, 15, 60);
+        detailsArea.setEditable(false);
+        detailsArea.setCaretPosition(0); // Show the start of the report
+
+        // The option pane shows each line of the summary, then the scrollable details
+        Object[] message = {summary, new JScrollPane(detailsArea)};
+        JOptionPane.showMessageDialog(this, message, title, JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Shows the progress dialog of a load.
+     *
+     * @param fileName The name of the file being loaded.
+     */
+    private void showProgressDialog(String fileName) {
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressLabel = new JLabel("Reading " + fileName + "...");
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancelLoad());
+
+        JPanel content = new JPanel(new BorderLayout(8, 8));
+        content.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        content.add(progressLabel, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        content.add(cancelButton, BorderLayout.SOUTH);
+
+        progressDialog = new JDialog(this, "Loading genealogy", false);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        progressDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                cancelLoad(); // Closing the dialog cancels the load
+            }
+        });
+        progressDialog.setContentPane(content);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(null);
+        progressDialog.setVisible(true);
+    }
+
+    /**
+     * Updates the progress dialog with a progress report of the loader.
+     *
+     * @param bytesRead The number of bytes of the file read so far.
+     * @param totalBytes The size of the file in bytes.
+     * @param peopleParsed The number of person records parsed so far.
+     * @param linksResolved The number of people linked to their father.
+     */
+    private void updateProgress(long bytesRead, long totalBytes, int peopleParsed, int linksResolved) {
+        if (progressDialog == null) {
+            return; // A late report of a load that has already ended
+        }
+        if (totalBytes > 0) {
+            progressBar.setValue((int) Math.min(100, bytesRead * 100 / totalBytes));
+        }
+        progressLabel.setText(peopleParsed + " people parsed, " + linksResolved + " links resolved");
+    }
+
+    /**
+     * Cancels the running load and closes the progress dialog. The register
+     * keeps its previous contents.
+     */
+    private void cancelLoad() {
+        loadCancelled = true;
+        loader.cancel();
+        closeProgressDialog();
+    }
+
+    /**
+     * Closes the progress dialog, if it is open.
+     */
+    private void closeProgressDialog() {
+        if (progressDialog != null) {
+            progressDialog.dispose();
+            progressDialog = null;
+        }
+    }
+
+    /**
+     * Asks for a file and exports the register to it on a background thread.
+     * The format follows the extension: ".ndjson" or ".jsonl" for one person
+     * per line, ".json" for the house format, and ".gz" to compress.
+     */
+    private void exportRegister() {
+        if (!jsonLoaded) {
+            JOptionPane.showMessageDialog(this, "You need to Load a JSON file first! ");
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Genealogy (.json, .ndjson, optionally .gz)");
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = fileChooser.getSelectedFile();
+        if (!LoadJson.isGenealogyFileName(target.getName())) {
+            target = new File(target.getPath() + ".json"); // Default to the house format
+        }
+        Path file = target.toPath();
+        Person[] people = table.getAllPeople(); // Snapshot taken on the EDT, where the register is edited
+
+        // Export in the background so large registers do not freeze the window
+        Thread.ofVirtual().name("genealogy-exporter").start(() -> {
+            try {
+                int count = new ExportJson().exportGenealogy(file, people);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        count + " people exported to " + file.getFileName()));
             } catch (IOException e) {
                 e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Failed to load tree file", "Error", JOptionPane.ERROR_MESSAGE);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Failed to export the register",
+                        "Error", JOptionPane.ERROR_MESSAGE));
             }
-        }
+        });
     }
 
     /**
      * Updates the graph display with the current genealogy tree data.
      * <p>
-     * This method initializes a new {@link GraphStream} viewer and replaces the
-     * graph panel content with the updated graph.
+     * The new graph is applied to the session graph, so only the nodes and
+     * edges that differ from the previous view are changed.
      * </p>
      *
      * @param personToLookFor The name of the person to highlight, or null for
@@ -389,61 +694,56 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
     private void updateGraphDisplay(String personToLookFor, boolean foreFathersNeeded, PersonLinkedList titleName, Integer generationNumber, String personToFind) {
         try {
             // Create the graph based on the current tree data
-            Graph graph = tree.createGraph(personToLookFor, foreFathersNeeded, titleName, generationNumber, personToFind);
+            showGraph(tree.createGraph(personToLookFor, foreFathersNeeded, titleName, generationNumber, personToFind));
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "An unexpected error occurred. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-            // If a viewer already exists, close its previous view to avoid conflicts
+    /**
+     * Shows the given graph. The first call creates the viewer; later calls
+     * apply the graph to the session graph as a diff, so the viewer and the
+     * layout of the people shown before are kept.
+     *
+     * @param graph The graph to display.
+     */
+    private void showGraph(Graph graph) {
+        try {
+            graphSession.apply(graph);
             if (viewer != null) {
-                try {
-                    viewer.close();  // Ensure previous viewer is closed properly
-                } catch (Exception e) {
-
-                }
+                return; // The viewer follows the session graph
             }
 
-            // Create a new viewer for the graph using SwingViewer
-            viewer = new SwingViewer(graph, Viewer.ThreadingModel.GRAPH_IN_GUI_THREAD);
+            // Create the viewer for the session graph using SwingViewer
+            Graph shown = graphSession.getGraph();
+            viewer = new SwingViewer(shown, Viewer.ThreadingModel.GRAPH_IN_GUI_THREAD);
             viewer.enableAutoLayout();
 
-            // Create a ProxyPipe to retrieve updates from the viewer
+            // Create a ProxyPipe to retrieve the node positions from the viewer
             ProxyPipe pipe = viewer.newViewerPipe();
-            pipe.addAttributeSink(graph);
+            pipe.addAttributeSink(shown);
 
-            // Start consuming events from the pipe and updating the graph
-            new Thread(() -> {
-                try {
-                    while (true) {
-                        Thread.sleep(100); // Avoid full CPU usage
-                        pipe.pump();
-                    }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }).start();
+            // Consume the positions on the event thread, which owns the graph
+            new Timer(100, e -> pipe.pump()).start();
 
             // Add a click listener to the graph nodes
             Component view = (Component) viewer.addDefaultView(false);
-            if (view != null) {
-                view.addMouseListener(new java.awt.event.MouseAdapter() {
-                    @Override
-                    public void mouseClicked(java.awt.event.MouseEvent e) {
-                        try {
-                            handleNodeClick(graph, e);
-                        } catch (Exception ex) {
-                            JOptionPane.showMessageDialog(rootPane, "Error trying to select person because its null: " + e);
-                        }
+            view.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseClicked(java.awt.event.MouseEvent e) {
+                    try {
+                        handleNodeClick(shown, e);
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(rootPane, "Error trying to select person because its null: " + e);
                     }
-                });
-            } else {
-
-            }
+                }
+            });
 
-            // Remove the old graph view and add the new one
+            // Replace the panel content with the view
             graphPanel.removeAll();
             graphPanel.add(view, BorderLayout.CENTER);
             graphPanel.revalidate();
             graphPanel.repaint();
-//        } catch (NullPointerException e) {
-//            JOptionPane.showMessageDialog(this, "Unable to retrieve graph data. Please ensure the data is correctly initialized.", "Error", JOptionPane.ERROR_MESSAGE);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "An unexpected error occurred. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -462,7 +762,7 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
                 try {
                     TreeNode root = null;
                     try {
-                        root = tree.getRoot();
+                        root = tree.getLazyRoot(LazyTree.DEFAULT_MAX_NODES); // Only the root is needed here
                         System.out.println("Root successfully retrieved.");
                     } catch (Exception e) {
                         System.out.println("Error retrieving root: " + e.getMessage());
@@ -476,9 +776,8 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
                     }
                     System.out.println("Tree contains " + tree.countTreeNodes() + " nodes.");
 
-                    // Use the BFS method from the Tree class
-                    Integer totalGenerations = tree.BFS(node -> {
-                    });
+                    // Read the number of generations from the generation buckets
+                    Integer totalGenerations = tree.getGenerationCount();
 
                     // Prompt for user input in the EDT
                     SwingUtilities.invokeLater(() -> {
@@ -490,7 +789,7 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
                             if (input != null) {
                                 int selectedGeneration = Integer.parseInt(input);
 
-                                if (selectedGeneration <= totalGenerations && selectedGeneration >= 0) {
+                                if (selectedGeneration <= totalGenerations && selectedGeneration > 0) {
                                     updateGraphDisplay(null, false, null, selectedGeneration, null);
                                 } else {
                                     JOptionPane.showMessageDialog(this, "Generation number out of range.",
@@ -666,18 +965,8 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
                 return;
             }
 
-            for (Person person : table.getAllPeople()) {
-                if (person.getTitle() == null) {
-                    continue;
-                }
-
-                if (person.getTitle().equalsIgnoreCase(titleName.trim())) {
-                    titleHolders.addPerson(person);
-             
-                } else {
-
-                }
-            }
+            // Holders come from the title index, already in succession order
+            titleHolders = tree.getTitleHolders(titleName.trim());
 
             try {
                 updateGraphDisplay(null, false, titleHolders, null, null);
@@ -695,6 +984,35 @@ public class GenealogyGUI extends JFrame implements HashTableListener {
         }
     }
 
+    /**
+     * Prompts the user for two names and displays the shortest relationship
+     * paths between them.
+     */
+    private void showRelationship() {
+        try {
+            String from = JOptionPane.showInputDialog(this, "Enter the name of the first person:", "Show Relationship", JOptionPane.QUESTION_MESSAGE);
+            if (from == null || from.trim().isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Operation cancelled. No name entered.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            String to = JOptionPane.showInputDialog(this, "Enter the name of the second person:", "Show Relationship", JOptionPane.QUESTION_MESSAGE);
+            if (to == null || to.trim().isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Operation cancelled. No name entered.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
+            // Show the shortest path and a couple of alternatives
+            Graph relationshipGraph = tree.createGraph(from.trim(), to.trim(), 3);
+            if (relationshipGraph.getNodeCount() == 0) {
+                JOptionPane.showMessageDialog(this, "No relationship found between these people.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            showGraph(relationshipGraph);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "An unexpected error occurred. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Displays the forefathers (ancestors) of a specific person in the
      * genealogy graph.
@@ -47,6 +47,8 @@ public class InterfaceGOT extends javax.swing.JFrame {
         membersGeneration = new javax.swing.JButton();
         Separator = new javax.swing.JSeparator();
         Diagram = new javax.swing.JButton();
+        relationship = new javax.swing.JButton();
+        export = new javax.swing.JButton();
         loadTree = new javax.swing.JButton();
         xBar = new javax.swing.JPanel();
         xBackground = new javax.swing.JPanel();
@@ -153,6 +155,30 @@ public class InterfaceGOT extends javax.swing.JFrame {
         });
         Menu.add(Diagram, new org.netbeans.lib.awtextra.AbsoluteConstraints(0, 380, 220, 40));
 
+        relationship.setBackground(new java.awt.Color(128, 139, 147));
+        relationship.setFont(new java.awt.Font("SansSerif", 3, 14)); // NOI18N
+        relationship.setForeground(new java.awt.Color(255, 255, 255));
+        relationship.setText("Relationship");
+        relationship.setBorder(null);
+        relationship.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                relationshipActionPerformed(evt);
+            }
+        });
+        Menu.add(relationship, new org.netbeans.lib.awtextra.AbsoluteConstraints(0, 420, 220, 40));
+
+        export.setBackground(new java.awt.Color(128, 139, 147));
+        export.setFont(new java.awt.Font("SansSerif", 3, 14)); // NOI18N
+        export.setForeground(new java.awt.Color(255, 255, 255));
+        export.setText("Export");
+        export.setBorder(null);
+        export.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                exportActionPerformed(evt);
+            }
+        });
+        Menu.add(export, new org.netbeans.lib.awtextra.AbsoluteConstraints(0, 460, 220, 40));
+
         Background.add(Menu, new org.netbeans.lib.awtextra.AbsoluteConstraints(0, 0, 220, 530));
 
         loadTree.setBackground(new java.awt.Color(128, 139, 147));
@@ -357,17 +383,20 @@ public class InterfaceGOT extends javax.swing.JFrame {
     private void loadTreeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_loadTreeActionPerformed
         if (genealogyGUI == null) {  // Solo crea la instancia una vez
             genealogyGUI = new GenealogyGUI();
-        }
 
-        genealogyGUI.loadTreeLoaded();
+            // The load runs in the background: show the register once it is published
+            genealogyGUI.setTreeLoadListener(() -> {
+                if (!genealogyGUI.isVisible()) {
+                    genealogyGUI.setVisible(true);  // Asegúrate de que solo se abra si no está visible
+                } else {
+                    genealogyGUI.requestFocus();  // Si ya está abierta, tráela al frente
+                }
 
-        if (!genealogyGUI.isVisible()) {
-            genealogyGUI.setVisible(true);  // Asegúrate de que solo se abra si no está visible
-        } else {
-            genealogyGUI.requestFocus();  // Si ya está abierta, tráela al frente
+                genealogyGUI.onRegister();
+            });
         }
 
-        genealogyGUI.onRegister();
+        genealogyGUI.loadTreeLoaded();
 
 
     }//GEN-LAST:event_loadTreeActionPerformed
@@ -384,6 +413,26 @@ public class InterfaceGOT extends javax.swing.JFrame {
 
     }//GEN-LAST:event_DiagramActionPerformed
 
+    private void relationshipActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_relationshipActionPerformed
+        try {
+            genealogyGUI.onShowRelationship();
+        } catch (NullPointerException n) {
+            JOptionPane.showMessageDialog(rootPane, "Please, load Tree first");
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(rootPane, "There has been a mistake, please try again.");
+        }
+    }//GEN-LAST:event_relationshipActionPerformed
+
+    private void exportActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_exportActionPerformed
+        try {
+            genealogyGUI.onExport();
+        } catch (NullPointerException n) {
+            JOptionPane.showMessageDialog(rootPane, "Please, load Tree first");
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(rootPane, "There has been a mistake, please try again.");
+        }
+    }//GEN-LAST:event_exportActionPerformed
+
     /**
      * @param args the command line arguments
      */
@@ -484,8 +533,10 @@ public class InterfaceGOT extends javax.swing.JFrame {
     private javax.swing.JPanel Background;
     private javax.swing.JButton Diagram;
     private javax.swing.JLabel Exit;
+    private javax.swing.JButton export;
     private javax.swing.JPanel Menu;
     private javax.swing.JButton Record;
+    private javax.swing.JButton relationship;
     private javax.swing.JSeparator Separator;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JScrollPane jScrollPane1;
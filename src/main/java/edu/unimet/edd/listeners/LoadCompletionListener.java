@@ -0,0 +1,39 @@
+package edu.unimet.edd.listeners;
+
+import edu.unimet.edd.tree.ValidationReport;
+import edu.unimet.edd.utils.ParseReport;
+import edu.unimet.edd.utils.Person;
+
+/**
+ * Listener interface for the end of a background genealogy load. Exactly one
+ * of its methods is called for every load, from the loading thread.
+ */
+public interface LoadCompletionListener {
+
+    /**
+     * Triggered when the files have been parsed, merged and resolved. Nothing has been
+     * registered yet: the people are ready to be published in one step.
+     *
+     * @param people The resolved people, fathers already linked.
+     * @param recordCount The number of person records in the files.
+     * @param conflicts The people found in more than one file, empty for a
+     * single file.
+     * @param skipped The malformed records skipped in lenient mode, empty in
+     * strict mode.
+     */
+    void onLoadCompleted(Person[] people, int recordCount, ValidationReport conflicts, ParseReport skipped);
+
+    /**
+     * Triggered when a file cannot be read, or is not valid JSON in strict
+     * mode. Nothing is loaded from the other files either.
+     *
+     * @param error The cause of the failure.
+     */
+    void onLoadFailed(Exception error);
+
+    /**
+     * Triggered when the load was cancelled before it completed.
+     */
+    void onLoadCancelled();
+
+}
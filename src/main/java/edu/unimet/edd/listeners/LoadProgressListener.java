@@ -0,0 +1,25 @@
+package edu.unimet.edd.listeners;
+
+/**
+ * Listener interface for the progress of a genealogy load.
+ * <p>
+ * It is called from the loading thread, never from the Swing event dispatch
+ * thread, so implementations that touch the interface must hand the values
+ * over with SwingUtilities.invokeLater.
+ * </p>
+ */
+public interface LoadProgressListener {
+
+    /**
+     * Triggered periodically while a genealogy file is loaded.
+     *
+     * @param bytesRead The number of bytes of the file read so far.
+     * @param totalBytes The size of the file in bytes.
+     * @param peopleParsed The number of person records parsed so far.
+     * @param linksResolved The number of people linked to their father so
+     * far: 0 while the files are parsed, then counting up while the links
+     * are resolved.
+     */
+    void onLoadProgress(long bytesRead, long totalBytes, int peopleParsed, int linksResolved);
+
+}
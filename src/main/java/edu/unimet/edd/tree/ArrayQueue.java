@@ -0,0 +1,122 @@
+package edu.unimet.edd.tree;
+
+/**
+ * A generic FIFO queue backed by a growable circular array. Unlike
+ * GenericLinkedList, enqueueing does not allocate a node per element: the
+ * backing array only grows (doubling) when it is full, so once a traversal has
+ * reached its widest level no further allocation takes place.
+ *
+ * @param <T> The type of elements in the queue.
+ */
+public class ArrayQueue<T> {
+
+    private static final int DEFAULT_CAPACITY = 16; // Default initial capacity
+
+    private Object[] elements; // Circular buffer holding the queued elements
+    private int head; // Index of the first element
+    private int size; // Number of elements currently in the queue
+
+    /**
+     * Constructs an empty queue with the default capacity.
+     */
+    public ArrayQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty queue able to hold the given number of elements
+     * before growing.
+     *
+     * @param capacity The initial capacity of the queue.
+     */
+    public ArrayQueue(int capacity) {
+        this.elements = new Object[Math.max(1, capacity)];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Adds an item to the end of the queue.
+     *
+     * @param item The item to add to the queue.
+     */
+    public void enqueue(T item) {
+        if (size == elements.length) {
+            grow(); // Double the buffer only when it is full
+        }
+        elements[(head + size) % elements.length] = item;
+        size++;
+    }
+
+    /**
+     * Removes and returns the item at the front of the queue.
+     *
+     * @return The item at the front of the queue, or null if the queue is
+     * empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T dequeue() {
+        if (size == 0) {
+            return null; // Nothing to remove
+        }
+        T item = (T) elements[head];
+        elements[head] = null; // Release the reference for the garbage collector
+        head = (head + 1) % elements.length;
+        size--;
+        return item;
+    }
+
+    /**
+     * Returns the item at the front of the queue without removing it.
+     *
+     * @return The item at the front of the queue, or null if the queue is
+     * empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return size == 0 ? null : (T) elements[head];
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of elements in the queue.
+     *
+     * @return The number of elements in the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all elements from the queue while keeping the backing array, so
+     * the queue can be reused by the next traversal without allocating.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) % elements.length] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity of the backing array, unrolling the circular buffer
+     * so the first element ends up at index 0.
+     */
+    private void grow() {
+        Object[] newElements = new Object[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            newElements[i] = elements[(head + i) % elements.length];
+        }
+        elements = newElements;
+        head = 0;
+    }
+}
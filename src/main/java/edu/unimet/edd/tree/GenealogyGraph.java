@@ -0,0 +1,707 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.hash.NameIndex;
+import edu.unimet.edd.utils.Person;
+import edu.unimet.edd.utils.PersonLinkedList;
+import java.util.Arrays;
+
+/**
+ * An int-id representation of the genealogy. Every Person receives a dense id
+ * (its position in the array the graph was built from) and the father to
+ * child, mother to child, child to parents and spouse relations are stored in
+ * compressed sparse row (CSR) form: for a relation R, the targets of person
+ * {@code i} are {@code targets[offsets[i]]} up to
+ * {@code targets[offsets[i + 1] - 1]}.
+ * <p>
+ * Together the father and mother edges model the register as a DAG in which
+ * a person can be reached from several descendants. The father edges alone
+ * form the lineage forest used by the tree views ({@link #getChild(int, int)},
+ * {@link #isRoot(int)}).
+ * </p>
+ * <p>
+ * Names are resolved once, while building, with the same rules Tree uses when
+ * matching fathers: normalized full name first, then nickname, then first and
+ * last name. Traversals over the graph only touch primitive arrays.
+ * </p>
+ */
+public class GenealogyGraph {
+
+    private static final int NONE = -1; // Id used for unresolved references
+
+    private final Person[] people; // People indexed by id
+    private final NameIndex nameIndex; // Normalized full name -> id
+    private final NameIndex nicknameIndex; // Normalized nickname -> id
+    private final NameIndex firstAndLastIndex; // First and last name -> id
+
+    private int[] fatherOf; // Father id of each person, or -1
+    private int[] motherOf; // Mother id of each person, or -1
+    private int[] childOffsets; // CSR offsets for father -> child
+    private int[] childTargets; // CSR targets for father -> child
+    private int[] motherChildOffsets; // CSR offsets for mother -> child
+    private int[] motherChildTargets; // CSR targets for mother -> child
+    private int[] parentOffsets; // CSR offsets for child -> father and mother
+    private int[] parentTargets; // CSR targets for child -> father and mother
+    private int[] spouseOffsets; // CSR offsets for spouse relations
+    private int[] spouseTargets; // CSR targets for spouse relations
+    private int[] generationOf; // Generation of each person, 1 for lineage roots, 0 if unreachable
+    private int[] generationOffsets; // CSR offsets for generation -> members
+    private int[] generationMembers; // CSR targets for generation -> members
+    private int[] memberMark; // Marks the people of the last subgraph or traversal, allocated on first use
+    private int currentMark; // Mark of the people of the current subgraph or traversal
+
+    /**
+     * Constructs the graph for the given people and builds its name indexes.
+     * Use {@link #build(Person[])} to obtain a graph with its relations.
+     *
+     * @param people The people of the register, indexed by id.
+     */
+    private GenealogyGraph(Person[] people) {
+        this.people = people;
+        this.nameIndex = new NameIndex(people.length);
+        this.nicknameIndex = new NameIndex(people.length);
+        this.firstAndLastIndex = new NameIndex(people.length);
+
+        for (int id = 0; id < people.length; id++) {
+            String name = HashTable.normalizeName(people[id].getName());
+            nameIndex.putIfAbsent(name, id);
+            firstAndLastIndex.putIfAbsent(getFirstAndLastName(name), id);
+            if (people[id].getNickname() != null) {
+                nicknameIndex.putIfAbsent(HashTable.normalizeName(people[id].getNickname()), id);
+            }
+        }
+    }
+
+    /**
+     * Builds the graph for the given people. Runs in time linear in the number
+     * of people plus the number of names they reference.
+     *
+     * @param people The people of the register. Their position in the array
+     * becomes their id.
+     * @return The graph with all relations resolved.
+     */
+    public static GenealogyGraph build(Person[] people) {
+        GenealogyGraph graph = new GenealogyGraph(people);
+        graph.fatherOf = graph.resolveFathers();
+        graph.motherOf = graph.resolveMothers();
+        graph.buildParentRelations();
+        graph.buildSpouseRelations();
+        graph.buildGenerations();
+        return graph;
+    }
+
+    /**
+     * Resolves the father of every person. The "Born to" reference is used
+     * first; people whose father cannot be resolved that way are linked to
+     * whoever lists them in "Father to".
+     *
+     * @return An array with the father id of each person, or -1 when unknown.
+     */
+    private int[] resolveFathers() {
+        int n = people.length;
+        int[] result = new int[n];
+
+        for (int id = 0; id < n; id++) {
+            String father = people[id].getFather();
+            int fatherId = NONE;
+            if (father != null && !father.equalsIgnoreCase("[unknown]")) {
+                fatherId = resolve(father);
+            }
+            result[id] = fatherId == id ? NONE : fatherId; // Nobody is their own father
+        }
+
+        for (int id = 0; id < n; id++) {
+            PersonLinkedList children = people[id].getChildren();
+            if (children == null) {
+                continue;
+            }
+            PersonLinkedList.LinkedListIterator iterator = children.iterator();
+            while (iterator.hasNext()) {
+                int childId = resolve(iterator.next());
+                if (childId != NONE && childId != id && result[childId] == NONE) {
+                    result[childId] = id;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the mother of every person from the second "Born to"
+     * reference. A mother that resolves to the person or to their father is
+     * ignored.
+     *
+     * @return An array with the mother id of each person, or -1 when unknown.
+     */
+    private int[] resolveMothers() {
+        int n = people.length;
+        int[] result = new int[n];
+        for (int id = 0; id < n; id++) {
+            String mother = people[id].getMother();
+            int motherId = NONE;
+            if (mother != null && !mother.equalsIgnoreCase("[unknown]")) {
+                motherId = resolve(mother);
+            }
+            result[id] = motherId == id || motherId == fatherOf[id] ? NONE : motherId;
+        }
+        return result;
+    }
+
+    /**
+     * Builds the child -> parents, father -> child and mother -> child CSR
+     * arrays from the resolved parents. Each child lists its father before its
+     * mother, and children keep ascending id order under each parent.
+     */
+    private void buildParentRelations() {
+        int n = people.length;
+        parentOffsets = new int[n + 1];
+        childOffsets = new int[n + 1];
+        motherChildOffsets = new int[n + 1];
+
+        // Count the edges of every row
+        for (int id = 0; id < n; id++) {
+            if (fatherOf[id] != NONE) {
+                parentOffsets[id + 1]++;
+                childOffsets[fatherOf[id] + 1]++;
+            }
+            if (motherOf[id] != NONE) {
+                parentOffsets[id + 1]++;
+                motherChildOffsets[motherOf[id] + 1]++;
+            }
+        }
+        prefixSum(parentOffsets);
+        prefixSum(childOffsets);
+        prefixSum(motherChildOffsets);
+
+        // Fill the rows using a cursor per row
+        parentTargets = new int[parentOffsets[n]];
+        childTargets = new int[childOffsets[n]];
+        motherChildTargets = new int[motherChildOffsets[n]];
+        int[] fatherCursor = new int[n];
+        int[] motherCursor = new int[n];
+        for (int id = 0; id < n; id++) {
+            int position = parentOffsets[id];
+            int father = fatherOf[id];
+            if (father != NONE) {
+                parentTargets[position++] = father;
+                childTargets[childOffsets[father] + fatherCursor[father]++] = id;
+            }
+            int mother = motherOf[id];
+            if (mother != NONE) {
+                parentTargets[position] = mother;
+                motherChildTargets[motherChildOffsets[mother] + motherCursor[mother]++] = id;
+            }
+        }
+    }
+
+    /**
+     * Builds the symmetric spouse CSR arrays from the "Wed to" references. A
+     * marriage recorded on both sides produces a single pair of edges.
+     */
+    private void buildSpouseRelations() {
+        int n = people.length;
+        int[] spouseOf = new int[n];
+        for (int id = 0; id < n; id++) {
+            int spouse = resolve(people[id].getWedTo());
+            spouseOf[id] = spouse == id ? NONE : spouse;
+        }
+
+        spouseOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            int spouse = spouseOf[id];
+            if (spouse != NONE) {
+                spouseOffsets[id + 1]++;
+                if (spouseOf[spouse] != id) {
+                    spouseOffsets[spouse + 1]++; // The other side did not record it
+                }
+            }
+        }
+        prefixSum(spouseOffsets);
+
+        spouseTargets = new int[spouseOffsets[n]];
+        int[] cursor = new int[n];
+        for (int id = 0; id < n; id++) {
+            int spouse = spouseOf[id];
+            if (spouse != NONE) {
+                spouseTargets[spouseOffsets[id] + cursor[id]++] = spouse;
+                if (spouseOf[spouse] != id) {
+                    spouseTargets[spouseOffsets[spouse] + cursor[spouse]++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns every person their generation in the lineage forest (lineage
+     * roots are generation 1) and buckets the people by generation, so a
+     * generation view reads its members directly instead of scanning the
+     * register. People caught in a father cycle have no generation.
+     */
+    private void buildGenerations() {
+        int n = people.length;
+        generationOf = new int[n];
+        int maxGeneration = 0;
+        for (int id : levelOrder(NONE)) { // Fathers always come before their children
+            generationOf[id] = fatherOf[id] == NONE ? 1 : generationOf[fatherOf[id]] + 1;
+            maxGeneration = Math.max(maxGeneration, generationOf[id]);
+        }
+
+        // Generation g uses row g of the CSR arrays; row 0 stays empty
+        generationOffsets = new int[maxGeneration + 2];
+        for (int id = 0; id < n; id++) {
+            if (generationOf[id] > 0) {
+                generationOffsets[generationOf[id] + 1]++;
+            }
+        }
+        prefixSum(generationOffsets);
+
+        generationMembers = new int[generationOffsets[maxGeneration + 1]];
+        int[] cursor = new int[maxGeneration + 1];
+        for (int id = 0; id < n; id++) {
+            int generation = generationOf[id];
+            if (generation > 0) {
+                generationMembers[generationOffsets[generation] + cursor[generation]++] = id;
+            }
+        }
+    }
+
+    /**
+     * Turns per-row counts stored at {@code offsets[i + 1]} into CSR offsets.
+     *
+     * @param offsets The array of counts, updated in place.
+     */
+    private static void prefixSum(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+    }
+
+    /**
+     * Resolves a name to an id using the same matching rules as Tree: the
+     * normalized full name, then the nickname, then the first and last name.
+     *
+     * @param name The name to resolve.
+     * @return The id of the matching person, or -1 if nobody matches.
+     */
+    public int resolve(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        String normalized = HashTable.normalizeName(name);
+        int id = nameIndex.get(normalized);
+        if (id == NONE) {
+            id = nicknameIndex.get(normalized);
+        }
+        if (id == NONE) {
+            id = firstAndLastIndex.get(getFirstAndLastName(normalized));
+        }
+        return id;
+    }
+
+    /**
+     * Retrieves the id of a person by their exact normalized name.
+     *
+     * @param name The name of the person.
+     * @return The id of the person, or -1 if not found.
+     */
+    public int getId(String name) {
+        return nameIndex.get(HashTable.normalizeName(name));
+    }
+
+    /**
+     * Get the number of people in the graph.
+     *
+     * @return The number of people.
+     */
+    public int size() {
+        return people.length;
+    }
+
+    /**
+     * Retrieves the person with the given id.
+     *
+     * @param id The id of the person.
+     * @return The Person object.
+     */
+    public Person getPerson(int id) {
+        return people[id];
+    }
+
+    /**
+     * Replaces the record of a person by a newer one with the same name,
+     * nickname, parents, spouse and children, as when only their other
+     * details were edited. Relations and name indexes stay as they are.
+     *
+     * @param id The id of the person.
+     * @param person The new record.
+     */
+    void replacePerson(int id, Person person) {
+        people[id] = person;
+    }
+
+    /**
+     * Retrieves the father of a person.
+     *
+     * @param id The id of the person.
+     * @return The id of the father, or -1 if unknown.
+     */
+    public int getFather(int id) {
+        return fatherOf[id];
+    }
+
+    /**
+     * Retrieves the mother of a person.
+     *
+     * @param id The id of the person.
+     * @return The id of the mother, or -1 if unknown.
+     */
+    public int getMother(int id) {
+        return motherOf[id];
+    }
+
+    /**
+     * Checks if a person starts a lineage, that is, has no known father.
+     *
+     * @param id The id of the person.
+     * @return true if the person has no father in the graph.
+     */
+    public boolean isRoot(int id) {
+        return fatherOf[id] == NONE;
+    }
+
+    /**
+     * Get the number of children of a person.
+     *
+     * @param id The id of the person.
+     * @return The number of children.
+     */
+    public int getChildCount(int id) {
+        return childOffsets[id + 1] - childOffsets[id];
+    }
+
+    /**
+     * Retrieves the i-th child of a person.
+     *
+     * @param id The id of the person.
+     * @param i The position of the child, from 0 to getChildCount(id) - 1.
+     * @return The id of the child.
+     */
+    public int getChild(int id, int i) {
+        return childTargets[childOffsets[id] + i];
+    }
+
+    /**
+     * Get the number of children a person has as their mother.
+     *
+     * @param id The id of the person.
+     * @return The number of children through mother edges.
+     */
+    public int getMotherChildCount(int id) {
+        return motherChildOffsets[id + 1] - motherChildOffsets[id];
+    }
+
+    /**
+     * Retrieves the i-th child a person has as their mother.
+     *
+     * @param id The id of the person.
+     * @param i The position of the child, from 0 to getMotherChildCount(id) - 1.
+     * @return The id of the child.
+     */
+    public int getMotherChild(int id, int i) {
+        return motherChildTargets[motherChildOffsets[id] + i];
+    }
+
+    /**
+     * Get the number of parents (father and mother) of a person.
+     *
+     * @param id The id of the person.
+     * @return The number of parents.
+     */
+    public int getParentCount(int id) {
+        return parentOffsets[id + 1] - parentOffsets[id];
+    }
+
+    /**
+     * Retrieves the i-th parent of a person. The father, when known, always
+     * comes first.
+     *
+     * @param id The id of the person.
+     * @param i The position of the parent, from 0 to getParentCount(id) - 1.
+     * @return The id of the parent.
+     */
+    public int getParent(int id, int i) {
+        return parentTargets[parentOffsets[id] + i];
+    }
+
+    /**
+     * Get the number of spouses of a person.
+     *
+     * @param id The id of the person.
+     * @return The number of spouses.
+     */
+    public int getSpouseCount(int id) {
+        return spouseOffsets[id + 1] - spouseOffsets[id];
+    }
+
+    /**
+     * Retrieves the i-th spouse of a person.
+     *
+     * @param id The id of the person.
+     * @param i The position of the spouse, from 0 to getSpouseCount(id) - 1.
+     * @return The id of the spouse.
+     */
+    public int getSpouse(int id, int i) {
+        return spouseTargets[spouseOffsets[id] + i];
+    }
+
+    /**
+     * Retrieves the generation of a person in their lineage.
+     *
+     * @param id The id of the person.
+     * @return The generation, 1 for lineage roots, or 0 if the person is in
+     * a father cycle.
+     */
+    public int getGeneration(int id) {
+        return generationOf[id];
+    }
+
+    /**
+     * Get the number of generations, that is, the deepest generation found.
+     *
+     * @return The number of generations, 0 for an empty register.
+     */
+    public int getGenerationCount() {
+        return generationOffsets.length - 2;
+    }
+
+    /**
+     * Get the number of people in a generation.
+     *
+     * @param generation The generation, from 1 to getGenerationCount().
+     * @return The number of members, 0 if the generation does not exist.
+     */
+    public int getGenerationSize(int generation) {
+        if (generation < 1 || generation > getGenerationCount()) {
+            return 0;
+        }
+        return generationOffsets[generation + 1] - generationOffsets[generation];
+    }
+
+    /**
+     * Get the i-th member of a generation, in register order.
+     *
+     * @param generation The generation, from 1 to getGenerationCount().
+     * @param i The position of the member, from 0 to
+     * getGenerationSize(generation) - 1.
+     * @return The id of the member.
+     */
+    public int getGenerationMember(int generation, int i) {
+        return generationMembers[generationOffsets[generation] + i];
+    }
+
+    /**
+     * Computes the pre-order (depth-first, parent before children) traversal
+     * of the subtree under a person, or of every lineage when no root is
+     * given. Uses an explicit stack, so deep lineages cannot overflow the
+     * call stack, and visits each person at most once. Visited people are
+     * marked in the shared mark array, and the stack and the result grow
+     * with the subtree, so a small subtree costs little in a large register.
+     *
+     * @param root The id of the root person, or -1 for every lineage.
+     * @return The ids in pre-order.
+     */
+    public synchronized int[] preOrder(int root) {
+        int n = people.length;
+        int[] order = new int[root == NONE ? n : 16];
+        int length = 0;
+        int[] stack = new int[16];
+        int mark = nextMark();
+
+        for (int start = root == NONE ? 0 : root; start < n; start++) {
+            if (memberMark[start] == mark || (root == NONE && !isRoot(start))) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = start;
+            memberMark[start] = mark;
+            while (top > 0) {
+                int current = stack[--top];
+                if (length == order.length) {
+                    order = trim(order, length * 2);
+                }
+                order[length++] = current;
+                // Push children in reverse so the first child is visited first
+                for (int i = getChildCount(current) - 1; i >= 0; i--) {
+                    int child = getChild(current, i);
+                    if (memberMark[child] != mark) {
+                        memberMark[child] = mark;
+                        if (top == stack.length) {
+                            stack = trim(stack, top * 2);
+                        }
+                        stack[top++] = child;
+                    }
+                }
+            }
+            if (root != NONE) {
+                break; // Only the requested subtree
+            }
+        }
+        return trim(order, length);
+    }
+
+    /**
+     * Computes the level-order (breadth-first) traversal of the subtree under
+     * a person, or of every lineage when no root is given, in which case all
+     * roots form the first level. Visited people are marked in the shared
+     * mark array, as in {@link #preOrder(int)}.
+     *
+     * @param root The id of the root person, or -1 for every lineage.
+     * @return The ids in level order.
+     */
+    public synchronized int[] levelOrder(int root) {
+        int n = people.length;
+        int[] order = new int[root == NONE ? n : 16];
+        int length = 0;
+        IntQueue queue = new IntQueue();
+        int mark = nextMark();
+
+        if (root != NONE) {
+            queue.enqueue(root);
+            memberMark[root] = mark;
+        } else {
+            for (int id = 0; id < n; id++) {
+                if (isRoot(id)) {
+                    queue.enqueue(id);
+                    memberMark[id] = mark;
+                }
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int current = queue.dequeue();
+            if (length == order.length) {
+                order = trim(order, length * 2);
+            }
+            order[length++] = current;
+            for (int i = 0; i < getChildCount(current); i++) {
+                int child = getChild(current, i);
+                if (memberMark[child] != mark) {
+                    memberMark[child] = mark;
+                    queue.enqueue(child);
+                }
+            }
+        }
+        return trim(order, length);
+    }
+
+    /**
+     * Computes the chain of fathers of a person, closest first.
+     *
+     * @param id The id of the person.
+     * @return The ids of the ancestors, from father up to the oldest known.
+     */
+    public int[] ancestors(int id) {
+        int[] chain = new int[16];
+        int length = 0;
+        int current = getFather(id);
+        // A father chain never repeats unless the data is cyclic
+        while (current != NONE && current != id && length < people.length) {
+            if (length == chain.length) {
+                chain = trim(chain, length * 2);
+            }
+            chain[length++] = current;
+            current = getFather(current);
+        }
+        return trim(chain, length);
+    }
+
+    /**
+     * Copies the first elements of an array into an array of the given length.
+     *
+     * @param source The array to copy.
+     * @param length The length of the new array.
+     * @return The new array, or the source itself if it already has that
+     * length.
+     */
+    private static int[] trim(int[] source, int length) {
+        if (source.length == length) {
+            return source; // Already the right length
+        }
+        int[] result = new int[length];
+        System.arraycopy(source, 0, result, 0, Math.min(source.length, length));
+        return result;
+    }
+
+    /**
+     * Extracts the father to child edges of the subgraph induced by a set of
+     * people: every edge whose two ends are in the set, and no other. Each
+     * member is checked against its own father only, so the work is linear in
+     * the size of the set and does not depend on the size of the register.
+     *
+     * @param ids The ids of the people in the subgraph, without repeats.
+     * @return The edges as consecutive (father, child) id pairs, in the order
+     * of the children in ids.
+     */
+    public synchronized int[] inducedChildEdges(int[] ids) {
+        int mark = nextMark();
+        for (int id : ids) {
+            memberMark[id] = mark;
+        }
+
+        int[] edges = new int[2 * ids.length];
+        int length = 0;
+        for (int child : ids) {
+            int father = fatherOf[child];
+            if (father != NONE && memberMark[father] == mark) {
+                edges[length++] = father;
+                edges[length++] = child;
+            }
+        }
+        return trim(edges, length);
+    }
+
+    /**
+     * Starts a new marking of the shared mark array: no person carries the
+     * returned mark until the caller marks them. The array is allocated on
+     * first use and reused by every later call, so a marking costs only the
+     * people it marks. Callers must hold the lock of the graph.
+     *
+     * @return The mark of the new marking.
+     */
+    private int nextMark() {
+        if (memberMark == null) {
+            memberMark = new int[people.length];
+        }
+        if (++currentMark == Integer.MAX_VALUE) {
+            Arrays.fill(memberMark, 0); // Marks wrapped around, start over
+            currentMark = 1;
+        }
+        return currentMark;
+    }
+
+    /**
+     * Get the total number of father to child edges.
+     *
+     * @return The number of edges.
+     */
+    public int getChildEdgeCount() {
+        return childTargets.length;
+    }
+
+    /**
+     * Extracts the first and last name from a full name.
+     *
+     * @param fullName The full name string.
+     * @return A string containing only the first and last name.
+     */
+    private String getFirstAndLastName(String fullName) {
+        if (fullName == null || fullName.isEmpty()) {
+            return "";
+        }
+        String[] parts = fullName.split(" ");
+        if (parts.length < 2) {
+            return fullName; // Return as is if less than two words
+        }
+        return parts[0] + " " + parts[1]; // Return the first and second word
+    }
+}
@@ -0,0 +1,174 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.utils.Person;
+import edu.unimet.edd.utils.PersonLinkedList;
+
+/**
+ * Validates the whole genealogy register in a single pass after it is loaded,
+ * so data problems are reported at load time instead of surfacing later as
+ * exceptions or silently missing edges at query time.
+ * <p>
+ * Cycles are found with Tarjan's strongly connected components algorithm over
+ * the child to parent (father and mother) edges of the
+ * {@link GenealogyGraph}, implemented with explicit stacks so deep lineages
+ * cannot overflow the call stack. The other
+ * checks look at every person and every referenced name once, so the whole
+ * validation runs in O(n + e).
+ * </p>
+ */
+public class GenealogyValidator {
+
+    private static final int UNVISITED = -1; // Tarjan index of unvisited people
+
+    /**
+     * Validates the register represented by the given graph.
+     *
+     * @param graph The genealogy graph to validate.
+     * @return The report with every issue found.
+     */
+    public ValidationReport validate(GenealogyGraph graph) {
+        ValidationReport report = new ValidationReport();
+        checkReferences(graph, report);
+        findCycles(graph, report);
+        return report;
+    }
+
+    /**
+     * Checks the "Born to" and "Father to" references of every person and
+     * reports self-parenting records, unresolved fathers, dangling children and
+     * orphans.
+     *
+     * @param graph The genealogy graph to validate.
+     * @param report The report where issues are added.
+     */
+    private void checkReferences(GenealogyGraph graph, ValidationReport report) {
+        for (int id = 0; id < graph.size(); id++) {
+            Person person = graph.getPerson(id);
+            boolean selfParent = false;
+
+            // Check the "Born to" reference
+            String father = person.getFather();
+            if (father != null && !father.equalsIgnoreCase("[unknown]")) {
+                int fatherId = graph.resolve(father);
+                if (fatherId == id) {
+                    selfParent = true;
+                } else if (fatherId == -1) {
+                    report.add(new ValidationIssue(ValidationIssue.Type.UNRESOLVED_FATHER, person.getName(), father));
+                }
+            }
+
+            // A mother pointing back to the person is also self-parenting
+            if (person.getMother() != null && graph.resolve(person.getMother()) == id) {
+                selfParent = true;
+            }
+
+            // Check every "Father to" reference
+            PersonLinkedList children = person.getChildren();
+            if (children != null) {
+                PersonLinkedList.LinkedListIterator iterator = children.iterator();
+                while (iterator.hasNext()) {
+                    String childName = iterator.next();
+                    int childId = graph.resolve(childName);
+                    if (childId == id) {
+                        selfParent = true;
+                    } else if (childId == -1) {
+                        report.add(new ValidationIssue(ValidationIssue.Type.DANGLING_CHILD, person.getName(), childName));
+                    }
+                }
+            }
+
+            if (selfParent) {
+                report.add(new ValidationIssue(ValidationIssue.Type.SELF_PARENT, person.getName(), null));
+            }
+
+            // A person linked to nobody does not belong to any lineage
+            if (graph.getParentCount(id) == 0 && graph.getChildCount(id) == 0
+                    && graph.getMotherChildCount(id) == 0 && graph.getSpouseCount(id) == 0) {
+                report.add(new ValidationIssue(ValidationIssue.Type.ORPHAN, person.getName(), null));
+            }
+        }
+    }
+
+    /**
+     * Finds every cycle in the child to parent relation with an iterative
+     * version of Tarjan's algorithm and reports each strongly connected
+     * component with more than one member.
+     *
+     * @param graph The genealogy graph to validate.
+     * @param report The report where issues are added.
+     */
+    private void findCycles(GenealogyGraph graph, ValidationReport report) {
+        int n = graph.size();
+        int[] index = new int[n]; // Discovery order of each person
+        int[] lowLink = new int[n]; // Smallest index reachable from each person
+        boolean[] onStack = new boolean[n];
+        int[] componentStack = new int[n]; // Tarjan's stack of open components
+        int componentTop = 0;
+        int[] callStack = new int[n]; // Explicit DFS stack replacing recursion
+        int[] nextParent = new int[n]; // Next parent to explore for each person on the DFS stack
+        int nextIndex = 0;
+
+        for (int i = 0; i < n; i++) {
+            index[i] = UNVISITED;
+        }
+
+        for (int start = 0; start < n; start++) {
+            if (index[start] != UNVISITED) {
+                continue;
+            }
+
+            int callTop = 0;
+            callStack[callTop++] = start;
+            index[start] = lowLink[start] = nextIndex++;
+            componentStack[componentTop++] = start;
+            onStack[start] = true;
+            nextParent[start] = 0;
+
+            while (callTop > 0) {
+                int current = callStack[callTop - 1];
+
+                if (nextParent[current] < graph.getParentCount(current)) {
+                    int parent = graph.getParent(current, nextParent[current]++);
+                    if (index[parent] == UNVISITED) {
+                        // Descend into the parent as the recursive version would
+                        index[parent] = lowLink[parent] = nextIndex++;
+                        componentStack[componentTop++] = parent;
+                        onStack[parent] = true;
+                        nextParent[parent] = 0;
+                        callStack[callTop++] = parent;
+                    } else if (onStack[parent]) {
+                        lowLink[current] = Math.min(lowLink[current], index[parent]);
+                    }
+                    continue;
+                }
+
+                // All parents explored: close the component if current is its root
+                callTop--;
+                if (lowLink[current] == index[current]) {
+                    int member;
+                    int componentSize = 0;
+                    StringBuilder members = new StringBuilder();
+                    do {
+                        member = componentStack[--componentTop];
+                        onStack[member] = false;
+                        if (componentSize++ > 0) {
+                            members.append(" -> ");
+                        }
+                        members.append(graph.getPerson(member).getName());
+                    } while (member != current);
+
+                    if (componentSize > 1) {
+                        report.add(new ValidationIssue(ValidationIssue.Type.CYCLE,
+                                graph.getPerson(current).getName(), members.toString()));
+                    }
+                }
+
+                // Propagate the low link to the caller in the DFS
+                if (callTop > 0) {
+                    int caller = callStack[callTop - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[current]);
+                }
+            }
+        }
+    }
+}
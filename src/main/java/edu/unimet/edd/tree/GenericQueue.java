@@ -2,14 +2,14 @@ package edu.unimet.edd.tree;
 
 
 /**
- * A generic queue implemented with a linked list.
+ * A generic queue implemented with a growable circular array.
  * 
  *
  * @param <T> The type of elements in the queue.
  */
 public class GenericQueue<T> {
 
-    private GenericLinkedList<T> list = new GenericLinkedList<>();
+    private ArrayQueue<T> list = new ArrayQueue<>();
 
     
     /**
@@ -18,7 +18,7 @@ public class GenericQueue<T> {
      * @param item The item to add to the queue.
      */
     public void enqueue(T item) {
-        list.add(item);
+        list.enqueue(item);
     }
 
     /**
@@ -28,7 +28,7 @@ public class GenericQueue<T> {
      * 
      */
     public T dequeue() {
-        return list.removeFirst(); // Suponiendo que tienes un método para eliminar el primer elemento
+        return list.dequeue();
     }
 
     /**
@@ -37,6 +37,15 @@ public class GenericQueue<T> {
      * @return true if the queue is empty, false otherwise.
      */
     public boolean isEmpty() {
-        return list.getSize() == 0;
+        return list.isEmpty();
+    }
+
+    /**
+     * Get the number of items in the queue.
+     *
+     * @return The number of items in the queue.
+     */
+    public int size() {
+        return list.size();
     }
 }
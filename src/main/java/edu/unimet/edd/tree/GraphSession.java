@@ -0,0 +1,183 @@
+package edu.unimet.edd.tree;
+
+import java.util.Objects;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Element;
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.SingleGraph;
+
+/**
+ * A GraphStream graph kept for the whole session and updated in place from
+ * one query result to the next. Each result built by Tree.createGraph is
+ * applied as a diff: only the nodes and edges that differ are removed or
+ * added, and the attributes of the others are brought up to date. A viewer
+ * attached to the session graph therefore only receives the changes, and the
+ * people shown by both queries keep their place in the layout.
+ * <p>
+ * Node positions ("xyz") belong to the layout, so they are only overwritten
+ * by results that place their nodes themselves, such as the generation view.
+ * Every other attribute missing from the new result is removed, which also
+ * clears the highlight of a clicked node.
+ * </p>
+ */
+public class GraphSession {
+
+    private static final String POSITION = "xyz"; // Attribute written by the layout
+
+    private final Graph graph; // The graph shown by the viewer
+    private int nodesAdded; // Changes made by the last apply
+    private int nodesRemoved;
+    private int edgesAdded;
+    private int edgesRemoved;
+
+    /**
+     * Constructs a session with an empty graph.
+     *
+     * @param id The id of the graph.
+     */
+    public GraphSession(String id) {
+        this.graph = new SingleGraph(id);
+        graph.setAttribute("ui.quality", true);
+        graph.setAttribute("ui.antialias", true);
+    }
+
+    /**
+     * Get the graph of the session, the one to attach a viewer to.
+     *
+     * @return The session graph.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Turns the session graph into a copy of a query result, changing only
+     * what differs. Edges are removed before nodes and added after them, so
+     * every step leaves a valid graph.
+     *
+     * @param result The graph built for the new query.
+     */
+    public void apply(Graph result) {
+        nodesAdded = 0;
+        nodesRemoved = 0;
+        edgesAdded = 0;
+        edgesRemoved = 0;
+
+        // Remove the edges that are gone or now join other nodes
+        for (Edge edge : graph.edges().toArray(Edge[]::new)) {
+            Edge wanted = result.getEdge(edge.getId());
+            if (wanted == null || !sameEnds(edge, wanted)) {
+                graph.removeEdge(edge);
+                edgesRemoved++;
+            }
+        }
+        for (Node node : graph.nodes().toArray(Node[]::new)) {
+            if (result.getNode(node.getId()) == null) {
+                graph.removeNode(node);
+                nodesRemoved++;
+            }
+        }
+
+        // Add the new nodes and edges, and update the ones kept
+        for (Node wanted : result) {
+            Node node = graph.getNode(wanted.getId());
+            if (node == null) {
+                node = graph.addNode(wanted.getId());
+                nodesAdded++;
+            }
+            copyAttributes(wanted, node);
+        }
+        for (Edge wanted : result.edges().toArray(Edge[]::new)) {
+            Edge edge = graph.getEdge(wanted.getId());
+            if (edge == null) {
+                edge = graph.addEdge(wanted.getId(), wanted.getSourceNode().getId(), wanted.getTargetNode().getId(), wanted.isDirected());
+                edgesAdded++;
+            }
+            copyAttributes(wanted, edge);
+        }
+    }
+
+    /**
+     * Removes every node and edge from the session graph.
+     */
+    public void clear() {
+        apply(new SingleGraph(graph.getId()));
+    }
+
+    /**
+     * Get the number of nodes added by the last apply.
+     *
+     * @return The number of nodes added.
+     */
+    public int getNodesAdded() {
+        return nodesAdded;
+    }
+
+    /**
+     * Get the number of nodes removed by the last apply.
+     *
+     * @return The number of nodes removed.
+     */
+    public int getNodesRemoved() {
+        return nodesRemoved;
+    }
+
+    /**
+     * Get the number of edges added by the last apply.
+     *
+     * @return The number of edges added.
+     */
+    public int getEdgesAdded() {
+        return edgesAdded;
+    }
+
+    /**
+     * Get the number of edges removed by the last apply.
+     *
+     * @return The number of edges removed.
+     */
+    public int getEdgesRemoved() {
+        return edgesRemoved;
+    }
+
+    @Override
+    public String toString() {
+        return graph.getNodeCount() + " nodes (+" + nodesAdded + " -" + nodesRemoved + "), "
+                + graph.getEdgeCount() + " edges (+" + edgesAdded + " -" + edgesRemoved + ")";
+    }
+
+    /**
+     * Checks if two edges join the same nodes in the same way.
+     *
+     * @param edge An edge of the session graph.
+     * @param wanted The edge with the same id in the result.
+     * @return true if the edge can be kept.
+     */
+    private static boolean sameEnds(Edge edge, Edge wanted) {
+        return edge.isDirected() == wanted.isDirected()
+                && edge.getSourceNode().getId().equals(wanted.getSourceNode().getId())
+                && edge.getTargetNode().getId().equals(wanted.getTargetNode().getId());
+    }
+
+    /**
+     * Makes the attributes of a session element match those of the result,
+     * keeping the position the layout gave it unless the result sets one.
+     *
+     * @param wanted The element of the result.
+     * @param element The element of the session graph.
+     */
+    private static void copyAttributes(Element wanted, Element element) {
+        for (String key : element.attributeKeys().toArray(String[]::new)) {
+            if (!key.equals(POSITION) && !wanted.hasAttribute(key)) {
+                element.removeAttribute(key);
+            }
+        }
+        for (String key : wanted.attributeKeys().toArray(String[]::new)) {
+            Object value = wanted.getAttribute(key);
+            if (!Objects.deepEquals(value, element.getAttribute(key))) {
+                element.setAttribute(key, value); // Arrays such as positions are passed on as the values themselves
+            }
+        }
+    }
+}
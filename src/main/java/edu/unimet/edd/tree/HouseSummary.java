@@ -0,0 +1,84 @@
+package edu.unimet.edd.tree;
+
+/**
+ * Aggregate figures for the members of a single house, as maintained by
+ * {@link SubtreeStats}.
+ */
+public class HouseSummary {
+
+    private final String house; // The name of the house
+    private final int memberCount; // Number of people registered under the house
+    private final int rootCount; // Members with no known father
+    private final int largestLineageSize; // Largest subtree rooted at a member
+    private final int deepestLineHeight; // Tallest subtree rooted at a member
+
+    /**
+     * Constructs a house summary.
+     *
+     * @param house The name of the house.
+     * @param memberCount The number of people registered under the house.
+     * @param rootCount The number of members with no known father.
+     * @param largestLineageSize The size of the largest subtree rooted at a
+     * member.
+     * @param deepestLineHeight The height of the tallest subtree rooted at a
+     * member.
+     */
+    public HouseSummary(String house, int memberCount, int rootCount, int largestLineageSize, int deepestLineHeight) {
+        this.house = house;
+        this.memberCount = memberCount;
+        this.rootCount = rootCount;
+        this.largestLineageSize = largestLineageSize;
+        this.deepestLineHeight = deepestLineHeight;
+    }
+
+    /**
+     * Retrieves the name of the house.
+     *
+     * @return the house
+     */
+    public String getHouse() {
+        return house;
+    }
+
+    /**
+     * Retrieves the number of people registered under the house.
+     *
+     * @return the memberCount
+     */
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    /**
+     * Retrieves the number of members with no known father.
+     *
+     * @return the rootCount
+     */
+    public int getRootCount() {
+        return rootCount;
+    }
+
+    /**
+     * Retrieves the size of the largest subtree rooted at a member.
+     *
+     * @return the largestLineageSize
+     */
+    public int getLargestLineageSize() {
+        return largestLineageSize;
+    }
+
+    /**
+     * Retrieves the height of the tallest subtree rooted at a member.
+     *
+     * @return the deepestLineHeight
+     */
+    public int getDeepestLineHeight() {
+        return deepestLineHeight;
+    }
+
+    @Override
+    public String toString() {
+        return house + ": " + memberCount + " members, " + rootCount + " roots, largest lineage "
+                + largestLineageSize + ", deepest line " + deepestLineHeight;
+    }
+}
@@ -0,0 +1,116 @@
+package edu.unimet.edd.tree;
+
+/**
+ * A FIFO queue of primitive ints backed by a growable circular array. It is
+ * meant for traversals that work on dense person ids instead of TreeNode
+ * objects: values are stored unboxed and no allocation happens unless the
+ * buffer has to grow.
+ */
+public class IntQueue {
+
+    private static final int DEFAULT_CAPACITY = 16; // Default initial capacity
+
+    private int[] elements; // Circular buffer holding the queued values
+    private int head; // Index of the first value
+    private int size; // Number of values currently in the queue
+
+    /**
+     * Constructs an empty queue with the default capacity.
+     */
+    public IntQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty queue able to hold the given number of values before
+     * growing.
+     *
+     * @param capacity The initial capacity of the queue.
+     */
+    public IntQueue(int capacity) {
+        this.elements = new int[Math.max(1, capacity)];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Adds a value to the end of the queue.
+     *
+     * @param value The value to add to the queue.
+     */
+    public void enqueue(int value) {
+        if (size == elements.length) {
+            grow(); // Double the buffer only when it is full
+        }
+        elements[(head + size) % elements.length] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the value at the front of the queue.
+     *
+     * @return The value at the front of the queue.
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int dequeue() {
+        if (size == 0) {
+            throw new IllegalStateException("Cannot dequeue from an empty queue");
+        }
+        int value = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    /**
+     * Returns the value at the front of the queue without removing it.
+     *
+     * @return The value at the front of the queue.
+     * @throws IllegalStateException if the queue is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Cannot peek an empty queue");
+        }
+        return elements[head];
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of values in the queue.
+     *
+     * @return The number of values in the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values from the queue while keeping the backing array.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity of the backing array, unrolling the circular buffer
+     * so the first value ends up at index 0.
+     */
+    private void grow() {
+        int[] newElements = new int[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            newElements[i] = elements[(head + i) % elements.length];
+        }
+        elements = newElements;
+        head = 0;
+    }
+}
@@ -0,0 +1,221 @@
+package edu.unimet.edd.tree;
+
+/**
+ * Hands out {@link LazyTreeNode}s backed by a {@link GenealogyGraph}. The
+ * children of a node are created from the graph index only when they are first
+ * requested, and fathers and mothers are resolved the same way, so opening one
+ * branch of a very large register only allocates the nodes that are actually
+ * viewed.
+ * <p>
+ * Memory is bounded by a cap on the number of materialized child nodes.
+ * Expanded nodes are kept in a least recently used list; once the cap is
+ * exceeded, the children of the least recently used branches are discarded
+ * (and rebuilt if they are requested again). The branch currently being
+ * accessed and its ancestors are never discarded.
+ * </p>
+ */
+public class LazyTree {
+
+    /**
+     * Default maximum number of materialized child nodes.
+     */
+    public static final int DEFAULT_MAX_NODES = 10000;
+
+    private final GenealogyGraph graph; // The index children are resolved from
+    private final int maxNodes; // Cap on the number of materialized child nodes
+    private int materializedNodes; // Child nodes currently held by expanded nodes
+    private LazyTreeNode mostRecent; // Head of the least recently used list
+    private LazyTreeNode leastRecent; // Tail of the least recently used list
+
+    /**
+     * Constructs a lazy tree over the given graph.
+     *
+     * @param graph The genealogy graph used to resolve children.
+     * @param maxNodes The maximum number of child nodes kept in memory.
+     */
+    public LazyTree(GenealogyGraph graph, int maxNodes) {
+        this.graph = graph;
+        this.maxNodes = Math.max(1, maxNodes);
+        this.materializedNodes = 0;
+    }
+
+    /**
+     * Creates a node for the given person. Its children and father are only
+     * resolved when requested.
+     *
+     * @param name The name of the person.
+     * @return The node, or null if the person is not in the graph.
+     */
+    public LazyTreeNode getNode(String name) {
+        int id = graph.resolve(name);
+        return id == -1 ? null : new LazyTreeNode(this, id, graph.getPerson(id), null);
+    }
+
+    /**
+     * Creates a node for the person with the given id.
+     *
+     * @param id The id of the person in the genealogy graph.
+     * @return The node.
+     */
+    public LazyTreeNode getNode(int id) {
+        return new LazyTreeNode(this, id, graph.getPerson(id), null);
+    }
+
+    /**
+     * Get the number of child nodes currently materialized.
+     *
+     * @return The number of materialized child nodes.
+     */
+    public int getMaterializedNodes() {
+        return materializedNodes;
+    }
+
+    /**
+     * Called whenever the children of a node are requested: materializes them
+     * if needed, marks the node as most recently used and enforces the cap.
+     *
+     * @param node The node whose children are requested.
+     */
+    void access(LazyTreeNode node) {
+        if (!node.isExpanded()) {
+            expand(node);
+        } else {
+            unlink(node);
+        }
+        linkFirst(node);
+        evict(node);
+    }
+
+    /**
+     * Creates the father node of a node from the graph.
+     *
+     * @param node The node whose father is requested.
+     * @return The father node, or null if the father is unknown.
+     */
+    TreeNode createFather(LazyTreeNode node) {
+        int fatherId = graph.getFather(node.getId());
+        return fatherId == -1 ? null : new LazyTreeNode(this, fatherId, graph.getPerson(fatherId), null);
+    }
+
+    /**
+     * Creates the mother node of a node from the graph.
+     *
+     * @param node The node whose mother is requested.
+     * @return The mother node, or null if the mother is unknown.
+     */
+    TreeNode createMother(LazyTreeNode node) {
+        int motherId = graph.getMother(node.getId());
+        return motherId == -1 ? null : new LazyTreeNode(this, motherId, graph.getPerson(motherId), null);
+    }
+
+    /**
+     * Materializes the children of a node from the graph.
+     *
+     * @param node The node to expand.
+     */
+    private void expand(LazyTreeNode node) {
+        GenericLinkedList<TreeNode> children = new GenericLinkedList<>();
+        int id = node.getId();
+        for (int i = 0; i < graph.getChildCount(id); i++) {
+            int childId = graph.getChild(id, i);
+            children.add(new LazyTreeNode(this, childId, graph.getPerson(childId), node));
+        }
+        node.setChildren(children);
+        node.setExpanded(true);
+        materializedNodes += children.getSize();
+    }
+
+    /**
+     * Discards least recently used branches until the cap is respected. The
+     * accessed node and its ancestors are kept.
+     *
+     * @param accessed The node being accessed.
+     */
+    private void evict(LazyTreeNode accessed) {
+        LazyTreeNode candidate = leastRecent;
+        while (materializedNodes > maxNodes && candidate != null) {
+            if (isOnPath(candidate, accessed)) {
+                candidate = candidate.previousExpanded; // Keep the viewed branch
+            } else {
+                collapse(candidate);
+                candidate = leastRecent; // Collapsing may unlink several nodes
+            }
+        }
+    }
+
+    /**
+     * Checks if a node is the accessed node or one of its ancestors.
+     *
+     * @param candidate The node that may be discarded.
+     * @param accessed The node being accessed.
+     * @return true if the candidate is on the path to the accessed node.
+     */
+    private boolean isOnPath(LazyTreeNode candidate, LazyTreeNode accessed) {
+        TreeNode current = accessed;
+        while (current != null) {
+            if (current == candidate) {
+                return true;
+            }
+            // Only follow fathers that are already in memory
+            current = current instanceof LazyTreeNode ? ((LazyTreeNode) current).getResolvedFather() : null;
+        }
+        return false;
+    }
+
+    /**
+     * Discards the children of a node, and of every expanded node below it.
+     *
+     * @param node The node to collapse.
+     */
+    private void collapse(LazyTreeNode node) {
+        GenericNode<TreeNode> child = node.getChildrenIfExpanded();
+        while (child != null) {
+            LazyTreeNode childNode = (LazyTreeNode) child.getData();
+            if (childNode.isExpanded()) {
+                collapse(childNode);
+            }
+            child = child.getNext();
+        }
+        materializedNodes -= graph.getChildCount(node.getId());
+        node.setChildren(new GenericLinkedList<>());
+        node.setExpanded(false);
+        unlink(node);
+    }
+
+    /**
+     * Inserts a node at the head of the least recently used list.
+     *
+     * @param node The node to insert.
+     */
+    private void linkFirst(LazyTreeNode node) {
+        node.previousExpanded = null;
+        node.nextExpanded = mostRecent;
+        if (mostRecent != null) {
+            mostRecent.previousExpanded = node;
+        }
+        mostRecent = node;
+        if (leastRecent == null) {
+            leastRecent = node;
+        }
+    }
+
+    /**
+     * Removes a node from the least recently used list.
+     *
+     * @param node The node to remove.
+     */
+    private void unlink(LazyTreeNode node) {
+        if (node.previousExpanded != null) {
+            node.previousExpanded.nextExpanded = node.nextExpanded;
+        } else if (mostRecent == node) {
+            mostRecent = node.nextExpanded;
+        }
+        if (node.nextExpanded != null) {
+            node.nextExpanded.previousExpanded = node.previousExpanded;
+        } else if (leastRecent == node) {
+            leastRecent = node.previousExpanded;
+        }
+        node.previousExpanded = null;
+        node.nextExpanded = null;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.utils.Person;
+
+/**
+ * A TreeNode whose children are only created from the {@link GenealogyGraph}
+ * the first time they are requested. Nodes are handed out by a
+ * {@link LazyTree}, which may later discard the children of branches that have
+ * not been looked at recently; asking for them again simply rebuilds them.
+ */
+public class LazyTreeNode extends TreeNode {
+
+    private final LazyTree owner; // The lazy tree that manages this node
+    private final int id; // The id of the person in the genealogy graph
+    private boolean expanded; // Whether the children are currently materialized
+    private boolean fatherResolved; // Whether the father has been looked up
+    private boolean motherResolved; // Whether the mother has been looked up
+
+    LazyTreeNode previousExpanded; // Links in the owner's least recently used list
+    LazyTreeNode nextExpanded;
+
+    /**
+     * Constructor for LazyTreeNode.
+     *
+     * @param owner The lazy tree that manages this node.
+     * @param id The id of the person in the genealogy graph.
+     * @param person The person represented by this node.
+     * @param father The father node, or null if it has not been resolved yet.
+     */
+    LazyTreeNode(LazyTree owner, int id, Person person, TreeNode father) {
+        super(person, father);
+        this.owner = owner;
+        this.id = id;
+        this.fatherResolved = father != null;
+    }
+
+    /**
+     * Retrieves the list of children, materializing it on first access.
+     *
+     * @return the list of children
+     */
+    @Override
+    public GenericLinkedList<TreeNode> getChildren() {
+        owner.access(this);
+        return super.getChildren();
+    }
+
+    /**
+     * Retrieves the father node, resolving it from the graph on first access.
+     *
+     * @return the father of the person, or null if unknown
+     */
+    @Override
+    public TreeNode getFather() {
+        if (!fatherResolved) {
+            fatherResolved = true;
+            setFather(owner.createFather(this));
+        }
+        return super.getFather();
+    }
+
+    /**
+     * Retrieves the mother node, resolving it from the graph on first access.
+     *
+     * @return the mother of the person, or null if unknown
+     */
+    @Override
+    public TreeNode getMother() {
+        if (!motherResolved) {
+            motherResolved = true;
+            setMother(owner.createMother(this));
+        }
+        return super.getMother();
+    }
+
+    /**
+     * Retrieves the id of the person in the genealogy graph.
+     *
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Checks if the children of this node are currently materialized.
+     *
+     * @return true if the children exist in memory, false otherwise.
+     */
+    public boolean isExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Marks whether the children of this node are materialized.
+     *
+     * @param expanded the expanded state to set
+     */
+    void setExpanded(boolean expanded) {
+        this.expanded = expanded;
+    }
+
+    /**
+     * Retrieves the first child only if the children are materialized, without
+     * counting as an access.
+     *
+     * @return the first child node, or null
+     */
+    GenericNode<TreeNode> getChildrenIfExpanded() {
+        return expanded ? super.getChildren().getFirst() : null;
+    }
+
+    /**
+     * Retrieves the father only if it was already resolved, without creating
+     * it.
+     *
+     * @return the father node, or null
+     */
+    TreeNode getResolvedFather() {
+        return fatherResolved ? super.getFather() : null;
+    }
+}
@@ -0,0 +1,401 @@
+package edu.unimet.edd.tree;
+
+import java.util.Arrays;
+
+/**
+ * Detects pedigree collapse in the genealogy DAG, that is, ancestors reached
+ * through several lines of descent because relatives married each other.
+ * <p>
+ * For a single person, the ancestor sub-DAG is collected once and the number
+ * of lines reaching each ancestor is computed by memoized dynamic programming
+ * in topological order, so the cost is linear in the size of that ancestry.
+ * </p>
+ * <p>
+ * For the whole register, people are processed parents first and a summary
+ * of each person is carried down to their children: whether the pedigree
+ * collapses, the longest line of ancestors above them, and a 64-bit
+ * signature of the founders (ancestors without parents) they descend from. A
+ * person collapses if either parent does; otherwise the two (tree shaped)
+ * parent ancestries share an ancestor exactly when they share a founder, so
+ * disjoint signatures settle the common case in constant time. When the
+ * signatures overlap, both ancestries are walked up in lockstep, so a shared
+ * ancestor is found after about as many steps as there are people between
+ * the parents and the point where their lines meet. If one ancestry is
+ * exhausted first, a line from it down to the other parent must leave it
+ * through a child of one of its people; the rest of the other ancestry is
+ * then walked up in lockstep with a walk down from those children, which
+ * only follows people processed before the child and older than the other
+ * parent, and the search stops as soon as either walk ends. The answer for
+ * the last couple of each father is kept, so the children of one couple are
+ * checked once. Scratch arrays are allocated once per analyzer and reused.
+ * </p>
+ */
+public class PedigreeAnalyzer {
+
+    private static final long MAX_PATHS = Long.MAX_VALUE / 2; // Saturation limit for line counts
+
+    private final GenealogyGraph graph; // The genealogy DAG
+    private final int[] mark; // Stamp of the last search that visited each person
+    private int stamp; // Current search stamp
+    private final int[] pending; // Children in the ancestry not yet processed
+    private final long[] paths; // Number of lines reaching each ancestor
+    private final int[] nodes; // Work list of ids
+    private final int[] others; // Work list of the second walk of a search
+    private final int[] descendants; // Work list of the walk down from an exhausted ancestry
+    private final int[] downMark; // Stamp of the last walk down that visited each person
+    private final long[] founders; // Signature of the founders in each person's ancestry
+    private final int[] depth; // Longest line of ancestors above each person, 0 until processed
+    private final int[] lastMother; // Mother of the last couple checked for each father, or -1
+    private final boolean[] lastShared; // Whether that couple shares an ancestor
+
+    /**
+     * Constructs an analyzer for the given graph.
+     *
+     * @param graph The genealogy graph with father and mother edges.
+     */
+    public PedigreeAnalyzer(GenealogyGraph graph) {
+        int n = graph.size();
+        this.graph = graph;
+        this.mark = new int[n];
+        this.stamp = 0;
+        this.pending = new int[n];
+        this.paths = new long[n];
+        this.nodes = new int[n];
+        this.others = new int[n];
+        this.descendants = new int[n];
+        this.downMark = new int[n];
+        this.founders = new long[n];
+        this.depth = new int[n];
+        this.lastMother = new int[n];
+        this.lastShared = new boolean[n];
+    }
+
+    /**
+     * Analyzes the ancestry of one person.
+     *
+     * @param id The id of the person.
+     * @return The repeated ancestors and the number of lines reaching them.
+     */
+    public PedigreeCollapse analyze(int id) {
+        // Step 1: collect the ancestry and count, for each ancestor, the
+        // number of edges coming from inside it
+        int count = collectAncestry(id);
+        for (int i = 0; i < count; i++) {
+            int current = nodes[i];
+            pending[current] = 0;
+            paths[current] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int current = nodes[i];
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                pending[graph.getParent(current, j)]++;
+            }
+        }
+
+        // Step 2: propagate line counts in topological order (Kahn)
+        IntQueue queue = new IntQueue();
+        paths[id] = 1;
+        queue.enqueue(id);
+        long ancestorPaths = 0;
+        int repeated = 0;
+        while (!queue.isEmpty()) {
+            int current = queue.dequeue();
+            if (current != id) {
+                ancestorPaths = Math.min(MAX_PATHS, ancestorPaths + paths[current]);
+                if (paths[current] > 1) {
+                    repeated++;
+                }
+            }
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                int parent = graph.getParent(current, j);
+                paths[parent] = Math.min(MAX_PATHS, paths[parent] + paths[current]);
+                if (--pending[parent] == 0) {
+                    queue.enqueue(parent);
+                }
+            }
+        }
+
+        // Step 3: report the ancestors reached more than once, in ancestry order
+        String[] names = new String[repeated];
+        long[] counts = new long[repeated];
+        int position = 0;
+        for (int i = 1; i < count && position < repeated; i++) {
+            int current = nodes[i];
+            if (paths[current] > 1) {
+                names[position] = graph.getPerson(current).getName();
+                counts[position++] = paths[current];
+            }
+        }
+        return new PedigreeCollapse(graph.getPerson(id).getName(), count - 1, ancestorPaths, names, counts);
+    }
+
+    /**
+     * Finds every person whose pedigree collapses.
+     *
+     * @return An array indexed by id, true for people with a collapsed
+     * pedigree.
+     */
+    public boolean[] findCollapsedPeople() {
+        int n = graph.size();
+        boolean[] collapsed = new boolean[n];
+        Arrays.fill(depth, 0); // Nobody is processed yet
+        Arrays.fill(lastMother, -1);
+
+        // Process people parents first (Kahn over the child to parent edges)
+        IntQueue queue = new IntQueue();
+        for (int id = 0; id < n; id++) {
+            pending[id] = graph.getParentCount(id);
+            if (pending[id] == 0) {
+                queue.enqueue(id);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int current = queue.dequeue();
+            int father = graph.getFather(current);
+            int mother = graph.getMother(current);
+
+            // Combine the parents' summaries before comparing their ancestries
+            founders[current] = 0;
+            depth[current] = 1;
+            if (father == -1 && mother == -1) {
+                founders[current] = founderBit(current);
+            }
+            for (int parent : new int[]{father, mother}) {
+                if (parent != -1) {
+                    founders[current] |= founders[parent];
+                    depth[current] = Math.max(depth[current], depth[parent] + 1);
+                    collapsed[current] |= collapsed[parent];
+                }
+            }
+            if (!collapsed[current] && father != -1 && mother != -1 && (founders[father] & founders[mother]) != 0) {
+                if (lastMother[father] != mother) {
+                    // Siblings reuse the answer of their parents
+                    lastMother[father] = mother;
+                    lastShared[father] = shareAncestor(father, mother);
+                }
+                collapsed[current] = lastShared[father];
+            }
+
+            releaseChildren(current, queue);
+        }
+        return collapsed;
+    }
+
+    /**
+     * Decrements the pending parent count of every child of a person and
+     * queues the children whose parents are all processed.
+     *
+     * @param id The id of the processed person.
+     * @param queue The queue of people ready to be processed.
+     */
+    private void releaseChildren(int id, IntQueue queue) {
+        for (int i = 0; i < graph.getChildCount(id); i++) {
+            int child = graph.getChild(id, i);
+            if (--pending[child] == 0) {
+                queue.enqueue(child);
+            }
+        }
+        for (int i = 0; i < graph.getMotherChildCount(id); i++) {
+            int child = graph.getMotherChild(id, i);
+            if (--pending[child] == 0) {
+                queue.enqueue(child);
+            }
+        }
+    }
+
+    /**
+     * Get the signature bit of a founder, spreading the ids over the 64 bits
+     * so related ids do not share a bit.
+     *
+     * @param id The id of a person without parents.
+     * @return A word with a single bit set.
+     */
+    private static long founderBit(int id) {
+        return 1L << ((id * 0x9E3779B9) >>> 26);
+    }
+
+    /**
+     * Checks if two processed people with tree shaped ancestries have a
+     * common ancestor, counting themselves.
+     * <p>
+     * Both ancestries are walked up one person at a time in turn, each with
+     * its own stamp, until one walk reaches a person stamped by the other or
+     * one ancestry is exhausted. In the second case the search goes on in
+     * {@link #reachesAncestry}.
+     * </p>
+     *
+     * @param first The id of the first person.
+     * @param second The id of the second person.
+     * @return true if their ancestries intersect.
+     */
+    private boolean shareAncestor(int first, int second) {
+        int firstStamp = ++stamp;
+        int secondStamp = ++stamp;
+        mark[first] = firstStamp;
+        mark[second] = secondStamp;
+        nodes[0] = first;
+        others[0] = second;
+        int firstHead = 0;
+        int firstCount = 1;
+        int secondHead = 0;
+        int secondCount = 1;
+        while (firstHead < firstCount && secondHead < secondCount) {
+            int current = nodes[firstHead++];
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                int parent = graph.getParent(current, j);
+                if (mark[parent] == secondStamp) {
+                    return true;
+                }
+                if (mark[parent] != firstStamp) {
+                    mark[parent] = firstStamp;
+                    nodes[firstCount++] = parent;
+                }
+            }
+
+            current = others[secondHead++];
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                int parent = graph.getParent(current, j);
+                if (mark[parent] == firstStamp) {
+                    return true;
+                }
+                if (mark[parent] != secondStamp) {
+                    mark[parent] = secondStamp;
+                    others[secondCount++] = parent;
+                }
+            }
+        }
+
+        if (firstHead == firstCount) {
+            return reachesAncestry(nodes, firstCount, firstStamp, others, secondHead, secondCount, secondStamp);
+        }
+        return reachesAncestry(others, secondCount, secondStamp, nodes, firstHead, firstCount, firstStamp);
+    }
+
+    /**
+     * Finishes a search of {@link #shareAncestor} in which the ancestry of one
+     * person is exhausted and the walk up from the other one, the target, is
+     * not.
+     * <p>
+     * A common ancestor has a line down to the target that leaves the
+     * exhausted ancestry through a child of one of its people. Every person on
+     * that line is an ancestor of the target, so it was processed before the
+     * target's children and has a shorter line of ancestors than the target.
+     * The walk up from the target, which skips people whose founders are not
+     * founders of the exhausted ancestry, goes on in lockstep with a walk down
+     * from those children limited to such people. The two walks meet exactly
+     * when the ancestries intersect, and the search ends when either one is
+     * exhausted.
+     * </p>
+     *
+     * @param ancestry The work list holding the whole exhausted ancestry.
+     * @param count The size of the exhausted ancestry.
+     * @param ancestryStamp The stamp of the exhausted ancestry.
+     * @param walk The work list of the walk up from the target, the target
+     * first.
+     * @param head The next person to expand in the walk up.
+     * @param walkCount The number of people in the walk up.
+     * @param walkStamp The stamp of the walk up.
+     * @return true if the walk up reaches the exhausted ancestry.
+     */
+    private boolean reachesAncestry(int[] ancestry, int count, int ancestryStamp,
+            int[] walk, int head, int walkCount, int walkStamp) {
+        int targetDepth = depth[walk[0]];
+        long ancestryFounders = founders[ancestry[0]];
+        int downStamp = ++stamp;
+        int downCount = 0;
+
+        // Start the walk down from the children that leave the exhausted ancestry
+        for (int i = 0; i < count; i++) {
+            int current = ancestry[i];
+            for (int j = 0; j < childCount(current); j++) {
+                int child = child(current, j);
+                if (mark[child] == walkStamp) {
+                    return true;
+                }
+                if (mark[child] != ancestryStamp && downMark[child] != downStamp
+                        && depth[child] > 0 && depth[child] < targetDepth) {
+                    downMark[child] = downStamp;
+                    descendants[downCount++] = child;
+                }
+            }
+        }
+
+        int downHead = 0;
+        while (head < walkCount && downHead < downCount) {
+            // One step up from the target
+            int current = walk[head++];
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                int parent = graph.getParent(current, j);
+                if (mark[parent] == ancestryStamp || downMark[parent] == downStamp) {
+                    return true;
+                }
+                if (mark[parent] != walkStamp && (founders[parent] & ancestryFounders) != 0) {
+                    mark[parent] = walkStamp;
+                    walk[walkCount++] = parent;
+                }
+            }
+
+            // One step down from the exhausted ancestry
+            current = descendants[downHead++];
+            for (int j = 0; j < childCount(current); j++) {
+                int child = child(current, j);
+                if (mark[child] == walkStamp) {
+                    return true;
+                }
+                if (downMark[child] != downStamp && depth[child] > 0 && depth[child] < targetDepth) {
+                    downMark[child] = downStamp;
+                    descendants[downCount++] = child;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of children of a person, as their father or mother.
+     *
+     * @param id The id of the person.
+     * @return The number of children.
+     */
+    private int childCount(int id) {
+        return graph.getChildCount(id) + graph.getMotherChildCount(id);
+    }
+
+    /**
+     * Retrieves the i-th child of a person, the children as father first.
+     *
+     * @param id The id of the person.
+     * @param i The position of the child, from 0 to childCount(id) - 1.
+     * @return The id of the child.
+     */
+    private int child(int id, int i) {
+        int fathered = graph.getChildCount(id);
+        return i < fathered ? graph.getChild(id, i) : graph.getMotherChild(id, i - fathered);
+    }
+
+    /**
+     * Collects a person and all their ancestors into the work list, marking
+     * them with a new stamp.
+     *
+     * @param id The id of the person.
+     * @return The number of people collected, the person included.
+     */
+    private int collectAncestry(int id) {
+        stamp++;
+        int count = 0;
+        nodes[count++] = id;
+        mark[id] = stamp;
+        for (int i = 0; i < count; i++) {
+            int current = nodes[i];
+            for (int j = 0; j < graph.getParentCount(current); j++) {
+                int parent = graph.getParent(current, j);
+                if (mark[parent] != stamp) {
+                    mark[parent] = stamp;
+                    nodes[count++] = parent;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package edu.unimet.edd.tree;
+
+/**
+ * The result of analyzing the ancestry of one person for pedigree collapse:
+ * the ancestors that can be reached through more than one line of descent,
+ * together with the number of distinct lines reaching each of them.
+ */
+public class PedigreeCollapse {
+
+    private final String personName; // The person whose ancestry was analyzed
+    private final int distinctAncestors; // Number of different ancestors found
+    private final long ancestorPaths; // Number of ancestor slots counting every line
+    private final String[] repeatedAncestors; // Ancestors reached through several lines
+    private final long[] pathCounts; // Number of lines reaching each repeated ancestor
+
+    /**
+     * Constructs a pedigree collapse result.
+     *
+     * @param personName The person whose ancestry was analyzed.
+     * @param distinctAncestors The number of different ancestors found.
+     * @param ancestorPaths The number of ancestor slots, counting an ancestor
+     * once per line that reaches them.
+     * @param repeatedAncestors The ancestors reached through several lines.
+     * @param pathCounts The number of lines reaching each repeated ancestor.
+     */
+    public PedigreeCollapse(String personName, int distinctAncestors, long ancestorPaths, String[] repeatedAncestors, long[] pathCounts) {
+        this.personName = personName;
+        this.distinctAncestors = distinctAncestors;
+        this.ancestorPaths = ancestorPaths;
+        this.repeatedAncestors = repeatedAncestors;
+        this.pathCounts = pathCounts;
+    }
+
+    /**
+     * Checks if any ancestor is reached through more than one line.
+     *
+     * @return true if the pedigree collapses, false otherwise.
+     */
+    public boolean hasCollapse() {
+        return repeatedAncestors.length > 0;
+    }
+
+    /**
+     * Retrieves the name of the person whose ancestry was analyzed.
+     *
+     * @return the personName
+     */
+    public String getPersonName() {
+        return personName;
+    }
+
+    /**
+     * Retrieves the number of different ancestors found.
+     *
+     * @return the distinctAncestors
+     */
+    public int getDistinctAncestors() {
+        return distinctAncestors;
+    }
+
+    /**
+     * Retrieves the number of ancestor slots, counting an ancestor once per
+     * line that reaches them. It equals getDistinctAncestors() when there is
+     * no collapse.
+     *
+     * @return the ancestorPaths
+     */
+    public long getAncestorPaths() {
+        return ancestorPaths;
+    }
+
+    /**
+     * Retrieves the names of the ancestors reached through several lines.
+     *
+     * @return the repeatedAncestors
+     */
+    public String[] getRepeatedAncestors() {
+        return repeatedAncestors;
+    }
+
+    /**
+     * Retrieves the number of lines reaching each repeated ancestor, in the
+     * same order as getRepeatedAncestors().
+     *
+     * @return the pathCounts
+     */
+    public long[] getPathCounts() {
+        return pathCounts;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("Pedigree of ").append(personName).append(": ").append(distinctAncestors)
+                .append(" distinct ancestors in ").append(ancestorPaths).append(" ancestor slots");
+        for (int i = 0; i < repeatedAncestors.length; i++) {
+            text.append("\n").append(repeatedAncestors[i]).append(" reached through ").append(pathCounts[i]).append(" lines");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.utils.Person;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over a range of an array of person ids, such as a traversal
+ * order computed by {@link GenealogyGraph}. Splitting halves the remaining
+ * range in O(1) and both halves know their exact size, so parallel streams
+ * divide the work evenly.
+ */
+public class PersonSpliterator implements Spliterator<Person> {
+
+    private final GenealogyGraph graph; // Graph used to map ids to people
+    private final int[] ids; // Ids in traversal order
+    private int from; // Next position to visit (inclusive)
+    private final int to; // End of the range (exclusive)
+
+    /**
+     * Constructs a Spliterator over the whole id array.
+     *
+     * @param graph The graph the ids belong to.
+     * @param ids The ids in traversal order.
+     */
+    public PersonSpliterator(GenealogyGraph graph, int[] ids) {
+        this(graph, ids, 0, ids.length);
+    }
+
+    /**
+     * Constructs a Spliterator over a range of the id array.
+     *
+     * @param graph The graph the ids belong to.
+     * @param ids The ids in traversal order.
+     * @param from The first position of the range (inclusive).
+     * @param to The last position of the range (exclusive).
+     */
+    public PersonSpliterator(GenealogyGraph graph, int[] ids, int from, int to) {
+        this.graph = graph;
+        this.ids = ids;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Person> action) {
+        if (from >= to) {
+            return false;
+        }
+        action.accept(graph.getPerson(ids[from++]));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Person> action) {
+        // Plain loop over the range, avoiding a call to tryAdvance per element
+        for (int i = from; i < to; i++) {
+            action.accept(graph.getPerson(ids[i]));
+        }
+        from = to;
+    }
+
+    @Override
+    public Spliterator<Person> trySplit() {
+        int middle = (from + to) >>> 1;
+        if (middle <= from) {
+            return null; // Too small to split
+        }
+        PersonSpliterator prefix = new PersonSpliterator(graph, ids, from, middle);
+        from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
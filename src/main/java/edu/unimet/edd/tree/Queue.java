@@ -2,17 +2,17 @@ package edu.unimet.edd.tree;
 
 /**
  * The Queue class provides a higher-level interface for queue operations. It
- * uses GenericLinkedList to implement the queue behavior for TreeNodes.
+ * uses an ArrayQueue to implement the queue behavior for TreeNodes.
  */
 public class Queue {
 
-    private GenericLinkedList<TreeNode> linkedList;  // The underlying linked list for the queue
+    private ArrayQueue<TreeNode> arrayQueue;  // The underlying circular array for the queue
 
     /**
-     * Constructor for Queue. Initializes a new GenericLinkedList for TreeNodes.
+     * Constructor for Queue. Initializes a new ArrayQueue for TreeNodes.
      */
     public Queue() {
-        this.linkedList = new GenericLinkedList<>(); // Initialize the generic linked list
+        this.arrayQueue = new ArrayQueue<>(); // Initialize the circular array queue
     }
 
     /**
@@ -21,7 +21,7 @@ public class Queue {
      * @param data The TreeNode to enqueue.
      */
     public void enqueue(TreeNode data) {
-        linkedList.add(data); // Add the data to the end of the linked list
+        arrayQueue.enqueue(data); // Add the data to the end of the queue
     }
 
     /**
@@ -30,7 +30,7 @@ public class Queue {
      * @return The TreeNode that was dequeued, or null if the queue is empty.
      */
     public TreeNode dequeue() {
-        return linkedList.remove(); // Remove the first element from the linked list
+        return arrayQueue.dequeue(); // Remove the first element from the queue
     }
 
     /**
@@ -39,7 +39,7 @@ public class Queue {
      * @return true if the queue is empty, false otherwise.
      */
     public boolean isEmpty() {
-        return linkedList.isEmpty(); // Check if the linked list is empty
+        return arrayQueue.isEmpty(); // Check if the queue is empty
     }
 
     /**
@@ -48,12 +48,6 @@ public class Queue {
      * @return The number of elements in the queue.
      */
     public int size() {
-        int size = 0;
-        GenericNode<TreeNode> current = linkedList.getFirst();
-        while (current != null) {
-            size++;
-            current = current.getNext();
-        }
-        return size;
+        return arrayQueue.size(); // Size is tracked, no need to walk the elements
     }
 }
@@ -0,0 +1,246 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.hash.NameIndex;
+import edu.unimet.edd.utils.Person;
+import edu.unimet.edd.utils.PersonLinkedList;
+
+/**
+ * The changes needed to turn the loaded register into a newly loaded one:
+ * the people to insert, the records to update and the names to remove.
+ * <p>
+ * Each record is reduced to a 64-bit FNV-1a fingerprint of all its details,
+ * so comparing two versions of a person is one long comparison. The
+ * fingerprint is kept on the record (see {@link Person#getFingerprint()}):
+ * a loaded person is fingerprinted once, when it is indexed, and the details
+ * of lazy or spilled records are not read back on later reloads. Applying
+ * the diff touches only the changed entries of the table and notifies its
+ * listeners once, and an unchanged reload touches nothing at all.
+ * </p>
+ * <p>
+ * The table holds one person per normalized name, so when the new register
+ * has several records with the same name only the first one is applied; the
+ * others are reported by {@link #getDuplicates()}.
+ * </p>
+ */
+public class RegisterDiff {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L; // FNV-1a 64-bit offset basis
+    private static final long FNV_PRIME = 0x100000001b3L; // FNV-1a 64-bit prime
+    private static final char SEPARATOR = '\u001f'; // Separates fields so "ab","c" and "a","bc" differ
+
+    private final Person[] inserts; // People not in the loaded register
+    private final Person[] updates; // New records of people whose details changed
+    private final String[] removes; // Keys of people missing from the new register
+    private final Person[] duplicates; // Records of the new register ignored because their name came earlier
+
+    /**
+     * Constructs a diff.
+     *
+     * @param inserts The people to insert.
+     * @param updates The new records of the people that changed.
+     * @param removes The keys of the people to remove.
+     */
+    public RegisterDiff(Person[] inserts, Person[] updates, String[] removes) {
+        this(inserts, updates, removes, new Person[0]);
+    }
+
+    /**
+     * Constructs a diff that also reports ignored duplicate records.
+     *
+     * @param inserts The people to insert.
+     * @param updates The new records of the people that changed.
+     * @param removes The keys of the people to remove.
+     * @param duplicates The records ignored because an earlier record of the
+     * new register has the same name.
+     */
+    public RegisterDiff(Person[] inserts, Person[] updates, String[] removes, Person[] duplicates) {
+        this.inserts = inserts;
+        this.updates = updates;
+        this.removes = removes;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Computes the diff between the loaded register and a new one. People are
+     * matched by normalized name.
+     *
+     * @param current The people of the loaded register.
+     * @param incoming The people of the new register.
+     * @return The changes that turn current into incoming.
+     */
+    public static RegisterDiff compute(Person[] current, Person[] incoming) {
+        NameIndex currentIndex = new NameIndex(current.length);
+        for (int i = 0; i < current.length; i++) {
+            currentIndex.putIfAbsent(HashTable.normalizeName(current[i].getName()), i);
+        }
+
+        // Classify every incoming record, the first of each name only
+        boolean[] matched = new boolean[current.length];
+        NameIndex incomingIndex = new NameIndex(incoming.length);
+        Person[] inserted = new Person[incoming.length];
+        Person[] updated = new Person[incoming.length];
+        Person[] repeated = new Person[incoming.length];
+        int insertCount = 0;
+        int updateCount = 0;
+        int repeatedCount = 0;
+        for (int i = 0; i < incoming.length; i++) {
+            Person person = incoming[i];
+            String key = HashTable.normalizeName(person.getName());
+            if (!incomingIndex.putIfAbsent(key, i)) {
+                repeated[repeatedCount++] = person;
+                continue;
+            }
+            int id = currentIndex.get(key);
+            if (id == -1) {
+                inserted[insertCount++] = person;
+            } else {
+                matched[id] = true;
+                // Details lost with a changed source file cannot be compared
+                if (current[id].hasStaleDetails() || current[id].getFingerprint() != person.getFingerprint()) {
+                    updated[updateCount++] = person;
+                }
+            }
+        }
+
+        // Whatever was not matched is gone from the new register
+        int removeCount = 0;
+        for (boolean found : matched) {
+            if (!found) {
+                removeCount++;
+            }
+        }
+        String[] removed = new String[removeCount];
+        for (int i = 0, r = 0; i < current.length; i++) {
+            if (!matched[i]) {
+                removed[r++] = HashTable.normalizeName(current[i].getName());
+            }
+        }
+
+        return new RegisterDiff(trim(inserted, insertCount), trim(updated, updateCount), removed, trim(repeated, repeatedCount));
+    }
+
+    /**
+     * Computes the fingerprint of a record from every detail the register
+     * stores, including the "Father to" list in order.
+     *
+     * @param person The person.
+     * @return The 64-bit fingerprint.
+     */
+    public static long fingerprint(Person person) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, person.getName());
+        hash = mix(hash, person.getTitle());
+        hash = mix(hash, person.getNickname());
+        hash = mix(hash, person.getFather());
+        hash = mix(hash, person.getMother());
+        hash = mix(hash, person.getFate());
+        hash = mix(hash, person.getOfHisName());
+        hash = mix(hash, person.getEyesColor());
+        hash = mix(hash, person.getHairColor());
+        hash = mix(hash, person.getNotes());
+        hash = mix(hash, person.getWedTo());
+        hash = mix(hash, person.getHouse());
+        PersonLinkedList children = person.getChildren();
+        if (children != null) {
+            PersonLinkedList.LinkedListIterator iterator = children.iterator();
+            while (iterator.hasNext()) {
+                hash = mix(hash, iterator.next());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Get the people to insert.
+     *
+     * @return The people not in the loaded register.
+     */
+    public Person[] getInserts() {
+        return inserts;
+    }
+
+    /**
+     * Get the new records of the people whose details changed.
+     *
+     * @return The updated records.
+     */
+    public Person[] getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Get the keys of the people to remove.
+     *
+     * @return The normalized names of the people missing from the new
+     * register.
+     */
+    public String[] getRemoves() {
+        return removes;
+    }
+
+    /**
+     * Get the records of the new register that were not applied because an
+     * earlier record has the same normalized name.
+     *
+     * @return The ignored records, in the order of the new register.
+     */
+    public Person[] getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Checks if the new register is identical to the loaded one.
+     *
+     * @return true if there is nothing to apply.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Get the total number of changes.
+     *
+     * @return The number of inserts, updates and removes.
+     */
+    public int size() {
+        return inserts.length + updates.length + removes.length;
+    }
+
+    @Override
+    public String toString() {
+        String summary = inserts.length + " inserted, " + updates.length + " updated, " + removes.length + " removed";
+        return duplicates.length == 0 ? summary : summary + ", " + duplicates.length + " duplicate records ignored";
+    }
+
+    /**
+     * Mixes a field into an FNV-1a hash, followed by a separator. A null field
+     * mixes only the separator's complement, so it differs from "".
+     *
+     * @param hash The hash so far.
+     * @param value The field value, possibly null.
+     * @return The updated hash.
+     */
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return (hash ^ ~SEPARATOR) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ SEPARATOR) * FNV_PRIME;
+    }
+
+    /**
+     * Copies the used part of an array.
+     *
+     * @param source The array.
+     * @param length The number of elements used.
+     * @return An array of exactly that length.
+     */
+    private static Person[] trim(Person[] source, int length) {
+        Person[] result = new Person[length];
+        System.arraycopy(source, 0, result, 0, length);
+        return result;
+    }
+}
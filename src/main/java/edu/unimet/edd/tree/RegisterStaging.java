@@ -0,0 +1,392 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.hash.NameIndex;
+import edu.unimet.edd.utils.Person;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Staging area for a two-phase load. While parsing, every person record and
+ * every child stub created from a "Father to" list is only appended here;
+ * nothing is looked up. {@link #resolve(Person[])} then settles duplicates,
+ * fathers and child stubs in a fixed number of linear passes over hash
+ * indexes, and the result is inserted into the register in one go.
+ * <p>
+ * The rules are the ones Tree.addPerson applies one record at a time, made
+ * independent of the order of the input:
+ * </p>
+ * <ul>
+ * <li>People already in the register win over staged records with the same
+ * name; among staged records a full record wins over a child stub, and the
+ * first one in file order wins otherwise.</li>
+ * <li>Records without a "Born to" reference are not registered, and neither
+ * are records whose nickname is the name of somebody else.</li>
+ * <li>A father is matched by full name, then by first and last name, then by
+ * nickname, among full records first and child stubs last, and the reference
+ * is rewritten to the father's registered name.</li>
+ * <li>A child stub is dropped when its father also has a full record of a
+ * child with the same first name; people whose father was matched to that
+ * stub are linked to the full record instead.</li>
+ * </ul>
+ */
+public class RegisterStaging {
+
+    private static final int NONE = -1; // Index used for missing records
+    private static final int PROGRESS_INTERVAL = 1024; // Links resolved between two progress reports
+
+    private Person[] people; // Full records in file order
+    private int peopleCount; // Number of full records staged
+    private Person[] children; // Child stubs in file order
+    private int childCount; // Number of child stubs staged
+    private int linkCount; // Number of fathers linked by the last resolve
+
+    /**
+     * Constructs an empty staging area.
+     */
+    public RegisterStaging() {
+        this.people = new Person[16];
+        this.children = new Person[16];
+    }
+
+    /**
+     * Stages a full person record.
+     *
+     * @param person The parsed person.
+     */
+    public void addPerson(Person person) {
+        if (peopleCount == people.length) {
+            people = grow(people);
+        }
+        people[peopleCount++] = person;
+    }
+
+    /**
+     * Stages a child stub created from a "Father to" list.
+     *
+     * @param child The child with minimal details.
+     */
+    public void addChild(Person child) {
+        if (childCount == children.length) {
+            children = grow(children);
+        }
+        children[childCount++] = child;
+    }
+
+    /**
+     * Visits every staged full record in file order.
+     *
+     * @param action The action applied to each record.
+     */
+    public void forEachPerson(Consumer<Person> action) {
+        for (int i = 0; i < peopleCount; i++) {
+            action.accept(people[i]);
+        }
+    }
+
+    /**
+     * Merges the staging areas of several files into one, in the given order,
+     * and reports every person with a full record in more than one file as a
+     * CONFLICT issue. When the merged area is resolved the record of the first
+     * file wins, as for any other duplicate.
+     *
+     * @param parts The staging area of each file, in load order.
+     * @param sources The name of each file, used in the issues.
+     * @param conflicts The report where conflicts are added.
+     * @return A staging area with the records of every file.
+     */
+    public static RegisterStaging merge(RegisterStaging[] parts, String[] sources, ValidationReport conflicts) {
+        RegisterStaging merged = new RegisterStaging();
+        int total = 0;
+        for (RegisterStaging part : parts) {
+            total += part.peopleCount;
+        }
+
+        NameIndex firstRecord = new NameIndex(total); // Name -> index of its first full record in merged
+        int[] sourceOf = new int[total]; // File of each full record in merged
+        for (int p = 0; p < parts.length; p++) {
+            RegisterStaging part = parts[p];
+            for (int i = 0; i < part.peopleCount; i++) {
+                Person person = part.people[i];
+                merged.addPerson(person);
+                sourceOf[merged.peopleCount - 1] = p;
+                if (person.getName() == null) {
+                    continue;
+                }
+
+                String key = HashTable.normalizeName(person.getName());
+                int first = firstRecord.get(key);
+                if (first == NONE) {
+                    firstRecord.put(key, merged.peopleCount - 1);
+                } else if (sourceOf[first] != p) {
+                    // Only records from different files are conflicts
+                    conflicts.add(new ValidationIssue(ValidationIssue.Type.CONFLICT, person.getName(),
+                            sources[sourceOf[first]] + " and " + sources[p] + ": "
+                            + describeDifferences(merged.people[first], person)));
+                }
+            }
+            for (int i = 0; i < part.childCount; i++) {
+                merged.addChild(part.children[i]);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Get the number of full person records staged.
+     *
+     * @return The number of records, child stubs not included.
+     */
+    public int size() {
+        return peopleCount;
+    }
+
+    /**
+     * Get the number of staged people linked to their father by the last call
+     * to {@link #resolve(Person[])}.
+     *
+     * @return The number of links resolved.
+     */
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    /**
+     * Resolves the staged records against the people already registered.
+     * Fathers are rewritten in place on the returned Person objects.
+     *
+     * @param existing The people already in the register.
+     * @return The staged people to register, full records first, each in
+     * file order.
+     */
+    public Person[] resolve(Person[] existing) {
+        return resolve(existing, null);
+    }
+
+    /**
+     * Resolves the staged records against the people already registered,
+     * reporting the number of fathers linked so far every PROGRESS_INTERVAL
+     * links and once at the end.
+     *
+     * @param existing The people already in the register.
+     * @param linkProgress Receives the number of links resolved so far, or
+     * null for no reports.
+     * @return The staged people to register, full records first, each in
+     * file order.
+     */
+    public Person[] resolve(Person[] existing, IntConsumer linkProgress) {
+        int existingCount = existing.length;
+        int total = existingCount + peopleCount + childCount;
+
+        // Candidates: registered people, then full records, then child stubs
+        Person[] candidates = new Person[total];
+        System.arraycopy(existing, 0, candidates, 0, existingCount);
+        System.arraycopy(people, 0, candidates, existingCount, peopleCount);
+        System.arraycopy(children, 0, candidates, existingCount + peopleCount, childCount);
+        int firstStub = existingCount + peopleCount;
+
+        // Pass 1: keep one candidate per name, in priority order
+        boolean[] kept = new boolean[total];
+        NameIndex byName = new NameIndex(total);
+        for (int i = 0; i < total; i++) {
+            Person candidate = candidates[i];
+            if (candidate == null || candidate.getName() == null) {
+                continue;
+            }
+            if (i >= existingCount && candidate.getFather() == null) {
+                continue; // Only records with a "Born to" reference are registered
+            }
+            kept[i] = byName.putIfAbsent(HashTable.normalizeName(candidate.getName()), i);
+        }
+
+        // Pass 2: a staged person cannot use somebody else's name as nickname
+        for (int i = existingCount; i < firstStub; i++) {
+            if (kept[i] && candidates[i].getNickname() != null) {
+                int owner = byName.get(HashTable.normalizeName(candidates[i].getNickname()));
+                if (owner != NONE && owner != i) {
+                    kept[i] = false;
+                    byName.remove(HashTable.normalizeName(candidates[i].getName()));
+                }
+            }
+        }
+
+        // Pass 3: indexes over the full records that will be registered
+        NameIndex fullByName = new NameIndex(firstStub);
+        NameIndex byFirstAndLast = new NameIndex(firstStub);
+        NameIndex byNickname = new NameIndex(firstStub);
+        for (int i = 0; i < firstStub; i++) {
+            if (kept[i]) {
+                String name = HashTable.normalizeName(candidates[i].getName());
+                fullByName.putIfAbsent(name, i);
+                byFirstAndLast.putIfAbsent(getFirstAndLastName(name), i);
+                if (candidates[i].getNickname() != null) {
+                    byNickname.putIfAbsent(HashTable.normalizeName(candidates[i].getNickname()), i);
+                }
+            }
+        }
+
+        // Pass 4: resolve the father of every staged person
+        int[] fatherOf = new int[total];
+        linkCount = 0;
+        for (int i = 0; i < total; i++) {
+            fatherOf[i] = NONE;
+            if (!kept[i] || candidates[i].getFather() == null) {
+                continue;
+            }
+            String fatherName = HashTable.normalizeName(candidates[i].getFather());
+            if (i < existingCount) {
+                int father = byName.get(fatherName);
+                fatherOf[i] = father == i ? NONE : father; // Registered people are already resolved
+                continue;
+            }
+            int father = fullByName.get(fatherName);
+            if (father == NONE) {
+                father = byFirstAndLast.get(fatherName);
+            }
+            if (father == NONE) {
+                father = byNickname.get(fatherName);
+            }
+            if (father == NONE) {
+                father = byName.get(fatherName); // Only a child stub carries the name
+            }
+            if (father != NONE && father != i) {
+                fatherOf[i] = father;
+                candidates[i].setFather(HashTable.normalizeName(candidates[father].getName()));
+                linkCount++;
+                if (linkProgress != null && linkCount % PROGRESS_INTERVAL == 0) {
+                    linkProgress.accept(linkCount);
+                }
+            }
+        }
+        if (linkProgress != null) {
+            linkProgress.accept(linkCount);
+        }
+
+        // Pass 5: drop child stubs duplicated by a full record of the same father
+        NameIndex fullChildren = new NameIndex();
+        for (int i = 0; i < firstStub; i++) {
+            if (kept[i] && fatherOf[i] != NONE) {
+                fullChildren.putIfAbsent(fatherOf[i] + "|" + getFirstName(candidates[i].getName()), i);
+            }
+        }
+        int[] replacedBy = new int[childCount]; // Full record standing for each dropped stub
+        boolean dropped = false;
+        for (int i = firstStub; i < total; i++) {
+            replacedBy[i - firstStub] = NONE;
+            if (kept[i] && fatherOf[i] != NONE) {
+                int full = fullChildren.get(fatherOf[i] + "|" + getFirstName(candidates[i].getName()));
+                if (full != NONE) {
+                    kept[i] = false;
+                    replacedBy[i - firstStub] = full;
+                    dropped = true;
+                }
+            }
+        }
+
+        // Pass 6: people whose father was only known through a dropped stub
+        // are linked to the full record that replaced it
+        for (int i = existingCount; i < total && dropped; i++) {
+            int father = fatherOf[i];
+            if (kept[i] && father >= firstStub && replacedBy[father - firstStub] != NONE) {
+                fatherOf[i] = replacedBy[father - firstStub];
+                candidates[i].setFather(HashTable.normalizeName(candidates[fatherOf[i]].getName()));
+            }
+        }
+
+        // Collect the staged people to register
+        int resultCount = 0;
+        for (int i = existingCount; i < total; i++) {
+            if (kept[i]) {
+                resultCount++;
+            }
+        }
+        Person[] result = new Person[resultCount];
+        int position = 0;
+        for (int i = existingCount; i < total; i++) {
+            if (kept[i]) {
+                result[position++] = candidates[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists the details in which two records of the same person differ.
+     *
+     * @param first The record that is kept.
+     * @param other The record that is dropped.
+     * @return The names of the differing details, or "same details".
+     */
+    private static String describeDifferences(Person first, Person other) {
+        StringBuilder differences = new StringBuilder();
+        appendDifference(differences, "father", first.getFather(), other.getFather());
+        appendDifference(differences, "mother", first.getMother(), other.getMother());
+        appendDifference(differences, "title", first.getTitle(), other.getTitle());
+        appendDifference(differences, "nickname", first.getNickname(), other.getNickname());
+        appendDifference(differences, "of his name", first.getOfHisName(), other.getOfHisName());
+        appendDifference(differences, "wed to", first.getWedTo(), other.getWedTo());
+        appendDifference(differences, "fate", first.getFate(), other.getFate());
+        appendDifference(differences, "house", first.getHouse(), other.getHouse());
+        return differences.length() == 0 ? "same details" : "differs in " + differences;
+    }
+
+    /**
+     * Appends the name of a detail when its two values differ, ignoring case.
+     *
+     * @param differences The list of differing details so far.
+     * @param detail The name of the detail.
+     * @param first The value in the kept record.
+     * @param other The value in the dropped record.
+     */
+    private static void appendDifference(StringBuilder differences, String detail, String first, String other) {
+        boolean same = first == null ? other == null : other != null && first.trim().equalsIgnoreCase(other.trim());
+        if (!same) {
+            if (differences.length() > 0) {
+                differences.append(", ");
+            }
+            differences.append(detail);
+        }
+    }
+
+    /**
+     * Doubles the length of an array of people.
+     *
+     * @param source The array to grow.
+     * @return A larger copy.
+     */
+    private static Person[] grow(Person[] source) {
+        Person[] larger = new Person[source.length * 2];
+        System.arraycopy(source, 0, larger, 0, source.length);
+        return larger;
+    }
+
+    /**
+     * Get the first word of a name, in lowercase.
+     *
+     * @param fullName The full name.
+     * @return The first name.
+     */
+    private String getFirstName(String fullName) {
+        if (fullName == null || fullName.isEmpty()) {
+            return "";
+        }
+        return fullName.trim().split("\\s+")[0].toLowerCase();
+    }
+
+    /**
+     * Get the first and last name (first two words) of a name.
+     *
+     * @param fullName The full name.
+     * @return The first two words of the name.
+     */
+    private String getFirstAndLastName(String fullName) {
+        if (fullName == null || fullName.isEmpty()) {
+            return "";
+        }
+        String[] parts = fullName.split(" ");
+        if (parts.length < 2) {
+            return fullName; // Return as is if less than two words
+        }
+        return parts[0] + " " + parts[1]; // Return the first and second word
+    }
+}
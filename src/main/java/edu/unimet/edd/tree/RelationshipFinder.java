@@ -0,0 +1,359 @@
+package edu.unimet.edd.tree;
+
+/**
+ * Finds how two people are related through parents, children and marriages.
+ * <p>
+ * The shortest path is found with a bidirectional breadth-first search over
+ * the {@link GenealogyGraph}: both ends grow one level at a time, always the
+ * smaller frontier first, so only about the square root of the people a
+ * one-sided search would reach are visited on wide trees. Alternative paths
+ * are found with Yen's algorithm, which reuses the same search with some
+ * people and relations excluded. Visited marks are stamped, so the scratch
+ * arrays are allocated once per finder and never cleared.
+ * </p>
+ */
+public class RelationshipFinder {
+
+    private static final int NONE = -1; // Id used for missing people
+
+    private final GenealogyGraph graph; // The genealogy graph
+    private final int[] forwardMark; // Stamp of the search that reached each person from the start
+    private final int[] backwardMark; // Stamp of the search that reached each person from the end
+    private final int[] forwardPrevious; // Previous person on the path from the start
+    private final int[] backwardPrevious; // Next person on the path to the end
+    private final int[] forwardDistance; // Distance from the start
+    private final int[] backwardDistance; // Distance to the end
+    private int stamp; // Current search stamp
+    private final int[] banned; // Stamp of the exclusion that removed each person
+    private final int[] bannedNext; // Stamp of the exclusion that removed the relation from the spur person
+    private int banStamp; // Current exclusion stamp
+    private int spur; // Person whose relations may be excluded, or -1
+    private final int[] nextFrontier; // Level being built
+
+    /**
+     * Constructs a finder for the given graph.
+     *
+     * @param graph The genealogy graph.
+     */
+    public RelationshipFinder(GenealogyGraph graph) {
+        int n = graph.size();
+        this.graph = graph;
+        this.forwardMark = new int[n];
+        this.backwardMark = new int[n];
+        this.forwardPrevious = new int[n];
+        this.backwardPrevious = new int[n];
+        this.forwardDistance = new int[n];
+        this.backwardDistance = new int[n];
+        this.banned = new int[n];
+        this.bannedNext = new int[n];
+        this.nextFrontier = new int[n];
+        this.spur = NONE;
+    }
+
+    /**
+     * Finds the shortest relationship path between two people.
+     *
+     * @param from The id of the first person.
+     * @param to The id of the second person.
+     * @return The path, or null if the two people are not related.
+     */
+    public RelationshipPath shortestPath(int from, int to) {
+        banStamp++; // Nothing is excluded
+        spur = NONE;
+        int[] ids = search(from, to);
+        return ids == null ? null : toPath(ids);
+    }
+
+    /**
+     * Finds up to k shortest relationship paths between two people, shortest
+     * first, none of them visiting the same person twice (Yen's algorithm).
+     *
+     * @param from The id of the first person.
+     * @param to The id of the second person.
+     * @param k The maximum number of paths to return.
+     * @return The paths found, possibly fewer than k.
+     */
+    public RelationshipPath[] shortestPaths(int from, int to, int k) {
+        int[][] found = new int[Math.max(k, 0)][];
+        int foundCount = 0;
+        int[][] candidates = new int[4][];
+        int candidateCount = 0;
+
+        if (k > 0) {
+            banStamp++;
+            spur = NONE;
+            found[0] = search(from, to);
+            foundCount = found[0] == null ? 0 : 1;
+        }
+
+        while (foundCount > 0 && foundCount < k) {
+            int[] previous = found[foundCount - 1];
+
+            // Deviate from the last path found at each of its people
+            for (int i = 0; i < previous.length - 1; i++) {
+                banStamp++;
+                spur = previous[i];
+                for (int j = 0; j < i; j++) {
+                    banned[previous[j]] = banStamp; // The root part cannot be revisited
+                }
+                for (int p = 0; p < foundCount; p++) {
+                    if (found[p].length > i + 1 && samePrefix(found[p], previous, i)) {
+                        bannedNext[found[p][i + 1]] = banStamp; // Leave the spur by a new relation
+                    }
+                }
+
+                int[] spurPath = search(spur, to);
+                if (spurPath == null) {
+                    continue;
+                }
+                int[] candidate = new int[i + spurPath.length];
+                System.arraycopy(previous, 0, candidate, 0, i);
+                System.arraycopy(spurPath, 0, candidate, i, spurPath.length);
+                if (contains(candidates, candidateCount, candidate) || contains(found, foundCount, candidate)) {
+                    continue;
+                }
+                if (candidateCount == candidates.length) {
+                    int[][] larger = new int[candidates.length * 2][];
+                    System.arraycopy(candidates, 0, larger, 0, candidateCount);
+                    candidates = larger;
+                }
+                candidates[candidateCount++] = candidate;
+            }
+
+            if (candidateCount == 0) {
+                break; // No other simple path exists
+            }
+
+            // Move the shortest candidate to the result
+            int best = 0;
+            for (int c = 1; c < candidateCount; c++) {
+                if (candidates[c].length < candidates[best].length) {
+                    best = c;
+                }
+            }
+            found[foundCount++] = candidates[best];
+            candidates[best] = candidates[--candidateCount];
+            candidates[candidateCount] = null;
+        }
+
+        RelationshipPath[] result = new RelationshipPath[foundCount];
+        for (int p = 0; p < foundCount; p++) {
+            result[p] = toPath(found[p]);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the bidirectional breadth-first search, skipping the people and
+     * relations excluded with the current ban stamp.
+     *
+     * @param from The id of the first person.
+     * @param to The id of the second person.
+     * @return The ids along the shortest path, or null if there is none.
+     */
+    private int[] search(int from, int to) {
+        if (from == to) {
+            return new int[]{from};
+        }
+        stamp++;
+        forwardMark[from] = stamp;
+        forwardPrevious[from] = NONE;
+        forwardDistance[from] = 0;
+        backwardMark[to] = stamp;
+        backwardPrevious[to] = NONE;
+        backwardDistance[to] = 0;
+
+        int[] forwardLevel = new int[]{from};
+        int forwardSize = 1;
+        int[] backwardLevel = new int[]{to};
+        int backwardSize = 1;
+        int bestLength = Integer.MAX_VALUE;
+        int meetFrom = NONE;
+        int meetTo = NONE;
+
+        while (forwardSize > 0 && backwardSize > 0 && meetFrom == NONE) {
+            boolean forward = forwardSize <= backwardSize; // Grow the smaller side
+            int[] level = forward ? forwardLevel : backwardLevel;
+            int size = forward ? forwardSize : backwardSize;
+            int[] mark = forward ? forwardMark : backwardMark;
+            int[] previous = forward ? forwardPrevious : backwardPrevious;
+            int[] distance = forward ? forwardDistance : backwardDistance;
+            int[] otherMark = forward ? backwardMark : forwardMark;
+            int[] otherDistance = forward ? backwardDistance : forwardDistance;
+
+            int nextSize = 0;
+            for (int l = 0; l < size; l++) {
+                int current = level[l];
+                int count = neighborCount(current);
+                for (int i = 0; i < count; i++) {
+                    int neighbor = neighbor(current, i);
+                    if (banned[neighbor] == banStamp || isBannedRelation(current, neighbor)) {
+                        continue;
+                    }
+                    if (otherMark[neighbor] == stamp) {
+                        // Both searches met: keep the shortest meeting found on this level
+                        int length = distance[current] + 1 + otherDistance[neighbor];
+                        if (length < bestLength) {
+                            bestLength = length;
+                            meetFrom = forward ? current : neighbor;
+                            meetTo = forward ? neighbor : current;
+                        }
+                    }
+                    if (mark[neighbor] != stamp) {
+                        mark[neighbor] = stamp;
+                        previous[neighbor] = current;
+                        distance[neighbor] = distance[current] + 1;
+                        nextFrontier[nextSize++] = neighbor;
+                    }
+                }
+            }
+
+            // The level just built becomes the frontier of that side
+            int[] built = new int[nextSize];
+            System.arraycopy(nextFrontier, 0, built, 0, nextSize);
+            if (forward) {
+                forwardLevel = built;
+                forwardSize = nextSize;
+            } else {
+                backwardLevel = built;
+                backwardSize = nextSize;
+            }
+        }
+
+        if (meetFrom == NONE) {
+            return null;
+        }
+
+        // Join the two halves: start ... meetFrom, meetTo ... end
+        int[] path = new int[bestLength + 1];
+        int position = forwardDistance[meetFrom];
+        for (int id = meetFrom; id != NONE; id = forwardPrevious[id]) {
+            path[position--] = id;
+        }
+        position = forwardDistance[meetFrom] + 1;
+        for (int id = meetTo; id != NONE; id = backwardPrevious[id]) {
+            path[position++] = id;
+        }
+        return path;
+    }
+
+    /**
+     * Checks if the relation between two people is excluded with the current
+     * ban stamp. Only relations of the spur person can be excluded.
+     *
+     * @param a The id of one person.
+     * @param b The id of the other person.
+     * @return true if the relation must be skipped.
+     */
+    private boolean isBannedRelation(int a, int b) {
+        return (a == spur && bannedNext[b] == banStamp) || (b == spur && bannedNext[a] == banStamp);
+    }
+
+    /**
+     * Get the number of relatives of a person: parents, children and spouses.
+     *
+     * @param id The id of the person.
+     * @return The number of relatives.
+     */
+    private int neighborCount(int id) {
+        return graph.getParentCount(id) + graph.getChildCount(id) + graph.getMotherChildCount(id) + graph.getSpouseCount(id);
+    }
+
+    /**
+     * Get the i-th relative of a person, listing parents, children as father,
+     * children as mother and spouses in that order.
+     *
+     * @param id The id of the person.
+     * @param i The index of the relative.
+     * @return The id of the relative.
+     */
+    private int neighbor(int id, int i) {
+        int parents = graph.getParentCount(id);
+        if (i < parents) {
+            return graph.getParent(id, i);
+        }
+        i -= parents;
+        int children = graph.getChildCount(id);
+        if (i < children) {
+            return graph.getChild(id, i);
+        }
+        i -= children;
+        int motherChildren = graph.getMotherChildCount(id);
+        if (i < motherChildren) {
+            return graph.getMotherChild(id, i);
+        }
+        return graph.getSpouse(id, i - motherChildren);
+    }
+
+    /**
+     * Converts a path of ids into a labeled relationship path.
+     *
+     * @param ids The ids along the path.
+     * @return The relationship path.
+     */
+    private RelationshipPath toPath(int[] ids) {
+        String[] names = new String[ids.length];
+        RelationshipPath.Relation[] relations = new RelationshipPath.Relation[ids.length - 1];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = graph.getPerson(ids[i]).getName();
+            if (i > 0) {
+                relations[i - 1] = relationOf(ids[i - 1], ids[i]);
+            }
+        }
+        return new RelationshipPath(names, relations);
+    }
+
+    /**
+     * Determines what one person is to another.
+     *
+     * @param from The id of the first person.
+     * @param to The id of the second person.
+     * @return The relation of the second person to the first.
+     */
+    private RelationshipPath.Relation relationOf(int from, int to) {
+        if (graph.getFather(from) == to) {
+            return RelationshipPath.Relation.FATHER;
+        }
+        if (graph.getMother(from) == to) {
+            return RelationshipPath.Relation.MOTHER;
+        }
+        if (graph.getFather(to) == from || graph.getMother(to) == from) {
+            return RelationshipPath.Relation.CHILD;
+        }
+        return RelationshipPath.Relation.SPOUSE;
+    }
+
+    /**
+     * Checks if two paths share their first length + 1 people.
+     *
+     * @param a The first path.
+     * @param b The second path.
+     * @param length The index of the last person compared.
+     * @return true if the prefixes are equal.
+     */
+    private static boolean samePrefix(int[] a, int[] b, int length) {
+        for (int i = 0; i <= length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a path is already among the first count paths of a list.
+     *
+     * @param paths The list of paths.
+     * @param count The number of paths in use.
+     * @param path The path to search for.
+     * @return true if an equal path is present.
+     */
+    private static boolean contains(int[][] paths, int count, int[] path) {
+        for (int p = 0; p < count; p++) {
+            if (paths[p].length == path.length && samePrefix(paths[p], path, path.length - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.unimet.edd.tree;
+
+/**
+ * A chain of family relations connecting two people, as found by
+ * {@link RelationshipFinder}. Step i goes from getNames()[i] to
+ * getNames()[i + 1], and getRelations()[i] tells what the second person is to
+ * the first.
+ */
+public class RelationshipPath {
+
+    /**
+     * The relation between two consecutive people of a path.
+     */
+    public enum Relation {
+        FATHER, MOTHER, CHILD, SPOUSE
+    }
+
+    private final String[] names; // People along the path, from start to end
+    private final Relation[] relations; // Relation of each person to the previous one
+
+    /**
+     * Constructs a relationship path.
+     *
+     * @param names The people along the path, from start to end.
+     * @param relations The relation of each person to the previous one, one
+     * less than the number of names.
+     */
+    public RelationshipPath(String[] names, Relation[] relations) {
+        this.names = names;
+        this.relations = relations;
+    }
+
+    /**
+     * Get the number of relations in the path.
+     *
+     * @return The length of the path.
+     */
+    public int getLength() {
+        return relations.length;
+    }
+
+    /**
+     * Retrieves the people along the path, from start to end.
+     *
+     * @return the names
+     */
+    public String[] getNames() {
+        return names;
+    }
+
+    /**
+     * Retrieves the relation of each person to the previous one.
+     *
+     * @return the relations
+     */
+    public Relation[] getRelations() {
+        return relations;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(names[0]);
+        for (int i = 0; i < relations.length; i++) {
+            text.append(" -> ").append(relations[i].name().toLowerCase()).append(": ").append(names[i + 1]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,540 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.hash.NameIndex;
+import edu.unimet.edd.utils.Person;
+
+/**
+ * Per-person subtree statistics over the father to child forest: subtree size,
+ * height, child count and descendant count. They are computed for every person
+ * in one iterative post-order pass over a {@link GenealogyGraph}, and then kept
+ * up to date incrementally as people are added.
+ * <p>
+ * Lineage roots are kept in an indexed max-heap ordered by subtree size, so the
+ * largest lineage is available in O(1) and the k largest in O(k log k). The
+ * deepest line and per-house aggregates are tracked as running maxima, which is
+ * valid because adding people only ever makes subtrees larger and taller.
+ * </p>
+ */
+public class SubtreeStats {
+
+    private static final int NONE = -1; // Id used for missing people
+    private static final int MIN_CAPACITY = 16; // Smallest backing array size
+
+    private Person[] people; // People indexed by id
+    private int[] father; // Father id of each person, or -1
+    private int[] subtreeSize; // Number of people in the subtree, including the root
+    private int[] height; // Longest path from the person down to a leaf
+    private int[] childCount; // Number of direct children
+    private int[] houseOf; // House id of each person, or -1
+    private int count; // Number of people tracked
+    private NameIndex nameIndex; // Normalized name -> id
+
+    private NameIndex houseIndex; // House name -> house id
+    private String[] houseNames; // House names indexed by house id
+    private int[] houseMembers; // Members per house
+    private int[] houseRoots; // Members without father per house
+    private int[] houseLargest; // Largest subtree rooted at a member per house
+    private int[] houseDeepest; // Tallest subtree rooted at a member per house
+    private int houseCount; // Number of houses
+
+    private int[] heap; // Indexed max-heap of root ids ordered by subtree size
+    private int[] heapPosition; // Position of each id in the heap, or -1
+    private int heapSize; // Number of roots in the heap
+    private int deepestRoot = NONE; // Root with the tallest subtree
+
+    /**
+     * Computes the statistics of every person in the given graph with a single
+     * post-order pass.
+     *
+     * @param graph The genealogy graph to summarize.
+     */
+    public SubtreeStats(GenealogyGraph graph) {
+        int n = graph.size();
+        int capacity = Math.max(MIN_CAPACITY, n);
+        people = new Person[capacity];
+        father = new int[capacity];
+        subtreeSize = new int[capacity];
+        height = new int[capacity];
+        childCount = new int[capacity];
+        houseOf = new int[capacity];
+        heap = new int[capacity];
+        heapPosition = new int[capacity];
+        nameIndex = new NameIndex(n);
+        houseIndex = new NameIndex();
+        houseNames = new String[MIN_CAPACITY];
+        houseMembers = new int[MIN_CAPACITY];
+        houseRoots = new int[MIN_CAPACITY];
+        houseLargest = new int[MIN_CAPACITY];
+        houseDeepest = new int[MIN_CAPACITY];
+
+        for (int id = 0; id < n; id++) {
+            people[id] = graph.getPerson(id);
+            father[id] = graph.getFather(id);
+            childCount[id] = graph.getChildCount(id);
+            houseOf[id] = registerHouse(people[id].getHouse());
+            heapPosition[id] = NONE;
+            nameIndex.putIfAbsent(HashTable.normalizeName(people[id].getName()), id);
+        }
+        count = n;
+
+        computePostOrder(graph);
+
+        // Aggregate houses and index the lineage roots
+        for (int id = 0; id < n; id++) {
+            updateHouse(id);
+            if (houseOf[id] != NONE) {
+                houseMembers[houseOf[id]]++;
+            }
+            if (father[id] == NONE) {
+                addRoot(id);
+            }
+        }
+    }
+
+    /**
+     * Computes subtree size and height for every person with an iterative
+     * post-order traversal of the child edges. Edges that close a cycle are
+     * ignored so every subtree stays finite.
+     *
+     * @param graph The genealogy graph to summarize.
+     */
+    private void computePostOrder(GenealogyGraph graph) {
+        int n = graph.size();
+        byte[] state = new byte[n]; // 0 = unvisited, 1 = open, 2 = closed
+        int[] stack = new int[n];
+        int[] nextChild = new int[n];
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int start = 0; start < n; start++) {
+                // Roots first, then whatever is left (people caught in cycles)
+                if (state[start] != 0 || (pass == 0 && father[start] != NONE)) {
+                    continue;
+                }
+                int top = 0;
+                stack[top++] = start;
+                state[start] = 1;
+
+                while (top > 0) {
+                    int current = stack[top - 1];
+                    if (nextChild[current] < graph.getChildCount(current)) {
+                        int child = graph.getChild(current, nextChild[current]++);
+                        if (state[child] == 0) {
+                            state[child] = 1;
+                            stack[top++] = child;
+                        }
+                        continue;
+                    }
+
+                    // Every child is closed: aggregate them into the current person
+                    top--;
+                    state[current] = 2;
+                    int size = 1;
+                    int tallest = 0;
+                    for (int i = 0; i < graph.getChildCount(current); i++) {
+                        int child = graph.getChild(current, i);
+                        if (state[child] == 2 && father[child] == current) {
+                            size += subtreeSize[child];
+                            tallest = Math.max(tallest, height[child] + 1);
+                        }
+                    }
+                    subtreeSize[current] = size;
+                    height[current] = tallest;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a new person as a leaf under the given father and updates the
+     * statistics of every ancestor. Runs in O(depth) plus O(log r) heap work
+     * for the lineage root.
+     *
+     * @param person The person to add.
+     * @param fatherId The id of the father, or -1 if the person starts a new
+     * lineage.
+     * @return The id assigned to the new person.
+     */
+    public int addPerson(Person person, int fatherId) {
+        ensureCapacity(count + 1);
+        int id = count++;
+        people[id] = person;
+        father[id] = fatherId;
+        subtreeSize[id] = 1;
+        height[id] = 0;
+        childCount[id] = 0;
+        heapPosition[id] = NONE;
+        houseOf[id] = registerHouse(person.getHouse());
+        nameIndex.putIfAbsent(HashTable.normalizeName(person.getName()), id);
+        if (houseOf[id] != NONE) {
+            houseMembers[houseOf[id]]++;
+        }
+        updateHouse(id);
+
+        if (fatherId == NONE) {
+            addRoot(id);
+            return id;
+        }
+
+        childCount[fatherId]++;
+        int ancestor = fatherId;
+        int candidateHeight = 1;
+        int steps = 0;
+        // Walk up to the root; the step limit guards against cyclic data
+        while (ancestor != NONE && steps++ < count) {
+            subtreeSize[ancestor]++;
+            if (height[ancestor] < candidateHeight) {
+                height[ancestor] = candidateHeight;
+            }
+            updateHouse(ancestor);
+            if (heapPosition[ancestor] != NONE) {
+                siftUp(heapPosition[ancestor]);
+                updateDeepestRoot(ancestor);
+            }
+            candidateHeight = height[ancestor] + 1;
+            ancestor = father[ancestor];
+        }
+        return id;
+    }
+
+    /**
+     * Retrieves the id of a person by their normalized name.
+     *
+     * @param name The name of the person.
+     * @return The id of the person, or -1 if not found.
+     */
+    public int getId(String name) {
+        return nameIndex.get(HashTable.normalizeName(name));
+    }
+
+    /**
+     * Get the number of people tracked.
+     *
+     * @return The number of people.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Retrieves the person with the given id.
+     *
+     * @param id The id of the person.
+     * @return The Person object.
+     */
+    public Person getPerson(int id) {
+        return people[id];
+    }
+
+    /**
+     * Replaces the record of a person by a newer one with the same name,
+     * father and house, so every statistic stays valid.
+     *
+     * @param id The id of the person.
+     * @param person The new record.
+     */
+    void replacePerson(int id, Person person) {
+        people[id] = person;
+    }
+
+    /**
+     * Get the number of people in the subtree of a person, including them.
+     *
+     * @param id The id of the person.
+     * @return The subtree size.
+     */
+    public int getSubtreeSize(int id) {
+        return subtreeSize[id];
+    }
+
+    /**
+     * Get the number of descendants of a person.
+     *
+     * @param id The id of the person.
+     * @return The number of descendants.
+     */
+    public int getDescendantCount(int id) {
+        return subtreeSize[id] - 1;
+    }
+
+    /**
+     * Get the height of the subtree of a person, 0 for people without
+     * children.
+     *
+     * @param id The id of the person.
+     * @return The subtree height.
+     */
+    public int getHeight(int id) {
+        return height[id];
+    }
+
+    /**
+     * Get the number of direct children of a person.
+     *
+     * @param id The id of the person.
+     * @return The number of children.
+     */
+    public int getChildCount(int id) {
+        return childCount[id];
+    }
+
+    /**
+     * Retrieves the root of the largest lineage in O(1).
+     *
+     * @return The id of the root with the largest subtree, or -1 if empty.
+     */
+    public int getLargestLineage() {
+        return heapSize == 0 ? NONE : heap[0];
+    }
+
+    /**
+     * Retrieves the roots of the k largest lineages, largest first, in
+     * O(k log k) by exploring only the top of the heap.
+     *
+     * @param k The number of lineages to retrieve.
+     * @return The ids of the roots, at most k of them.
+     */
+    public int[] getLargestLineages(int k) {
+        int limit = Math.min(k, heapSize);
+        int[] result = new int[limit];
+        if (limit == 0) {
+            return result;
+        }
+
+        // Candidate max-heap of positions in the main heap
+        int[] candidates = new int[2 * limit + 1];
+        int candidateCount = 0;
+        candidates[candidateCount++] = 0;
+
+        for (int found = 0; found < limit; found++) {
+            // Pop the best candidate
+            int best = candidates[0];
+            candidates[0] = candidates[--candidateCount];
+            siftDownCandidates(candidates, candidateCount);
+            result[found] = heap[best];
+
+            // Its children in the main heap become candidates
+            for (int child = 2 * best + 1; child <= 2 * best + 2 && child < heapSize; child++) {
+                candidates[candidateCount] = child;
+                siftUpCandidates(candidates, candidateCount++);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the root of the deepest line in O(1).
+     *
+     * @return The id of the root with the tallest subtree, or -1 if empty.
+     */
+    public int getDeepestLine() {
+        return deepestRoot;
+    }
+
+    /**
+     * Retrieves the aggregate figures of a house in O(1).
+     *
+     * @param house The name of the house.
+     * @return The summary of the house, or null if the house is unknown.
+     */
+    public HouseSummary getHouseSummary(String house) {
+        int houseId = houseIndex.get(house);
+        if (houseId == NONE) {
+            return null;
+        }
+        return new HouseSummary(houseNames[houseId], houseMembers[houseId], houseRoots[houseId],
+                houseLargest[houseId], houseDeepest[houseId]);
+    }
+
+    /**
+     * Retrieves the names of every house seen so far.
+     *
+     * @return An array with the house names.
+     */
+    public String[] getHouses() {
+        String[] houses = new String[houseCount];
+        System.arraycopy(houseNames, 0, houses, 0, houseCount);
+        return houses;
+    }
+
+    /**
+     * Registers a house name and returns its id.
+     *
+     * @param house The name of the house, possibly null.
+     * @return The id of the house, or -1 for people without a house.
+     */
+    private int registerHouse(String house) {
+        if (house == null) {
+            return NONE;
+        }
+        int houseId = houseIndex.get(house);
+        if (houseId != NONE) {
+            return houseId;
+        }
+        if (houseCount == houseNames.length) {
+            int newCapacity = houseNames.length * 2;
+            houseNames = copyOf(houseNames, newCapacity);
+            houseMembers = copyOf(houseMembers, newCapacity);
+            houseRoots = copyOf(houseRoots, newCapacity);
+            houseLargest = copyOf(houseLargest, newCapacity);
+            houseDeepest = copyOf(houseDeepest, newCapacity);
+        }
+        houseId = houseCount++;
+        houseNames[houseId] = house;
+        houseIndex.put(house, houseId);
+        return houseId;
+    }
+
+    /**
+     * Folds the current figures of a person into the maxima of their house.
+     *
+     * @param id The id of the person.
+     */
+    private void updateHouse(int id) {
+        int houseId = houseOf[id];
+        if (houseId != NONE) {
+            houseLargest[houseId] = Math.max(houseLargest[houseId], subtreeSize[id]);
+            houseDeepest[houseId] = Math.max(houseDeepest[houseId], height[id]);
+        }
+    }
+
+    /**
+     * Adds a lineage root to the heap and to its house.
+     *
+     * @param id The id of the root.
+     */
+    private void addRoot(int id) {
+        heap[heapSize] = id;
+        heapPosition[id] = heapSize;
+        siftUp(heapSize++);
+        updateDeepestRoot(id);
+        if (houseOf[id] != NONE) {
+            houseRoots[houseOf[id]]++;
+        }
+    }
+
+    /**
+     * Records the root as the deepest line if it is taller than the current
+     * one.
+     *
+     * @param root The id of the root.
+     */
+    private void updateDeepestRoot(int root) {
+        if (deepestRoot == NONE || height[root] > height[deepestRoot]) {
+            deepestRoot = root;
+        }
+    }
+
+    /**
+     * Moves a heap entry up while it is larger than its parent.
+     *
+     * @param position The position of the entry in the heap.
+     */
+    private void siftUp(int position) {
+        int id = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (subtreeSize[heap[parent]] >= subtreeSize[id]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPosition[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        heapPosition[id] = position;
+    }
+
+    /**
+     * Moves the last added candidate up the candidate heap.
+     *
+     * @param candidates The candidate heap of positions in the main heap.
+     * @param position The position of the candidate to move.
+     */
+    private void siftUpCandidates(int[] candidates, int position) {
+        int value = candidates[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (subtreeSize[heap[candidates[parent]]] >= subtreeSize[heap[value]]) {
+                break;
+            }
+            candidates[position] = candidates[parent];
+            position = parent;
+        }
+        candidates[position] = value;
+    }
+
+    /**
+     * Moves the first candidate down the candidate heap.
+     *
+     * @param candidates The candidate heap of positions in the main heap.
+     * @param size The number of candidates.
+     */
+    private void siftDownCandidates(int[] candidates, int size) {
+        int position = 0;
+        if (size == 0) {
+            return;
+        }
+        int value = candidates[0];
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && subtreeSize[heap[candidates[child + 1]]] > subtreeSize[heap[candidates[child]]]) {
+                child++;
+            }
+            if (subtreeSize[heap[candidates[child]]] <= subtreeSize[heap[value]]) {
+                break;
+            }
+            candidates[position] = candidates[child];
+            position = child;
+        }
+        candidates[position] = value;
+    }
+
+    /**
+     * Grows the per-person arrays so they can hold the given number of people.
+     *
+     * @param required The number of people the arrays must hold.
+     */
+    private void ensureCapacity(int required) {
+        if (required <= people.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, people.length * 2);
+        Person[] newPeople = new Person[newCapacity];
+        System.arraycopy(people, 0, newPeople, 0, count);
+        people = newPeople;
+        father = copyOf(father, newCapacity);
+        subtreeSize = copyOf(subtreeSize, newCapacity);
+        height = copyOf(height, newCapacity);
+        childCount = copyOf(childCount, newCapacity);
+        houseOf = copyOf(houseOf, newCapacity);
+        heap = copyOf(heap, newCapacity);
+        heapPosition = copyOf(heapPosition, newCapacity);
+    }
+
+    /**
+     * Copies an int array into a new array of the given length.
+     *
+     * @param source The array to copy.
+     * @param length The length of the new array.
+     * @return The new array.
+     */
+    private static int[] copyOf(int[] source, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(source, 0, copy, 0, Math.min(source.length, length));
+        return copy;
+    }
+
+    /**
+     * Copies a String array into a new array of the given length.
+     *
+     * @param source The array to copy.
+     * @param length The length of the new array.
+     * @return The new array.
+     */
+    private static String[] copyOf(String[] source, int length) {
+        String[] copy = new String[length];
+        System.arraycopy(source, 0, copy, 0, Math.min(source.length, length));
+        return copy;
+    }
+}
@@ -0,0 +1,280 @@
+package edu.unimet.edd.tree;
+
+import edu.unimet.edd.hash.NameIndex;
+
+/**
+ * An index from each normalized title to its holders, ordered as a succession
+ * chain: by generation in the lineage, then by the "Of his name" numeral. It is
+ * built once from the {@link GenealogyGraph}, so a title query is a hash
+ * lookup plus a copy of its k holders instead of a scan of the whole register.
+ * <p>
+ * Holders are stored in CSR form: the holders of title t are
+ * {@code holders[offsets[t]]} to {@code holders[offsets[t + 1] - 1]}.
+ * </p>
+ */
+public class TitleIndex {
+
+    private static final int UNKNOWN_NUMERAL = 0xFFFF; // Holders without a numeral go last in their generation
+
+    private static final String[] ORDINALS = {
+        "first", "second", "third", "fourth", "fifth", "sixth", "seventh", "eighth", "ninth", "tenth",
+        "eleventh", "twelfth", "thirteenth", "fourteenth", "fifteenth", "sixteenth", "seventeenth",
+        "eighteenth", "nineteenth", "twentieth"
+    };
+
+    private final GenealogyGraph graph; // The graph the ids refer to
+    private final NameIndex titleIndex; // Normalized title -> title id
+    private final String[] titles; // Title as first written, by title id
+    private final int[] offsets; // CSR offsets per title id
+    private final int[] holders; // Holder ids in succession order
+
+    /**
+     * Builds the title index for the given graph.
+     *
+     * @param graph The genealogy graph.
+     */
+    public TitleIndex(GenealogyGraph graph) {
+        int n = graph.size();
+        this.graph = graph;
+        this.titleIndex = new NameIndex();
+
+        // Step 1: assign title ids and count the holders of each title
+        int[] titleOf = new int[n];
+        String[] names = new String[16];
+        int[] counts = new int[16];
+        int titleCount = 0;
+        for (int id = 0; id < n; id++) {
+            String key = normalizeTitle(graph.getPerson(id).getTitle());
+            if (key == null) {
+                titleOf[id] = -1;
+                continue;
+            }
+            int titleId = titleIndex.get(key);
+            if (titleId == -1) {
+                if (titleCount == names.length) {
+                    names = grow(names);
+                    counts = grow(counts);
+                }
+                titleId = titleCount++;
+                titleIndex.put(key, titleId);
+                names[titleId] = graph.getPerson(id).getTitle().trim();
+            }
+            titleOf[id] = titleId;
+            counts[titleId]++;
+        }
+
+        this.titles = new String[titleCount];
+        System.arraycopy(names, 0, titles, 0, titleCount);
+        this.offsets = new int[titleCount + 1];
+        for (int t = 0; t < titleCount; t++) {
+            offsets[t + 1] = offsets[t] + counts[t];
+        }
+
+        // Step 2: bucket the holders by title, keeping register order
+        this.holders = new int[offsets[titleCount]];
+        int[] cursor = new int[titleCount];
+        for (int id = 0; id < n; id++) {
+            if (titleOf[id] != -1) {
+                holders[offsets[titleOf[id]] + cursor[titleOf[id]]++] = id;
+            }
+        }
+
+        // Step 3: order each bucket by generation, then numeral (stable)
+        long[] keys = succession(graph);
+        int[] buffer = new int[holders.length];
+        for (int t = 0; t < titleCount; t++) {
+            mergeSort(holders, buffer, keys, offsets[t], offsets[t + 1]);
+        }
+    }
+
+    /**
+     * Retrieves the holders of a title in succession order.
+     *
+     * @param title The title, compared ignoring case and extra spaces.
+     * @return The ids of the holders, empty if nobody holds the title.
+     */
+    public int[] getHolders(String title) {
+        int titleId = titleIndex.get(normalizeTitle(title));
+        if (titleId == -1) {
+            return new int[0];
+        }
+        int[] result = new int[offsets[titleId + 1] - offsets[titleId]];
+        System.arraycopy(holders, offsets[titleId], result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * Get the number of holders of a title.
+     *
+     * @param title The title, compared ignoring case and extra spaces.
+     * @return The number of holders.
+     */
+    public int getHolderCount(String title) {
+        int titleId = titleIndex.get(normalizeTitle(title));
+        return titleId == -1 ? 0 : offsets[titleId + 1] - offsets[titleId];
+    }
+
+    /**
+     * Retrieves every title held in the register, as first written.
+     *
+     * @return The titles.
+     */
+    public String[] getTitles() {
+        String[] result = new String[titles.length];
+        System.arraycopy(titles, 0, result, 0, titles.length);
+        return result;
+    }
+
+    /**
+     * Retrieves the graph the holder ids refer to.
+     *
+     * @return The genealogy graph.
+     */
+    public GenealogyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Computes the succession key of every person: their generation in the
+     * lineage forest in the high bits and their numeral in the low bits.
+     *
+     * @param graph The genealogy graph.
+     * @return The keys, indexed by id.
+     */
+    private static long[] succession(GenealogyGraph graph) {
+        long[] keys = new long[graph.size()];
+        for (int id = 0; id < keys.length; id++) {
+            keys[id] = ((long) graph.getGeneration(id) << 32) | parseNumeral(graph.getPerson(id).getOfHisName());
+        }
+        return keys;
+    }
+
+    /**
+     * Parses an "Of his name" value written as an ordinal word, a Roman
+     * numeral or digits.
+     *
+     * @param value The value to parse.
+     * @return The numeral, or UNKNOWN_NUMERAL if it cannot be read.
+     */
+    private static int parseNumeral(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return UNKNOWN_NUMERAL;
+        }
+        String text = value.trim().toLowerCase();
+
+        for (int i = 0; i < ORDINALS.length; i++) {
+            if (text.equals(ORDINALS[i])) {
+                return i + 1;
+            }
+        }
+
+        if (text.matches("[0-9]{1,4}(st|nd|rd|th)?")) {
+            return Math.min(Integer.parseInt(text.replaceAll("[a-z]", "")), UNKNOWN_NUMERAL - 1);
+        }
+
+        if (text.matches("[ivxlc]+")) {
+            int total = 0;
+            int previous = 0;
+            for (int i = text.length() - 1; i >= 0; i--) {
+                int digit = romanDigit(text.charAt(i));
+                // A smaller digit before a larger one is subtracted (IV, IX...)
+                total += digit < previous ? -digit : digit;
+                previous = Math.max(previous, digit);
+            }
+            return total > 0 ? total : UNKNOWN_NUMERAL;
+        }
+        return UNKNOWN_NUMERAL;
+    }
+
+    /**
+     * Get the value of a Roman digit.
+     *
+     * @param digit The digit, in lowercase.
+     * @return Its value.
+     */
+    private static int romanDigit(char digit) {
+        switch (digit) {
+            case 'i':
+                return 1;
+            case 'v':
+                return 5;
+            case 'x':
+                return 10;
+            case 'l':
+                return 50;
+            default:
+                return 100;
+        }
+    }
+
+    /**
+     * Stable merge sort of ids[from, to) by their keys.
+     *
+     * @param ids The ids to sort.
+     * @param buffer A scratch array at least as long as ids.
+     * @param keys The sort key of each id.
+     * @param from The first index, inclusive.
+     * @param to The last index, exclusive.
+     */
+    private static void mergeSort(int[] ids, int[] buffer, long[] keys, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(ids, buffer, keys, from, middle);
+        mergeSort(ids, buffer, keys, middle, to);
+        if (keys[ids[middle - 1]] <= keys[ids[middle]]) {
+            return; // Already in order, common when the register lists holders in succession
+        }
+        int left = from;
+        int right = middle;
+        int out = from;
+        while (left < middle && right < to) {
+            buffer[out++] = keys[ids[right]] < keys[ids[left]] ? ids[right++] : ids[left++];
+        }
+        while (left < middle) {
+            buffer[out++] = ids[left++];
+        }
+        while (right < to) {
+            buffer[out++] = ids[right++];
+        }
+        System.arraycopy(buffer, from, ids, from, to - from);
+    }
+
+    /**
+     * Doubles the length of an array of titles.
+     *
+     * @param source The array to grow.
+     * @return A larger copy.
+     */
+    private static String[] grow(String[] source) {
+        String[] larger = new String[source.length * 2];
+        System.arraycopy(source, 0, larger, 0, source.length);
+        return larger;
+    }
+
+    /**
+     * Doubles the length of an array of counts.
+     *
+     * @param source The array to grow.
+     * @return A larger copy.
+     */
+    private static int[] grow(int[] source) {
+        int[] larger = new int[source.length * 2];
+        System.arraycopy(source, 0, larger, 0, source.length);
+        return larger;
+    }
+
+    /**
+     * Normalizes a title so lookups ignore case and repeated spaces.
+     *
+     * @param title The title to normalize.
+     * @return The normalized title, or null if it is empty.
+     */
+    private static String normalizeTitle(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            return null;
+        }
+        return title.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
@@ -5,8 +5,15 @@ import edu.unimet.edd.utils.Person;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
 import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.hash.NameIndex;
 import edu.unimet.edd.listeners.HashTableListener;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.Arrays;
+import java.util.Objects;
 import javax.swing.JOptionPane;
 import org.graphstream.graph.Node;
 
@@ -19,6 +26,11 @@ public class Tree implements HashTableListener {
 
     private HashTable table; // A hash table to store the people and their information
     private TreeNode root; // Root node of the tree
+    private GenealogyGraph genealogyGraph; // Cached int-id graph, rebuilt after updates
+    private SubtreeStats subtreeStats; // Cached subtree statistics, patched when people are added
+    private TitleIndex titleIndex; // Cached title to holders index, rebuilt after updates
+    private boolean patchingStats; // True while addPerson or reload updates the table and patches the stats itself
+    private boolean patchingGraph; // True while reload updates the table and patches the graph and title index itself
 
     /**
      * Constructs a Tree object.
@@ -33,6 +45,250 @@ public class Tree implements HashTableListener {
     public void onHashTableUpdated() {
         // Synchronize the local HashTable instance with the singleton instance
         this.table.syncData(HashTable.getInstance());
+        if (!patchingGraph) {
+            this.genealogyGraph = null; // The cached graph no longer matches the table
+            this.titleIndex = null;
+        }
+        if (!patchingStats) {
+            this.subtreeStats = null; // Updates that are not patched require a full recount
+        }
+    }
+
+    /**
+     * Retrieves the int-id graph of the genealogy, building it from the hash
+     * table on first use after any update. Building assigns every person a
+     * dense id and resolves all father, child and spouse names once.
+     *
+     * @return The genealogy graph for the current contents of the table.
+     */
+    public GenealogyGraph getGenealogyGraph() {
+        if (genealogyGraph == null) {
+            genealogyGraph = GenealogyGraph.build(table.getAllPeople());
+        }
+        return genealogyGraph;
+    }
+
+    /**
+     * Retrieves the index of titles to their holders in succession order,
+     * building it on first use after any update.
+     *
+     * @return The title index for the current contents of the table.
+     */
+    public TitleIndex getTitleIndex() {
+        if (titleIndex == null) {
+            titleIndex = new TitleIndex(getGenealogyGraph());
+        }
+        return titleIndex;
+    }
+
+    /**
+     * Retrieves the holders of a title as a succession chain, ordered by
+     * generation and then by their "Of his name" numeral.
+     *
+     * @param title The title, compared ignoring case and extra spaces.
+     * @return The names of the holders in succession order.
+     */
+    public PersonLinkedList getTitleHolders(String title) {
+        TitleIndex index = getTitleIndex();
+        PersonLinkedList holders = new PersonLinkedList();
+        for (int id : index.getHolders(title)) {
+            holders.addPerson(index.getGraph().getPerson(id));
+        }
+        return holders;
+    }
+
+    /**
+     * Get the number of generations in the register, read from the generation
+     * buckets of the genealogy graph.
+     *
+     * @return The number of generations, 0 if the register is empty.
+     */
+    public int getGenerationCount() {
+        return getGenealogyGraph().getGenerationCount();
+    }
+
+    /**
+     * Retrieves the members of a generation, lineage roots being generation 1.
+     *
+     * @param generation The generation number.
+     * @return The names of the members, empty if the generation does not
+     * exist.
+     */
+    public PersonLinkedList getGenerationMembers(int generation) {
+        GenealogyGraph graph = getGenealogyGraph();
+        PersonLinkedList members = new PersonLinkedList();
+        for (int i = 0; i < graph.getGenerationSize(generation); i++) {
+            members.addPerson(graph.getPerson(graph.getGenerationMember(generation, i)));
+        }
+        return members;
+    }
+
+    /**
+     * Retrieves the subtree statistics of every person (size, height, child
+     * and descendant counts), computing them in one post-order pass on first
+     * use. People added afterwards through addPerson are applied
+     * incrementally.
+     *
+     * @return The subtree statistics for the current contents of the table.
+     */
+    public SubtreeStats getSubtreeStats() {
+        if (subtreeStats == null) {
+            subtreeStats = new SubtreeStats(getGenealogyGraph());
+        }
+        return subtreeStats;
+    }
+
+    /**
+     * Streams the people under the given person in pre-order (parent before
+     * children), or every lineage when the name is null. Unlike BFS, the
+     * traversal does not modify any Person, so the stream can safely be
+     * parallel.
+     *
+     * @param rootName The name of the root person, or null for every lineage.
+     * @param parallel Whether the returned stream is parallel.
+     * @return A stream of people, empty if the root is not found.
+     */
+    public Stream<Person> preOrder(String rootName, boolean parallel) {
+        GenealogyGraph graph = getGenealogyGraph();
+        return stream(graph, orderFor(graph, rootName, true), parallel);
+    }
+
+    /**
+     * Streams the people under the given person in level order (generation by
+     * generation), or every lineage when the name is null. The traversal does
+     * not modify any Person, so the stream can safely be parallel.
+     *
+     * @param rootName The name of the root person, or null for every lineage.
+     * @param parallel Whether the returned stream is parallel.
+     * @return A stream of people, empty if the root is not found.
+     */
+    public Stream<Person> levelOrder(String rootName, boolean parallel) {
+        GenealogyGraph graph = getGenealogyGraph();
+        return stream(graph, orderFor(graph, rootName, false), parallel);
+    }
+
+    /**
+     * Streams the forefathers of a person, from their father up to the oldest
+     * known ancestor.
+     *
+     * @param name The name of the person.
+     * @param parallel Whether the returned stream is parallel.
+     * @return A stream of ancestors, empty if the person is not found.
+     */
+    public Stream<Person> ancestorsOf(String name, boolean parallel) {
+        GenealogyGraph graph = getGenealogyGraph();
+        int id = graph.resolve(name);
+        return stream(graph, id == -1 ? new int[0] : graph.ancestors(id), parallel);
+    }
+
+    /**
+     * Streams the ids of the people under the given person in pre-order, for
+     * analytics that work directly on the genealogy graph.
+     *
+     * @param rootName The name of the root person, or null for every lineage.
+     * @return A sequential stream of ids; call parallel() on it if needed.
+     */
+    public IntStream preOrderIds(String rootName) {
+        int[] order = orderFor(getGenealogyGraph(), rootName, true);
+        return Arrays.stream(order); // Backed by a sized, evenly splitting array Spliterator
+    }
+
+    /**
+     * Computes the traversal order for a stream.
+     *
+     * @param graph The genealogy graph.
+     * @param rootName The name of the root person, or null for every lineage.
+     * @param preOrder true for pre-order, false for level order.
+     * @return The ids in traversal order, empty if the root is not found.
+     */
+    private int[] orderFor(GenealogyGraph graph, String rootName, boolean preOrder) {
+        int root = -1;
+        if (rootName != null) {
+            root = graph.resolve(rootName);
+            if (root == -1) {
+                return new int[0]; // Unknown root: nothing to stream
+            }
+        }
+        return preOrder ? graph.preOrder(root) : graph.levelOrder(root);
+    }
+
+    /**
+     * Wraps an id order into a stream of people backed by a
+     * PersonSpliterator.
+     *
+     * @param graph The genealogy graph.
+     * @param order The ids in traversal order.
+     * @param parallel Whether the returned stream is parallel.
+     * @return The stream of people.
+     */
+    private Stream<Person> stream(GenealogyGraph graph, int[] order, boolean parallel) {
+        return StreamSupport.stream(new PersonSpliterator(graph, order), parallel);
+    }
+
+    /**
+     * Validates the whole register, reporting cycles, self-parenting records,
+     * unresolved fathers, dangling "Father to" names and orphans. Meant to run
+     * once after a load so problems are found before any query.
+     *
+     * @return The validation report for the current contents of the table.
+     */
+    public ValidationReport validate() {
+        return new GenealogyValidator().validate(getGenealogyGraph());
+    }
+
+    /**
+     * Analyzes the ancestry of a person, through fathers and mothers, for
+     * ancestors reached by more than one line of descent.
+     *
+     * @param name The name, nickname or first and last name of the person.
+     * @return The pedigree collapse of the person, or null if not found.
+     */
+    public PedigreeCollapse findPedigreeCollapse(String name) {
+        GenealogyGraph graph = getGenealogyGraph();
+        int id = graph.resolve(name);
+        if (id == -1) {
+            return null;
+        }
+        return new PedigreeAnalyzer(graph).analyze(id);
+    }
+
+    /**
+     * Finds up to pathCount shortest relationship paths between two people
+     * through parents, children and marriages, shortest first.
+     *
+     * @param from The name, nickname or first and last name of the first
+     * person.
+     * @param to The name, nickname or first and last name of the second
+     * person.
+     * @param pathCount The maximum number of paths to return.
+     * @return The paths found, empty if either person is missing or they are
+     * not related.
+     */
+    public RelationshipPath[] findRelationships(String from, String to, int pathCount) {
+        GenealogyGraph graph = getGenealogyGraph();
+        int fromId = graph.resolve(from);
+        int toId = graph.resolve(to);
+        if (fromId == -1 || toId == -1) {
+            return new RelationshipPath[0];
+        }
+        return new RelationshipFinder(graph).shortestPaths(fromId, toId, pathCount);
+    }
+
+    /**
+     * Finds every person in the register whose pedigree collapses.
+     *
+     * @return The names of the people with a collapsed pedigree.
+     */
+    public PersonLinkedList findCollapsedPedigrees() {
+        GenealogyGraph graph = getGenealogyGraph();
+        boolean[] collapsed = new PedigreeAnalyzer(graph).findCollapsedPeople();
+        PersonLinkedList result = new PersonLinkedList();
+        for (int id = 0; id < graph.size(); id++) {
+            if (collapsed[id]) {
+                result.addString(graph.getPerson(id).getName());
+            }
+        }
+        return result;
     }
 
     /**
@@ -65,6 +321,38 @@ public class Tree implements HashTableListener {
         return null; // Return null if no root is found
     }
 
+    /**
+     * Retrieves the root node of the genealogy tree in lazy mode: the same
+     * root getRoot would return, but its children (and theirs) are only
+     * created from the genealogy graph when first requested, and unused
+     * branches may be discarded once more than maxNodes nodes are in memory.
+     *
+     * @param maxNodes The maximum number of materialized child nodes.
+     * @return The lazy root node of the tree, or null if not found.
+     */
+    public TreeNode getLazyRoot(int maxNodes) {
+        GenealogyGraph graph = getGenealogyGraph();
+        for (int id = 0; id < graph.size(); id++) {
+            String father = graph.getPerson(id).getFather();
+            if (father == null || father.equalsIgnoreCase("[unknown]")) {
+                return new LazyTree(graph, maxNodes).getNode(id);
+            }
+        }
+        return null; // Return null if no root is found
+    }
+
+    /**
+     * Retrieves a lazy node for a single person, so one branch of a large
+     * register can be opened with memory proportional to what is viewed.
+     *
+     * @param name The name of the person.
+     * @param maxNodes The maximum number of materialized child nodes.
+     * @return The lazy node for the person, or null if not found.
+     */
+    public TreeNode getLazyNode(String name, int maxNodes) {
+        return new LazyTree(getGenealogyGraph(), maxNodes).getNode(name);
+    }
+
     /**
      * Adds children to the given parent node based on the HashTable data. This
      * method maintains all logic checks for father matching, including: -
@@ -81,14 +369,14 @@ public class Tree implements HashTableListener {
      */
     private void addChildren(TreeNode parent, GenericSet<TreeNode> visited) {
         // Queue to manage nodes to process
-        GenericLinkedList<TreeNode> queue = new GenericLinkedList<>();
+        ArrayQueue<TreeNode> queue = new ArrayQueue<>();
         System.out.println("Adding parent to queue: " + parent.getPerson().getName());
-        queue.add(parent);
+        queue.enqueue(parent);
 
         // Process each node in the queue
         while (!queue.isEmpty()) {
-            TreeNode currentNode = queue.remove();
-            String currentName = normalizeName(currentNode.getPerson().getName());
+            TreeNode currentNode = queue.dequeue();
+            String currentName = HashTable.normalizeName(currentNode.getPerson().getName());
             System.out.println("Processing node: " + currentNode.getPerson().getName());
 
             // Skip the node if it has already been visited
@@ -105,7 +393,7 @@ public class Tree implements HashTableListener {
                 System.out.println("Checking person: " + person.getName() + ", Father: " + person.getFather());
 
                 if (person.getFather() != null) {
-                    String fatherName = normalizeName(person.getFather());
+                    String fatherName = HashTable.normalizeName(person.getFather());
                     System.out.println("Father name (normalized): " + fatherName);
 
                     // Ensure more strict matching of father
@@ -120,7 +408,7 @@ public class Tree implements HashTableListener {
 
                         // Add the child to the queue for further processing, ensure no duplicates
                         if (!visited.contains(childNode)) {  // Verify before adding to queue
-                            queue.add(childNode);
+                            queue.enqueue(childNode);
                             System.out.println("Child " + person.getName() + " added to queue.");
                         }
                     }
@@ -140,23 +428,23 @@ public class Tree implements HashTableListener {
      * empty.
      */
     public Integer BFS(Consumer<TreeNode> processNode) {
-        GenericLinkedList<TreeNode> queue = new GenericLinkedList<>();
+        ArrayQueue<TreeNode> queue = new ArrayQueue<>();
         TreeNode root = getRoot();
 
         if (root == null) {
             return 0;
         }
 
-        queue.add(root);
+        queue.enqueue(root);
         int currentGeneration = 1;
 
         GenericSet<TreeNode> visited = new GenericSet<>();  // Set to track visited nodes
 
         while (!queue.isEmpty()) {
-            int levelSize = queue.getSize();
+            int levelSize = queue.size();
 
             for (int i = 0; i < levelSize; i++) {
-                TreeNode current = queue.remove();
+                TreeNode current = queue.dequeue();
 
                 // Detect cycles
                 if (visited.contains(current)) {
@@ -176,7 +464,7 @@ public class Tree implements HashTableListener {
                 while (childNode != null) {
                     TreeNode child = childNode.getData();
                     if (!visited.contains(child)) {  // Verify before adding to queue
-                        queue.add(child);
+                        queue.enqueue(child);
                     }
                     childNode = childNode.getNext();
                 }
@@ -187,44 +475,24 @@ public class Tree implements HashTableListener {
     }
 
     /**
-     * Counts the total number of TreeNode objects in the genealogy tree. This
-     * method performs a breadth-first search (BFS) to traverse all nodes and
-     * counts them.
+     * Counts the total number of TreeNode objects in the genealogy tree, that
+     * is, the size of the subtree under the root returned by getRoot. The
+     * count comes from the precomputed subtree statistics instead of
+     * rebuilding and traversing the tree.
      *
      * @return The total number of TreeNode objects in the tree.
      */
     public int countTreeNodes() {
-        // Initialize the counter to zero
-        int count = 0;
-
-        // Perform BFS to traverse the tree starting from the root
-        GenericLinkedList<TreeNode> queue = new GenericLinkedList<>();
-        TreeNode root = getRoot(); // Get the root node
+        SubtreeStats stats = getSubtreeStats();
 
-        // Check if the tree is empty
-        if (root == null) {
-            return count; // Return 0 if the tree is empty
-        }
-
-        // Add the root node to the queue
-        queue.add(root);
-
-        // Perform a breadth-first search
-        while (!queue.isEmpty()) {
-            TreeNode current = queue.remove(); // Dequeue the current node
-            count++; // Increment the counter for each node visited
-
-            // Enqueue all children of the current node
-            GenericLinkedList<TreeNode> children = current.getChildren();
-            GenericNode<TreeNode> childNode = children.getFirst();
-            while (childNode != null) {
-                queue.add(childNode.getData()); // Add child node to the queue
-                childNode = childNode.getNext();
+        // Find the root the same way getRoot does
+        for (int id = 0; id < stats.size(); id++) {
+            String father = stats.getPerson(id).getFather();
+            if (father == null || father.equalsIgnoreCase("[unknown]")) {
+                return stats.getSubtreeSize(id);
             }
         }
-
-        // Return the total count of nodes
-        return count;
+        return 0; // Return 0 if the tree is empty
     }
 
     /**
@@ -234,9 +502,9 @@ public class Tree implements HashTableListener {
      */
     public void addPerson(Person person) {
         // Generate all possible unique identifiers for this person
-        String fullNameKey = normalizeName(person.getName());
+        String fullNameKey = HashTable.normalizeName(person.getName());
 
-        String nicknameKey = person.getNickname() != null ? normalizeName(person.getNickname()) : null;
+        String nicknameKey = person.getNickname() != null ? HashTable.normalizeName(person.getNickname()) : null;
 
         // Check if this person already exists using any key
         if ((fullNameKey != null && table.get(fullNameKey) != null)
@@ -250,7 +518,7 @@ public class Tree implements HashTableListener {
 //            System.out.println("\n -------- \n");
 
             // Get the father's normalized name
-            String fatherName = normalizeName(person.getFather());
+            String fatherName = HashTable.normalizeName(person.getFather());
 //            System.out.println("Obteniendo padre de: "  + person.getName() + " que es: "  + fatherName);
 
             // Try to find the father in the HashTable
@@ -263,7 +531,7 @@ public class Tree implements HashTableListener {
                     String temp = all[i].getName();
 
                     if (person.getFather().equalsIgnoreCase(all[i].getNickname())) {
-                        person.setFather(normalizeName(temp));
+                        person.setFather(HashTable.normalizeName(temp));
                         father = table.get(temp);
 //                        System.out.println("El papa de: " + person.getName() + " se encontro: " + temp);
                     }
@@ -292,7 +560,7 @@ public class Tree implements HashTableListener {
 //                System.out.println("Person Name: " + person.getName());
 //                System.out.println("Father Name: " + person.getFather());
 
-                String tempFatherName = normalizeName(father.getName());
+                String tempFatherName = HashTable.normalizeName(father.getName());
                 person.setFather(tempFatherName);
 
 //                System.out.println("Despues del cambio: ");
@@ -324,6 +592,197 @@ public class Tree implements HashTableListener {
 //        }
     }
 
+    /**
+     * Registers every person staged during a load. Duplicates, fathers and
+     * child stubs are resolved in one linear pass against the people already
+     * in the table (see {@link RegisterStaging}), and the result is inserted
+     * with a single table update, so the outcome does not depend on the
+     * order of the records in the input.
+     *
+     * @param staging The staged records of the load.
+     * @return The number of people added to the table.
+     */
+    public int addPeople(RegisterStaging staging) {
+        Person[] resolved = staging.resolve(table.getAllPeople());
+        return table.putAll(resolved);
+    }
+
+    /**
+     * Replaces the register with a newly loaded one by applying only what
+     * changed (see {@link RegisterDiff}). The cached indexes are kept or
+     * patched when the kind of edit allows it:
+     * <ul>
+     * <li>When nothing changed the table is not touched and every cached
+     * index stays valid.</li>
+     * <li>When only details were edited (the names, nicknames, parents,
+     * spouses, houses and children of every person are unchanged), the new
+     * records are swapped into the genealogy graph and the subtree statistics
+     * in time linear in the edit; the title index is only rebuilt if a title
+     * or numeral changed.</li>
+     * <li>When people were only added, the subtree statistics are patched
+     * instead of recounted.</li>
+     * </ul>
+     * Removes and edits of the relations change the ids and edges of the
+     * graph, so the graph and indexes are rebuilt on the next query.
+     *
+     * @param people The resolved people of the new register.
+     * @return The changes that were applied.
+     */
+    public RegisterDiff reload(Person[] people) {
+        Person[] current = table.getAllPeople();
+        RegisterDiff diff = RegisterDiff.compute(current, people);
+        if (diff.isEmpty()) {
+            return diff; // Unchanged file: keep the graph, indexes and statistics
+        }
+
+        boolean insertsOnly = diff.getUpdates().length == 0 && diff.getRemoves().length == 0;
+        boolean detailsOnly = genealogyGraph != null && diff.getInserts().length == 0 && diff.getRemoves().length == 0
+                && sameRelations(diff.getUpdates());
+        boolean patch = subtreeStats != null
+                && (detailsOnly || (insertsOnly && !fathersExisting(diff.getInserts(), current)));
+        patchingStats = patch;
+        patchingGraph = detailsOnly;
+        try {
+            table.applyDiff(diff);
+        } finally {
+            patchingStats = false;
+            patchingGraph = false;
+        }
+        if (detailsOnly) {
+            replaceRecords(diff.getUpdates());
+        } else if (patch) {
+            patchSubtreeStats(diff.getInserts());
+        }
+        return diff;
+    }
+
+    /**
+     * Checks if updated records only differ from the ones in the cached graph
+     * in details that no relation or name index depends on.
+     *
+     * @param updates The new records of the people that changed.
+     * @return true if every person keeps their name, nickname, parents,
+     * spouse, house and children.
+     */
+    private boolean sameRelations(Person[] updates) {
+        for (Person person : updates) {
+            int id = genealogyGraph.getId(person.getName());
+            if (id == -1) {
+                return false;
+            }
+            Person old = genealogyGraph.getPerson(id);
+            if (!Objects.equals(old.getName(), person.getName())
+                    || !Objects.equals(old.getNickname(), person.getNickname())
+                    || !Objects.equals(old.getFather(), person.getFather())
+                    || !Objects.equals(old.getMother(), person.getMother())
+                    || !Objects.equals(old.getWedTo(), person.getWedTo())
+                    || !Objects.equals(old.getHouse(), person.getHouse())
+                    || !sameChildren(old.getChildren(), person.getChildren())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if two "Father to" lists hold the same names in the same order.
+     *
+     * @param first The first list, possibly null.
+     * @param second The second list, possibly null.
+     * @return true if both lists are equal.
+     */
+    private static boolean sameChildren(PersonLinkedList first, PersonLinkedList second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        PersonLinkedList.LinkedListIterator a = first.iterator();
+        PersonLinkedList.LinkedListIterator b = second.iterator();
+        while (a.hasNext() && b.hasNext()) {
+            if (!Objects.equals(a.next(), b.next())) {
+                return false;
+            }
+        }
+        return !a.hasNext() && !b.hasNext();
+    }
+
+    /**
+     * Swaps updated records into the cached graph and subtree statistics,
+     * after {@link #sameRelations(Person[])} accepted them. The title index
+     * is dropped if a title or "Of his name" numeral changed.
+     *
+     * @param updates The new records of the people that changed.
+     */
+    private void replaceRecords(Person[] updates) {
+        for (Person person : updates) {
+            int id = genealogyGraph.getId(person.getName());
+            Person old = genealogyGraph.getPerson(id);
+            if (!Objects.equals(old.getTitle(), person.getTitle()) || !Objects.equals(old.getOfHisName(), person.getOfHisName())) {
+                titleIndex = null; // Titles and numerals order the succession chains
+            }
+            genealogyGraph.replacePerson(id, person);
+            int statsId = subtreeStats == null ? -1 : subtreeStats.getId(person.getName());
+            if (statsId != -1) {
+                subtreeStats.replacePerson(statsId, person);
+            }
+        }
+    }
+
+    /**
+     * Checks if any new person is the father of somebody already registered.
+     * Such a person cannot be patched in as a leaf.
+     *
+     * @param inserts The people inserted by a reload.
+     * @param current The people registered before the reload.
+     * @return true if a new person has registered children.
+     */
+    private boolean fathersExisting(Person[] inserts, Person[] current) {
+        NameIndex batch = new NameIndex(inserts.length);
+        for (int i = 0; i < inserts.length; i++) {
+            batch.putIfAbsent(HashTable.normalizeName(inserts[i].getName()), i);
+        }
+        for (Person person : current) {
+            if (person.getFather() != null && batch.containsKey(HashTable.normalizeName(person.getFather()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds newly inserted people to the cached subtree statistics, fathers
+     * before their children, in time linear in the number of new people.
+     *
+     * @param inserts The people inserted by a reload.
+     */
+    private void patchSubtreeStats(Person[] inserts) {
+        NameIndex batch = new NameIndex(inserts.length);
+        for (int i = 0; i < inserts.length; i++) {
+            batch.putIfAbsent(HashTable.normalizeName(inserts[i].getName()), i);
+        }
+
+        boolean[] queued = new boolean[inserts.length];
+        int[] chain = new int[inserts.length];
+        for (int i = 0; i < inserts.length; i++) {
+            // Climb through the fathers that are new as well
+            int length = 0;
+            int current = i;
+            while (current != -1 && !queued[current]) {
+                queued[current] = true; // Also stops the climb on cyclic data
+                chain[length++] = current;
+                String father = inserts[current].getFather();
+                current = father == null ? -1 : batch.get(HashTable.normalizeName(father));
+            }
+
+            // Add them from the oldest down, so every father already has an id
+            for (int c = length - 1; c >= 0; c--) {
+                Person person = inserts[chain[c]];
+                String father = HashTable.normalizeName(person.getFather());
+                int fatherId = father == null ? -1 : subtreeStats.getId(father);
+                subtreeStats.addPerson(person, fatherId);
+            }
+        }
+    }
+
     public GenericLinkedList findPersonByName(String nameToSearchFor) {
 //        System.out.println("Table size in Tree: " + table.size());
 //        System.out.println("Name to search for: " + nameToSearchFor);
@@ -340,7 +799,7 @@ public class Tree implements HashTableListener {
                 continue; // Ignorar personas nulas
             }
 //            System.out.println("Buscando coincidencia con: " + person.getName());
-            String personName = normalizeName(getFirstName(person.getName()));
+            String personName = HashTable.normalizeName(getFirstName(person.getName()));
             String mote = person.getNickname();
 
 //            System.out.println("\nPerson Name\n: " + personName);
@@ -389,7 +848,23 @@ public class Tree implements HashTableListener {
      */
     private void addPersonToHashTable(Person person, String fullNameKey, String nicknameKey) {
         if (fullNameKey != null) {
-            table.put(fullNameKey, person);
+            if (subtreeStats == null) {
+                table.put(fullNameKey, person);
+            } else {
+                // Keep the statistics and patch them with the new leaf, unless the
+                // person is already named as the father of registered people
+                boolean patch = !table.containsKey(fullNameKey) && !fathersExisting(new Person[]{person}, table.getAllPeople());
+                patchingStats = patch;
+                try {
+                    table.put(fullNameKey, person);
+                } finally {
+                    patchingStats = false;
+                }
+                if (patch) {
+                    String father = HashTable.normalizeName(person.getFather());
+                    subtreeStats.addPerson(person, father == null ? -1 : subtreeStats.getId(father));
+                }
+            }
         }
 
 //        if (nicknameKey != null) {
@@ -450,192 +925,155 @@ public class Tree implements HashTableListener {
     }
 
     /**
-     * Loads the descent graph starting from the selected father, finding
-     * descendants iteratively. Adds nodes for each descendant and edges between
-     * the father and the descendant.
+     * Creates a graph with the shortest relationship paths between two people.
+     * Only the people on the paths are added, and every edge is labeled with
+     * the relation of its target to its source.
+     *
+     * @param from The name of the first person.
+     * @param to The name of the second person.
+     * @param pathCount The maximum number of paths to show.
+     * @return A Graph object with the relationship paths, empty if the two
+     * people are not related.
+     */
+    public Graph createGraph(String from, String to, int pathCount) {
+
+        Graph graph = new SingleGraph("GenealogyTree");
+
+        // Set graph attributes
+        graph.setAttribute("ui.quality", true);
+        graph.setAttribute("ui.antialias", true);
+
+        loadRelationshipGraph(graph, findRelationships(from, to, pathCount));
+        return graph;
+    }
+
+    /**
+     * Loads the people and relations of the given paths into the graph. Paths
+     * sharing people or relations reuse the same nodes and edges.
+     *
+     * @param graph The graph to add nodes and edges to.
+     * @param paths The relationship paths to draw.
+     */
+    private void loadRelationshipGraph(Graph graph, RelationshipPath[] paths) {
+        for (RelationshipPath path : paths) {
+            String[] names = path.getNames();
+            RelationshipPath.Relation[] relations = path.getRelations();
+            for (int i = 0; i < names.length; i++) {
+                // Add node if it doesn't already exist
+                if (graph.getNode(names[i]) == null) {
+                    graph.addNode(names[i]).setAttribute("ui.label", names[i]);
+                }
+                if (i == 0) {
+                    continue;
+                }
+
+                String edgeId = names[i - 1] + "-" + names[i];
+                String reverseId = names[i] + "-" + names[i - 1];
+                // The same relation may appear in both directions on different paths
+                if (graph.getEdge(edgeId) == null && graph.getEdge(reverseId) == null) {
+                    graph.addEdge(edgeId, names[i - 1], names[i], true)
+                            .setAttribute("ui.label", relations[i - 1].name().toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the descent graph of the selected father: the father and every
+     * descendant, found by walking the child lists of the genealogy graph,
+     * and the father to child edges between them, taken from the same lists
+     * (see {@link #addChildEdges}).
      *
      * @param graph The graph to add nodes and edges to.
      * @param selectedName The name of the father to start the descent search.
      */
     private void loadDescentGraph(Graph graph, String selectedName) {
-        // Set to store unique descendants (no duplicates allowed)
-        GenericSet descendants = new GenericSet();
-
         // Find the selected father in the table
         Person father = table.get(selectedName.trim());
-
-        // Debug message: check if the father is found
         if (father == null) {
             System.out.println("Father is null");
             return; // If father is null, exit the method
         }
         System.out.println("Father found: " + father.getName());
 
-        // Add the father's node to the graph
-        String fatherName = father.getName();
-        if (graph.getNode(fatherName) == null) {
-            try {
-                graph.addNode(fatherName).setAttribute("ui.label", fatherName);
-                System.out.println("Node added: " + fatherName);
-            } catch (Exception e) {
-                System.out.println("Error adding node for father: " + fatherName + " Exception: " + e.getMessage());
-            }
-        } else {
-            System.out.println("Node already exists for father: " + fatherName);
-        }
-
-        // Queue to manage descendants iteratively
-        GenericQueue<Person> queue = new GenericQueue<>();
-        queue.enqueue(father); // Start the search with the selected father
-
-        // Iterate as long as there are elements in the queue
-        while (!queue.isEmpty()) {
-            // Dequeue the next person to process
-            Person current = queue.dequeue();
-            System.out.println("Processing: " + current.getName());
-
-            // Iterate over all people in the table to find children
-            for (Person person : table.getAllPeople()) {
-                // Debug: check if person has a father and if father matches the current person's name
-                if (person.getFather() != null) {
-                    System.out.println("Person: " + person.getName() + ", Father: " + person.getFather());
-
-                    // If the person has the current person as their father, it's a descendant
-                    if (person.getFather().equalsIgnoreCase(current.getName())) {
-                        // Ensure the descendant is not already in the set
-                        if (!descendants.contains(person.getName())) {
-                            // Add the person to the descendants set
-                            descendants.add(person.getName());
-                            System.out.println("Descendant added: " + person.getName());
-
-                            // Enqueue the person to check their descendants
-                            queue.enqueue(person);
-                        }
-                    }
-                } else {
-                    System.out.println("Person " + person.getName() + " has no father.");
-                }
-            }
-        }
-
-        // After all the descendants are processed, create the nodes for the descendants
-        for (String descendant : descendants.toArray()) {
-            String descendantName = descendant;
-
-            // Check if node already exists before adding it to avoid duplicates
-            if (graph.getNode(descendantName) == null) {
-                try {
-                    graph.addNode(descendantName).setAttribute("ui.label", descendantName);
-                    System.out.println("Node added: " + descendantName);
-                } catch (Exception e) {
-                    System.out.println("Error adding node: " + descendantName + " Exception: " + e.getMessage());
-                }
-            } else {
-                System.out.println("Node already exists: " + descendantName);
-            }
+        GenealogyGraph genealogy = getGenealogyGraph();
+        int root = genealogy.getId(father.getName());
+        if (root == -1) {
+            return;
         }
+        int[] descent = genealogy.preOrder(root); // The father first, then every descendant
 
-        // Now that all nodes have been added, we can create the edges based on father-child relationships
-        for (Person person : table.getAllPeople()) {
-            // Check if the person has a father
-            if (person.getFather() != null) {
-                String fatherName2 = person.getFather();
-                String childName = person.getName();
-
-                // Attempt to create an edge between the father and the child
-                String edgeId = fatherName2 + "-" + childName;
-                System.out.println("Attempting to create edge: " + edgeId);
-
-                // Create the edge if it doesn't already exist
-                if (graph.getEdge(edgeId) == null) {
-                    try {
-                        graph.addEdge(edgeId, fatherName2, childName, true); // Directed edge
-                        System.out.println("Edge created: " + edgeId);
-                    } catch (Exception e) {
-                        System.out.println("Error creating edge: " + edgeId + " Exception: " + e.getMessage());
-                    }
-                } else {
-                    System.out.println("Edge already exists: " + edgeId);
-                }
+        // Add a node for the father and each descendant
+        for (int id : descent) {
+            String name = genealogy.getPerson(id).getName();
+            if (graph.getNode(name) == null) {
+                graph.addNode(name).setAttribute("ui.label", name);
             }
         }
+        addChildEdges(graph, genealogy, descent, id -> genealogy.getPerson(id).getName());
     }
 
     /**
-     * Loads a subgraph for a specific generation into the given graph. This
-     * method creates nodes for all members of the specified generation and
-     * connects these nodes with directed edges. If a node or edge already
-     * exists, it is skipped.
-     *
-     * <p>
-     * Steps:</p>
-     * <ol>
-     * <li>Iterates over all persons in the HashTable.</li>
-     * <li>For each person in the specified generation:
-     * <ul>
-     * <li>Adds a node to the graph if it does not already exist.</li>
-     * <li>Connects the new node to previously created nodes in the same
-     * generation using directed edges.</li>
-     * </ul>
-     * </li>
-     * </ol>
+     * Loads the members of a specific generation into the given graph. The
+     * members come from the generation buckets of the genealogy graph instead
+     * of a scan of the register, and no edges are created: members are laid
+     * out in rows, one row per house, so the graph stays linear in the size of
+     * the generation and does not need a force-directed layout.
      *
      * <p>
      * Edge cases:</p>
      * <ul>
-     * <li>If the generation number is invalid (<= 0), the method exits without
-     * modifying the graph.</li> <li>Duplicate nodes and edges are avoided by c
-     * hecking their existence in the graph.</li>
+     * <li>If the generation number is null or out of range, the method exits
+     * without modifying the graph.</li>
      * </ul>
      *
-     * @param graph The Graph object where nodes and edges will be added.
-     * @param generationNumber The generation number to process. Only persons
-     * with this generation will be included in the graph.
+     * @param graph The Graph object where nodes will be added.
+     * @param generationNumber The generation number to display.
      */
     private void loadGenerationMembersGraph(Graph graph, Integer generationNumber) {
-        // List to keep track of previously created nodes for edge creation
-        PersonLinkedList createdNodes = new PersonLinkedList();
-
-        if (generationNumber > 0) {
-            for (Person person : table.getAllPeople()) {
-                if (person.getGeneration().equals(generationNumber)) {
-                    String personName = person.getName();
-
-                    // Add node if it doesn't already exist
-                    if (graph.getNode(personName) == null) {
-                        graph.addNode(personName).setAttribute("ui.label", personName);
-                    }
+        GenealogyGraph genealogy = getGenealogyGraph();
+        if (generationNumber == null) {
+            return;
+        }
+        int size = genealogy.getGenerationSize(generationNumber);
 
-                    // Create edges between the current node and all previously created nodes
-                    for (String existingNode : createdNodes.getAllPersons()) {
-                        String edgeId = existingNode + "-" + personName;
+        NameIndex houseRows = new NameIndex(); // House -> row of the layout
+        int[] rowLength = new int[size + 1]; // Members already placed in each row
 
-                        // Check if the edge already exists
-                        if (graph.getEdge(edgeId) == null) {
-                            // Add the edge with a unique identifier
-                            graph.addEdge(edgeId, existingNode, personName, true); // true for directed edge
-                        }
-                    }
+        for (int i = 0; i < size; i++) {
+            Person person = genealogy.getPerson(genealogy.getGenerationMember(generationNumber, i));
+            String personName = person.getName();
+            if (graph.getNode(personName) != null) {
+                continue;
+            }
 
-                    // Add the current node to the list of created nodes
-                    createdNodes.addString(personName);
-                }
+            // Members of the same house share a row
+            String house = person.getHouse() == null ? "" : person.getHouse();
+            int row = houseRows.get(house);
+            if (row == -1) {
+                row = houseRows.size();
+                houseRows.put(house, row);
             }
+
+            Node node = graph.addNode(personName);
+            node.setAttribute("ui.label", personName);
+            node.setAttribute("xyz", (double) rowLength[row]++, (double) -row, 0.0);
+            node.setAttribute("layout.frozen"); // Keep the row layout when auto layout runs
         }
     }
 
     /**
-     * Loads a graph with nodes representing title holders and ensures that all
-     * nodes are interconnected through edges. If a person is not found in the
-     * hash table, a warning is printed to the console.
+     * Loads a graph with the title holders as a succession chain: each holder
+     * is linked only to the one before them, so the graph grows linearly with
+     * the number of holders. If a person is not found in the hash table, they
+     * are skipped.
      *
      * @param graph The graph where the nodes and edges will be added.
      * @param titleHolders A PersonLinkedList containing the names of title
-     * holders to be added to the graph.
+     * holders in succession order, as returned by getTitleHolders.
      */
     private void loadTitleHoldersGraph(Graph graph, PersonLinkedList titleHolders) {
-        // List to keep track of previously created nodes for edge creation
-        PersonLinkedList createdNodes = new PersonLinkedList();
+        String previousHolder = null; // Last holder added to the chain
 
         for (String personName : titleHolders.getAllPersons()) {
             // Retrieve the person from the hash table
@@ -651,185 +1089,99 @@ public class Tree implements HashTableListener {
                 graph.addNode(personName).setAttribute("ui.label", personName);
             }
 
-            // Create edges between the current node and all previously created nodes
-            for (String existingNode : createdNodes.getAllPersons()) {
-                String edgeId = existingNode + "-" + personName;
-
-                // Ensure the edge does not already exist before adding
+            // Link the holder to their predecessor in the succession
+            if (previousHolder != null && !previousHolder.equals(personName)) {
+                String edgeId = previousHolder + "-" + personName;
                 if (graph.getEdge(edgeId) == null) {
-                    graph.addEdge(edgeId, existingNode, personName);
+                    graph.addEdge(edgeId, previousHolder, personName, true);
                 }
             }
-
-            // Add the current node to the list of created nodes
-            createdNodes.addString(personName);
+            previousHolder = personName;
         }
     }
 
     /**
-     * Loads the forefathers of a specific person into the graph.
+     * Loads the forefathers of a specific person into the graph: the person,
+     * their chain of fathers from the genealogy graph, and the edges between
+     * them.
      *
      * @param personName The name of the person whose forefathers will be
      * loaded.
      * @param graph The Graph object where nodes and edges will be added.
      */
     private void loadForeFathersGraph(String personName, Graph graph) {
-        // Step 1: Find the person in the HashTable
-        Person currentPerson = table.get(personName);
-
-        if (currentPerson == null) {
+        // Find the person in the HashTable
+        Person person = table.get(personName);
+        if (person == null) {
+            return;
+        }
+        GenealogyGraph genealogy = getGenealogyGraph();
+        int id = genealogy.getId(person.getName());
+        if (id == -1) {
             return;
         }
 
-        // Step 2: Traverse the forefathers chain
-        while (currentPerson != null) {
-            String currentName = normalizeName(currentPerson.getName());
-
-            // Add the current person as a node if it doesn't already exist
-            if (graph.getNode(currentName) == null) {
-                graph.addNode(currentName).setAttribute("ui.label", currentPerson.getName());
-            }
-
-            // Get the father's name and search for their record
-            String fatherName = currentPerson.getFather();
-            if (fatherName != null && !fatherName.equalsIgnoreCase("[unknown]")) {
-                String normalizedFatherName = normalizeName(fatherName);
-
-                // Attempt to get the father from the HashTable
-                Person fatherPerson = table.get(normalizedFatherName);
-
-                // If not found, search using getFirstAndLastName and nickname
-                if (fatherPerson == null) {
-                    for (Person person : table.getAllPeople()) {
-                        // Compare by first and last name
-                        if (getFirstAndLastName(normalizeName(person.getName()))
-                                .equals(getFirstAndLastName(normalizedFatherName))) {
-                            fatherPerson = person;
-                            break;
-                        }
-                        // Compare by nickname
-                        if (person.getNickname() != null
-                                && normalizeName(person.getNickname()).equals(normalizedFatherName)) {
-                            fatherPerson = person;
-                            break;
-                        }
-                    }
-                }
-
-                // If a father is found, add them to the graph
-                if (fatherPerson != null) {
-                    String fatherNodeName = normalizeName(fatherPerson.getName());
-                    if (graph.getNode(fatherNodeName) == null) {
-                        graph.addNode(fatherNodeName).setAttribute("ui.label", fatherPerson.getName());
-                    }
-
-                    // Add an edge between the current person and their father
-                    String edgeId = fatherNodeName + "-" + currentName;
-                    if (graph.getEdge(edgeId) == null) {
-                        graph.addEdge(edgeId, fatherNodeName, currentName, true);
-                    }
-
-                    // Move to the father for the next iteration
-                    currentPerson = fatherPerson;
-                } else {
-                    // If no father record is found, terminate the loop
-                    currentPerson = null;
-                }
-            } else {
-                // If father name is unknown, terminate the loop
-                currentPerson = null;
+        // The person followed by their fathers, closest first
+        int[] ancestors = genealogy.ancestors(id);
+        int[] line = new int[ancestors.length + 1];
+        line[0] = id;
+        System.arraycopy(ancestors, 0, line, 1, ancestors.length);
+
+        for (int member : line) {
+            Person current = genealogy.getPerson(member);
+            String nodeName = HashTable.normalizeName(current.getName());
+            if (graph.getNode(nodeName) == null) {
+                graph.addNode(nodeName).setAttribute("ui.label", current.getName());
             }
         }
+        addChildEdges(graph, genealogy, line, member -> HashTable.normalizeName(genealogy.getPerson(member).getName()));
     }
 
     /**
-     * Populates the graph with all individuals and their parental relationships
-     * from the HashTable. This method adds nodes for all people and creates
-     * edges to represent father-child relationships.
-     *
-     * <p>
-     * The process is divided into two main steps:</p>
-     * <ol>
-     * <li>Add all individuals as nodes in the graph.</li>
-     * <li>Add edges to connect children with their respective fathers, ensuring
-     * the relationships are correctly established.</li>
-     * </ol>
-     *
-     * <p>
-     * For each father-child relationship:</p>
-     * <ul>
-     * <li>If the father's node does not already exist, the method searches for
-     * it using either the father's nickname or their first and last names
-     * within the HashTable.</li>
-     * <li>An edge is added only if both the father and child nodes exist in the
-     * graph.</li>
-     * </ul>
+     * Populates the graph with all individuals and their father to child
+     * relationships. Fathers are the ones resolved by the genealogy graph
+     * (full name, then nickname, then first and last name), and every edge
+     * comes from its child lists, so the whole load is linear in the size of
+     * the register.
      *
      * @param graph The Graph object where nodes and edges will be added to
      * represent the lineage of all individuals.
      */
     private void loadAllLineageGraph(Graph graph) {
-        // Step 1: Add all people as nodes
-        {
-            for (Person person : table.getAllPeople()) {
-                String personName = normalizeName(person.getName());
-
-                // Add the node if it does not exist
-                if (graph.getNode(personName) == null) {
-                    graph.addNode(personName).setAttribute("ui.label", person.getName());
-                }
-            }
-        }
+        GenealogyGraph genealogy = getGenealogyGraph();
+        int[] everyone = IntStream.range(0, genealogy.size()).toArray();
 
-        // Print the nicknames of all people in the HashTable (if not null)
-        for (Person person : table.getAllPeople()) {
-            if (person.getNickname() != null) {
+        // Add all people as nodes
+        for (int id : everyone) {
+            Person person = genealogy.getPerson(id);
+            String personName = HashTable.normalizeName(person.getName());
+            if (graph.getNode(personName) == null) {
+                graph.addNode(personName).setAttribute("ui.label", person.getName());
             }
         }
+        addChildEdges(graph, genealogy, everyone, id -> HashTable.normalizeName(genealogy.getPerson(id).getName()));
+    }
 
-        // Step 2: Add edges to connect children with their parents
-        for (Person person : table.getAllPeople()) {
-            String childName = normalizeName(person.getName());
-
-            // Add father-child relationship
-            if (person.getFather() != null && !person.getFather().equalsIgnoreCase("[unknown]")) {
-                String fatherName = normalizeName(person.getFather());
-
-                // Check if father exists in the graph by name or nickname
-                Node fatherNode = graph.getNode(fatherName);
-                if (fatherNode == null && person.getFather() != null) {
-                    for (Person possibleFather : table.getAllPeople()) {
-                        if (possibleFather.getNickname() != null
-                                && normalizeName(possibleFather.getNickname()).equals(fatherName)) {
-                            fatherNode = graph.getNode(normalizeName(possibleFather.getName()));
-                            break;
-                        }
-                    }
-                }
-
-                // Print all nodes currently in the graph
-                for (Node node : graph) {
-                }
-
-                // If still not found, try to match by first and last name
-                if (fatherNode == null) {
-                    for (Node node : graph) {
-                        if (getFirstAndLastName(node.getId()).equals(getFirstAndLastName(fatherName))) {
-                            fatherNode = node;
-                            break;
-                        }
-                    }
-                }
-
-                // Check if both nodes exist in the graph
-                if (fatherNode != null && graph.getNode(childName) != null) {
-                    String edgeId = fatherNode.getId() + "-" + childName;
-                    if (graph.getEdge(edgeId) == null) {
-                        graph.addEdge(edgeId, fatherNode.getId(), childName, true);
-                    }
-                } else {
-
-                }
+    /**
+     * Adds the father to child edges between the given people, exactly the
+     * edges of the subgraph they induce, from
+     * {@link GenealogyGraph#inducedChildEdges(int[])}. Both ends of every edge
+     * are already nodes of the graph, so no edge can fail for a missing node.
+     *
+     * @param graph The graph where the edges are added.
+     * @param genealogy The genealogy graph the ids belong to.
+     * @param ids The ids of the people shown, without repeats.
+     * @param nodeId Maps an id to the id of its node in the graph.
+     */
+    private void addChildEdges(Graph graph, GenealogyGraph genealogy, int[] ids, IntFunction<String> nodeId) {
+        int[] edges = genealogy.inducedChildEdges(ids);
+        for (int i = 0; i < edges.length; i += 2) {
+            String fatherNode = nodeId.apply(edges[i]);
+            String childNode = nodeId.apply(edges[i + 1]);
+            String edgeId = fatherNode + "-" + childNode;
+            // People sharing a name share a node, which must not get a loop or a second edge
+            if (!fatherNode.equals(childNode) && graph.getEdge(edgeId) == null && graph.getEdge(childNode + "-" + fatherNode) == null) {
+                graph.addEdge(edgeId, fatherNode, childNode, true);
             }
         }
     }
@@ -881,7 +1233,7 @@ public class Tree implements HashTableListener {
      * @return The Person object, or null if the person is not found.
      */
     public Person getPerson(String name) {
-        String normalizedFullName = normalizeName(name);  // Normalize the name for comparison
+        String normalizedFullName = HashTable.normalizeName(name);  // Normalize the name for comparison
         return table.get(normalizedFullName);  // Use the HashTable's get method to retrieve the person
     }
 
@@ -902,21 +1254,6 @@ public class Tree implements HashTableListener {
         return parts[0] + " " + parts[1]; // Return the first and second word
     }
 
-    /**
-     * Normalizes a name by standardizing the format for comparison. This method
-     * handles names with commas and other special characters.
-     *
-     * @param name The name to normalize.
-     * @return The normalized name.
-     */
-    private String normalizeName(String name) {
-        if (name == null) {
-            return null;
-        }
-        // Remove commas and extra spaces, then convert to lowercase for consistent comparison
-        return name.trim().replace(",", "").toLowerCase();
-    }
-
     /**
      * Retrieves all persons stored in the genealogy tree.
      *
@@ -4,12 +4,13 @@ import edu.unimet.edd.utils.Person;
 
 /**
  * The TreeNode class represents a person in the genealogy tree. It contains
- * information about the person's name, father, and children.
+ * information about the person's name, father, mother, and children.
  */
 public class TreeNode {
 
     private Person person; // The Person object associated with this node
     private TreeNode father; // The father of the person
+    private TreeNode mother; // The mother of the person, if known
     private GenericLinkedList<TreeNode> children; // The list of children for this person
 
     /**
@@ -42,6 +43,24 @@ public class TreeNode {
         this.father = father;
     }
     
+    /**
+     * Retrieves the mother of the person represented by this node.
+     *
+     * @return the mother of the person, or null if unknown
+     */
+    public TreeNode getMother() {
+        return mother;
+    }
+
+    /**
+     * Sets the mother of the person represented by this node.
+     *
+     * @param mother the mother to set
+     */
+    public void setMother(TreeNode mother) {
+        this.mother = mother;
+    }
+
     /**
      * Retrieves the list of children of the person represented by this node.
      *
@@ -0,0 +1,87 @@
+package edu.unimet.edd.tree;
+
+/**
+ * A single data problem found while validating the genealogy register.
+ */
+public class ValidationIssue {
+
+    /**
+     * The kinds of problems the validator reports.
+     */
+    public enum Type {
+        /**
+         * A group of people that are ancestors of each other.
+         */
+        CYCLE,
+        /**
+         * A person whose "Born to" or "Father to" entries point to themselves.
+         */
+        SELF_PARENT,
+        /**
+         * A "Born to" name that does not match anybody in the register.
+         */
+        UNRESOLVED_FATHER,
+        /**
+         * A "Father to" name that does not match anybody in the register.
+         */
+        DANGLING_CHILD,
+        /**
+         * A person with no parent, no children and no spouse in the register.
+         */
+        ORPHAN,
+        /**
+         * A person with a record in more than one of the files loaded
+         * together.
+         */
+        CONFLICT
+    }
+
+    private final Type type; // The kind of problem
+    private final String personName; // The person the problem was found on
+    private final String detail; // The offending reference or a description
+
+    /**
+     * Constructs a validation issue.
+     *
+     * @param type The kind of problem.
+     * @param personName The name of the person the problem was found on.
+     * @param detail The offending reference or a description of the problem.
+     */
+    public ValidationIssue(Type type, String personName, String detail) {
+        this.type = type;
+        this.personName = personName;
+        this.detail = detail;
+    }
+
+    /**
+     * Retrieves the kind of problem.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the name of the person the problem was found on.
+     *
+     * @return the personName
+     */
+    public String getPersonName() {
+        return personName;
+    }
+
+    /**
+     * Retrieves the offending reference or a description of the problem.
+     *
+     * @return the detail
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return type + ": " + personName + (detail != null ? " (" + detail + ")" : "");
+    }
+}
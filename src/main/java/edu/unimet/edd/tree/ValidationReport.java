@@ -0,0 +1,111 @@
+package edu.unimet.edd.tree;
+
+/**
+ * The structured result of validating the genealogy register. Issues are
+ * grouped by type so each category can be counted or listed on its own.
+ */
+public class ValidationReport {
+
+    private final GenericLinkedList<ValidationIssue> cycles = new GenericLinkedList<>();
+    private final GenericLinkedList<ValidationIssue> selfParents = new GenericLinkedList<>();
+    private final GenericLinkedList<ValidationIssue> unresolvedFathers = new GenericLinkedList<>();
+    private final GenericLinkedList<ValidationIssue> danglingChildren = new GenericLinkedList<>();
+    private final GenericLinkedList<ValidationIssue> orphans = new GenericLinkedList<>();
+    private final GenericLinkedList<ValidationIssue> conflicts = new GenericLinkedList<>();
+
+    /**
+     * Adds an issue to the list matching its type.
+     *
+     * @param issue The issue to add.
+     */
+    public void add(ValidationIssue issue) {
+        getIssues(issue.getType()).add(issue);
+    }
+
+    /**
+     * Retrieves the issues of a given type.
+     *
+     * @param type The type of issue.
+     * @return The list of issues of that type.
+     */
+    public GenericLinkedList<ValidationIssue> getIssues(ValidationIssue.Type type) {
+        switch (type) {
+            case CYCLE:
+                return cycles;
+            case SELF_PARENT:
+                return selfParents;
+            case UNRESOLVED_FATHER:
+                return unresolvedFathers;
+            case DANGLING_CHILD:
+                return danglingChildren;
+            case CONFLICT:
+                return conflicts;
+            default:
+                return orphans;
+        }
+    }
+
+    /**
+     * Get the number of issues of a given type.
+     *
+     * @param type The type of issue.
+     * @return The number of issues of that type.
+     */
+    public int count(ValidationIssue.Type type) {
+        return getIssues(type).getSize();
+    }
+
+    /**
+     * Get the total number of issues in the report.
+     *
+     * @return The number of issues.
+     */
+    public int size() {
+        int total = 0;
+        for (ValidationIssue.Type type : ValidationIssue.Type.values()) {
+            total += count(type);
+        }
+        return total;
+    }
+
+    /**
+     * Checks if the register passed validation without issues.
+     *
+     * @return true if no issues were found, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Builds a short summary with the number of issues of each type.
+     *
+     * @return The summary text.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Validation found ").append(size()).append(" issue(s):\n");
+        summary.append("Cycles: ").append(count(ValidationIssue.Type.CYCLE)).append("\n");
+        summary.append("Self-parenting records: ").append(count(ValidationIssue.Type.SELF_PARENT)).append("\n");
+        summary.append("Unresolved fathers: ").append(count(ValidationIssue.Type.UNRESOLVED_FATHER)).append("\n");
+        summary.append("Dangling \"Father to\" names: ").append(count(ValidationIssue.Type.DANGLING_CHILD)).append("\n");
+        summary.append("Orphans: ").append(count(ValidationIssue.Type.ORPHAN));
+        if (count(ValidationIssue.Type.CONFLICT) > 0) {
+            summary.append("\nPeople in more than one file: ").append(count(ValidationIssue.Type.CONFLICT));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(getSummary());
+        for (ValidationIssue.Type type : ValidationIssue.Type.values()) {
+            GenericNode<ValidationIssue> current = getIssues(type).getFirst();
+            while (current != null) {
+                text.append("\n").append(current.getData());
+                current = current.getNext();
+            }
+        }
+        return text.toString();
+    }
+}
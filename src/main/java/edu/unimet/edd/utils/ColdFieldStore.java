@@ -0,0 +1,285 @@
+package edu.unimet.edd.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An append-only side file holding the rarely read details of people: Fate,
+ * Notes, eye and hair color and spouse. In the memory-budget mode of
+ * {@link GenealogyLoader}, every person registered by a load has these
+ * fields written here and dropped from the heap; the Person keeps only the
+ * offset of its record, and its getters read the record back when needed.
+ * The hot fields (name, father, nickname, title, generation) stay in memory.
+ * <p>
+ * Each record is a length followed by the five fields, each written as a
+ * length (-1 for null) and its UTF-8 bytes. Records are never rewritten, so
+ * people still registered from an earlier load keep valid offsets; the file
+ * only grows until the store is closed, which deletes it.
+ * </p>
+ * <p>
+ * The last cacheSize records read are kept decoded in a small LRU cache, so
+ * showing the same people again does not touch the file.
+ * </p>
+ */
+public class ColdFieldStore implements Closeable {
+
+    /**
+     * The default number of decoded records kept in the cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    static final int FATE = 0; // Index of each field in a record
+    static final int NOTES = 1;
+    static final int EYES_COLOR = 2;
+    static final int HAIR_COLOR = 3;
+    static final int WED_TO = 4;
+    private static final int FIELD_COUNT = 5; // Fields in every record
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024; // Bytes gathered before a write
+
+    private final Path file; // The side file, deleted on close
+    private final FileChannel channel; // Channel used for appends and reads
+    private long size; // Bytes written so far, the offset of the next record
+    private final long[] cachedOffsets; // Offset of each cached record, -1 for a free slot
+    private final String[][] cachedRecords; // Decoded fields of each cached record
+    private final long[] lastUse; // When each cached record was last read
+    private long clock; // Increases on every read, to find the least recently used record
+    private long hits; // Reads served by the cache
+    private long misses; // Reads that went to the file
+
+    /**
+     * Creates a store in a new temporary file.
+     *
+     * @param cacheSize The number of decoded records kept in the cache.
+     * @throws IOException If the file cannot be created.
+     */
+    public ColdFieldStore(int cacheSize) throws IOException {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one record");
+        }
+        this.file = Files.createTempFile("genealogy-cold", ".bin");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        this.cachedOffsets = new long[cacheSize];
+        this.cachedRecords = new String[cacheSize][];
+        this.lastUse = new long[cacheSize];
+        Arrays.fill(cachedOffsets, -1);
+    }
+
+    /**
+     * Moves the cold fields of several people into the store, in one pass of
+     * buffered writes. People without any cold field, or already moved, are
+     * left as they are.
+     *
+     * @param people The people to move.
+     * @return The number of records written.
+     */
+    public synchronized int spill(Person[] people) {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        int written = 0;
+        try {
+            for (Person person : people) {
+                if (person == null || person.hasSpilledFields()) {
+                    continue;
+                }
+                String[] fields = {person.getFate(), person.getNotes(), person.getEyesColor(), person.getHairColor(), person.getWedTo()};
+                byte[] record = encode(fields);
+                if (record == null) {
+                    continue; // Nothing to move
+                }
+                if (buffer.remaining() < Integer.BYTES + record.length) {
+                    flush(buffer);
+                    if (buffer.capacity() < Integer.BYTES + record.length) {
+                        buffer = ByteBuffer.allocate(Integer.BYTES + record.length); // A record larger than the buffer
+                    }
+                }
+                long offset = size + buffer.position();
+                buffer.putInt(record.length).put(record);
+                person.moveColdFields(this, offset);
+                written++;
+            }
+            flush(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the cold field store", e);
+        }
+        return written;
+    }
+
+    /**
+     * Reads one field of a record, from the cache if it was read recently.
+     *
+     * @param offset The offset of the record.
+     * @param field The index of the field, for example FATE.
+     * @return The value of the field, possibly null.
+     */
+    synchronized String read(long offset, int field) {
+        clock++;
+        int free = 0;
+        for (int i = 0; i < cachedOffsets.length; i++) {
+            if (cachedOffsets[i] == offset) {
+                hits++;
+                lastUse[i] = clock;
+                return cachedRecords[i][field];
+            }
+            if (lastUse[i] < lastUse[free]) {
+                free = i; // The least recently used slot, or a free one
+            }
+        }
+
+        misses++;
+        String[] record;
+        try {
+            record = load(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the cold field store", e);
+        }
+        cachedOffsets[free] = offset;
+        cachedRecords[free] = record;
+        lastUse[free] = clock;
+        return record[field];
+    }
+
+    /**
+     * Get the side file.
+     *
+     * @return The path of the temporary file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Get the size of the side file.
+     *
+     * @return The bytes written so far.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of reads served by the cache.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of reads that went to the side file.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Closes and deletes the side file. People whose fields were moved here
+     * can no longer read them.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cold field store: %.1f MB, cache %d hits / %d misses", getSize() / (1024.0 * 1024.0), getHits(), getMisses());
+    }
+
+    /**
+     * Encodes the cold fields of a person into a record body.
+     *
+     * @param fields The values of the fields.
+     * @return The body, or null if every field is null.
+     */
+    private static byte[] encode(String[] fields) {
+        byte[][] values = new byte[FIELD_COUNT][];
+        int length = 0;
+        boolean any = false;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (fields[i] != null) {
+                values[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+                length += values[i].length;
+                any = true;
+            }
+            length += Integer.BYTES;
+        }
+        if (!any) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        for (byte[] value : values) {
+            body.putInt(value == null ? -1 : value.length);
+            if (value != null) {
+                body.put(value);
+            }
+        }
+        return body.array();
+    }
+
+    /**
+     * Reads and decodes a record from the side file.
+     *
+     * @param offset The offset of the record.
+     * @return The values of its fields.
+     * @throws IOException If the file cannot be read.
+     */
+    private String[] load(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        readFully(header, offset);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(body, offset + Integer.BYTES);
+        body.flip();
+
+        String[] fields = new String[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            int length = body.getInt();
+            if (length >= 0) {
+                fields[i] = new String(body.array(), body.position(), length, StandardCharsets.UTF_8);
+                body.position(body.position() + length);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Fills a buffer from the side file.
+     *
+     * @param buffer The buffer to fill.
+     * @param position The offset to read from.
+     * @throws IOException If the file ends before the buffer is full.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) {
+                throw new IOException("Cold field record at " + position + " is cut short");
+            }
+        }
+    }
+
+    /**
+     * Appends the buffered records to the side file and empties the buffer.
+     *
+     * @param buffer The buffer with the records.
+     * @throws IOException If the file cannot be written.
+     */
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer, size);
+        }
+        buffer.clear();
+    }
+}
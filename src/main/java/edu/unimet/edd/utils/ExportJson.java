@@ -0,0 +1,273 @@
+package edu.unimet.edd.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import edu.unimet.edd.hash.NameIndex;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class to write the register back out as JSON, in the same formats
+ * {@link LoadJson} reads: the nested house format, or NDJSON with one person
+ * per line.
+ * <p>
+ * Every record is written token by token with a Jackson JsonGenerator over a
+ * buffered writer, so the document is never built in memory. The only extra
+ * memory is two int arrays used to group the people by house, which is what
+ * lets a million-person register be exported in bounded memory.
+ * </p>
+ */
+public class ExportJson {
+
+    /**
+     * The layouts the register can be written in.
+     */
+    public enum Format {
+        /**
+         * An object mapping each house to the array of its members.
+         */
+        HOUSES,
+        /**
+         * One member object per line, each with a "House" field.
+         */
+        NDJSON
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(); // Thread-safe, shared by every export
+    private static final int BUFFER_SIZE = 64 * 1024; // Characters buffered before each write
+    private static final String NO_HOUSE = "[Unknown]"; // House written for people without one
+    private static final String NO_PARENT = "[Unknown]"; // Father written before a mother when he is missing
+
+    /**
+     * Exports the register to a file. The format follows the file name: NDJSON
+     * for ".ndjson" and ".jsonl", the house format otherwise; a ".gz" suffix
+     * compresses the output with gzip.
+     *
+     * @param file The file to write.
+     * @param people The people of the register, taken while nobody edits it.
+     * @return The number of people written.
+     * @throws IOException If the file cannot be written.
+     */
+    public int exportGenealogy(Path file, Person[] people) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        Format format = LoadJson.isNdjsonFileName(name) ? Format.NDJSON : Format.HOUSES;
+        try (OutputStream output = Files.newOutputStream(file)) {
+            if (!name.endsWith(".gz")) {
+                return exportGenealogy(output, people, format);
+            }
+            try (GZIPOutputStream compressed = new GZIPOutputStream(output, BUFFER_SIZE)) {
+                return exportGenealogy(compressed, people, format);
+            }
+        }
+    }
+
+    /**
+     * Exports the register to a stream, encoded in UTF-8. The stream is
+     * flushed but not closed.
+     *
+     * @param output The stream to write to.
+     * @param people The people of the register, taken while nobody edits it.
+     * @param format The layout to write.
+     * @return The number of people written.
+     * @throws IOException If the stream cannot be written.
+     */
+    public int exportGenealogy(OutputStream output, Person[] people, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // The caller owns the stream
+
+        if (format == Format.NDJSON) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            for (Person person : people) {
+                generator.writeStartObject();
+                generator.writeStringField(LoadJson.HOUSE_FIELD, houseOf(person));
+                writeMember(generator, person);
+                generator.writeEndObject();
+            }
+            generator.writeRaw('\n'); // Terminate the last line
+        } else {
+            writeHouses(generator, people);
+        }
+        generator.close(); // Flushes the writer without closing the stream
+        writer.flush();
+        return people.length;
+    }
+
+    /**
+     * Writes the house format: the people are grouped by house with a
+     * counting sort over house ids, keeping the register order inside each
+     * house, and every house is written as one array.
+     *
+     * @param generator The generator to write to.
+     * @param people The people of the register.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeHouses(JsonGenerator generator, Person[] people) throws IOException {
+        // Assign house ids in order of first appearance
+        NameIndex houseIndex = new NameIndex();
+        int[] houseOf = new int[people.length];
+        String[] houses = new String[16];
+        int[] counts = new int[16];
+        int houseCount = 0;
+        for (int i = 0; i < people.length; i++) {
+            String house = houseOf(people[i]);
+            int id = houseIndex.get(house);
+            if (id == -1) {
+                if (houseCount == houses.length) {
+                    houses = grow(houses);
+                    counts = grow(counts);
+                }
+                id = houseCount++;
+                houseIndex.put(house, id);
+                houses[id] = house;
+            }
+            houseOf[i] = id;
+            counts[id]++;
+        }
+
+        // Bucket the people by house
+        int[] offsets = new int[houseCount + 1];
+        for (int h = 0; h < houseCount; h++) {
+            offsets[h + 1] = offsets[h] + counts[h];
+        }
+        int[] members = new int[people.length];
+        int[] cursor = new int[houseCount];
+        for (int i = 0; i < people.length; i++) {
+            members[offsets[houseOf[i]] + cursor[houseOf[i]]++] = i;
+        }
+
+        generator.writeStartObject();
+        for (int h = 0; h < houseCount; h++) {
+            generator.writeArrayFieldStart(houses[h]);
+            for (int m = offsets[h]; m < offsets[h + 1]; m++) {
+                generator.writeStartObject();
+                writeMember(generator, people[members[m]]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a person as the field of a member object: the name mapped to the
+     * array of their details, each detail a single-key object as in the input.
+     *
+     * @param generator The generator, inside the member object.
+     * @param person The person to write.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeMember(JsonGenerator generator, Person person) throws IOException {
+        generator.writeArrayFieldStart(getBaseName(person));
+        // The second "Born to" is the mother, so a mother without a father
+        // is written after an unknown father to load back as the mother
+        String father = person.getFather();
+        if (father == null && person.getMother() != null) {
+            father = NO_PARENT;
+        }
+        writeDetail(generator, "Born to", father);
+        writeDetail(generator, "Born to", person.getMother());
+        writeDetail(generator, "Known throughout as", person.getNickname());
+        writeDetail(generator, "Held title", person.getTitle());
+        writeDetail(generator, "Of his name", person.getOfHisName());
+        writeDetail(generator, "Wed to", person.getWedTo());
+        writeDetail(generator, "Of eyes", person.getEyesColor());
+        writeDetail(generator, "Of hair", person.getHairColor());
+
+        PersonLinkedList children = person.getChildren();
+        if (children != null && children.size() > 0) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("Father to");
+            PersonLinkedList.LinkedListIterator iterator = children.iterator();
+            while (iterator.hasNext()) {
+                generator.writeString(iterator.next());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        writeDetail(generator, "Fate", person.getFate());
+        writeDetail(generator, "Notes", person.getNotes());
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes one single-key detail object, unless the value is missing.
+     *
+     * @param generator The generator, inside the details array.
+     * @param key The name of the detail.
+     * @param value The value, or null to write nothing.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeDetail(JsonGenerator generator, String key, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeStringField(key, value);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Get the name to write for a person. Registered names carry the "Of his
+     * name" suffix the loader appends, so it is removed here to let the file
+     * load back to the same name.
+     *
+     * @param person The person.
+     * @return The name without the "Of his name" suffix.
+     */
+    private String getBaseName(Person person) {
+        String name = person.getName();
+        String ofHisName = person.getOfHisName();
+        if (name == null || ofHisName == null || ofHisName.isEmpty()) {
+            return name;
+        }
+        String suffix = " " + ofHisName.toLowerCase() + " of his name";
+        if (name.toLowerCase().endsWith(suffix)) {
+            return name.substring(0, name.length() - suffix.length());
+        }
+        return name;
+    }
+
+    /**
+     * Get the house to write for a person.
+     *
+     * @param person The person.
+     * @return The house, or NO_HOUSE if it is unknown.
+     */
+    private String houseOf(Person person) {
+        return person.getHouse() != null ? person.getHouse() : NO_HOUSE;
+    }
+
+    /**
+     * Doubles the length of an array of house names.
+     *
+     * @param source The array to grow.
+     * @return A larger copy.
+     */
+    private static String[] grow(String[] source) {
+        String[] larger = new String[source.length * 2];
+        System.arraycopy(source, 0, larger, 0, source.length);
+        return larger;
+    }
+
+    /**
+     * Doubles the length of an array of counts.
+     *
+     * @param source The array to grow.
+     * @return A larger copy.
+     */
+    private static int[] grow(int[] source) {
+        int[] larger = new int[source.length * 2];
+        System.arraycopy(source, 0, larger, 0, source.length);
+        return larger;
+    }
+}
@@ -0,0 +1,371 @@
+package edu.unimet.edd.utils;
+
+import edu.unimet.edd.listeners.LoadCompletionListener;
+import edu.unimet.edd.listeners.LoadProgressListener;
+import edu.unimet.edd.tree.GenericLinkedList;
+import edu.unimet.edd.tree.GenericNode;
+import edu.unimet.edd.tree.RegisterStaging;
+import edu.unimet.edd.tree.ValidationReport;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loads genealogy files in the background, so the Swing event dispatch thread
+ * never reads, parses or resolves anything and the window stays responsive.
+ * <p>
+ * Each load runs on its own virtual thread. Files go through the stages of
+ * an {@link IngestPipeline}, whose counters are reset at the start of every
+ * load so {@link #getPipeline()} reports on the last one. Several files, such
+ * as one file per house or per archive version, can be loaded together: each
+ * file is staged into its own {@link RegisterStaging} on a virtual thread of its own,
+ * with at most MAX_CONCURRENT_FILES files read at a time. The staging areas
+ * are then merged in the given order, reporting people found in more than one
+ * file, and resolved against an empty register. Only the finished array of
+ * people is handed to the {@link LoadCompletionListener}; the register itself
+ * is never modified here, so the caller can publish the new people in one
+ * step (see {@link IngestPipeline#index}) or drop them if the load was
+ * cancelled in the meantime.
+ * </p>
+ * <p>
+ * Cancelling interrupts the loading threads; the parser checks the interrupt
+ * status after every person record.
+ * </p>
+ * <p>
+ * In lenient mode, malformed records are skipped instead of failing the
+ * load, and the errors of every file are handed over in one
+ * {@link ParseReport}.
+ * </p>
+ */
+public class GenealogyLoader implements Closeable {
+
+    /**
+     * The largest number of files parsed at the same time.
+     */
+    public static final int MAX_CONCURRENT_FILES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final IngestPipeline pipeline; // Stages every load goes through
+    private Thread worker; // Thread of the running load, null before the first one
+    private volatile boolean lenient; // True to skip malformed records instead of failing
+    private ColdFieldStore coldStore; // Side file of the memory-budget mode, created when first enabled
+
+    /**
+     * Constructs an idle loader.
+     */
+    public GenealogyLoader() {
+        this.pipeline = new IngestPipeline();
+    }
+
+    /**
+     * Starts loading a genealogy file on a new virtual thread. Only one load
+     * can run at a time.
+     *
+     * @param file The JSON file with the genealogy data.
+     * @param progress Receives progress reports, or null for none.
+     * @param completion Receives the outcome of the load.
+     * @return True if the load was started, false if another one is running.
+     */
+    public boolean load(Path file, LoadProgressListener progress, LoadCompletionListener completion) {
+        return load(new Path[]{file}, progress, completion);
+    }
+
+    /**
+     * Starts loading several genealogy files into one register on a new
+     * virtual thread. Only one load can run at a time.
+     *
+     * @param files The JSON files, in the order their records take precedence.
+     * @param progress Receives progress reports for all the files together, or
+     * null for none.
+     * @param completion Receives the outcome of the load.
+     * @return True if the load was started, false if another one is running.
+     */
+    public synchronized boolean load(Path[] files, LoadProgressListener progress, LoadCompletionListener completion) {
+        if (isLoading()) {
+            return false;
+        }
+        Path[] copy = files.clone();
+        worker = Thread.ofVirtual().name("genealogy-loader").start(() -> run(copy, progress, completion));
+        return true;
+    }
+
+    /**
+     * Get the pipeline the loads go through, to publish their result with
+     * its index stage and to read the counters of the last load.
+     *
+     * @return The pipeline.
+     */
+    public IngestPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Chooses between strict and lenient parsing for the next loads. A strict
+     * load fails at the first content that is not valid JSON; a lenient one
+     * skips malformed records and reports them on completion.
+     *
+     * @param lenient True to skip malformed records.
+     */
+    public void setLenient(boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    /**
+     * Checks whether loads skip malformed records.
+     *
+     * @return True in lenient mode.
+     */
+    public boolean isLenient() {
+        return lenient;
+    }
+
+    /**
+     * Chooses whether the next loads leave Fate and Notes in uncompressed
+     * files, decoding them only when a person's details are shown. This saves
+     * memory on registers with a lot of text, but the files must not be
+     * edited while they are loaded.
+     *
+     * @param lazyDetails True to read Fate and Notes on demand.
+     */
+    public void setLazyDetails(boolean lazyDetails) {
+        pipeline.setLazyDetails(lazyDetails);
+    }
+
+    /**
+     * Checks whether loads leave Fate and Notes in the files.
+     *
+     * @return True if they are read on demand.
+     */
+    public boolean isLazyDetails() {
+        return pipeline.isLazyDetails();
+    }
+
+    /**
+     * Turns the memory-budget mode on or off for the next loads. In this
+     * mode, Fate, Notes, eye and hair color and spouse of every person
+     * registered are moved to a {@link ColdFieldStore} and read back through
+     * the Person getters; names, fathers, nicknames, titles and generations
+     * stay in memory. The store is kept when the mode is turned off, since
+     * the people already registered still read from it, until the loader is
+     * closed.
+     *
+     * @param spill True to move the cold fields out of memory.
+     * @throws IOException If the side file cannot be created.
+     */
+    public synchronized void setSpillColdFields(boolean spill) throws IOException {
+        if (spill && coldStore == null) {
+            coldStore = new ColdFieldStore(ColdFieldStore.DEFAULT_CACHE_SIZE);
+        }
+        pipeline.setColdFieldStore(spill ? coldStore : null);
+    }
+
+    /**
+     * Checks whether the memory-budget mode is on.
+     *
+     * @return True if the cold fields of new people are moved out of memory.
+     */
+    public boolean isSpillColdFields() {
+        return pipeline.getColdFieldStore() != null;
+    }
+
+    /**
+     * Lists the genealogy files of a directory: every regular file whose name
+     * ends in ".json", ".ndjson" or ".jsonl", optionally followed by ".gz",
+     * sorted by name so loads are repeatable.
+     *
+     * @param directory The directory to list.
+     * @return The files found, possibly none.
+     * @throws IOException If the directory cannot be read.
+     */
+    public static Path[] listGenealogyFiles(Path directory) throws IOException {
+        GenericLinkedList<Path> found = new GenericLinkedList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && LoadJson.isGenealogyFileName(entry.getFileName().toString())) {
+                    found.add(entry);
+                }
+            }
+        }
+
+        Path[] files = new Path[found.getSize()];
+        GenericNode<Path> node = found.getFirst();
+        for (int i = 0; node != null; i++, node = node.getNext()) {
+            files[i] = node.getData();
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Cancels the running load, if any. Its completion listener is told with
+     * onLoadCancelled unless the load had already finished.
+     *
+     * @return True if a running load was asked to stop.
+     */
+    public synchronized boolean cancel() {
+        if (!isLoading()) {
+            return false;
+        }
+        worker.interrupt();
+        return true;
+    }
+
+    /**
+     * Cancels the running load, if any, and closes the cold field store,
+     * which deletes its side file. People registered in memory-budget mode
+     * can no longer read their cold fields afterwards, so the loader is
+     * meant to be closed with the register, for example when the window
+     * closes.
+     *
+     * @throws IOException If the side file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        cancel();
+        pipeline.setColdFieldStore(null);
+        if (coldStore != null) {
+            coldStore.close();
+            coldStore = null;
+        }
+    }
+
+    /**
+     * Checks whether a load is running.
+     *
+     * @return True while a load has not finished.
+     */
+    public synchronized boolean isLoading() {
+        return worker != null && worker.isAlive();
+    }
+
+    /**
+     * Body of the loading thread: parses every file with bounded parallelism,
+     * merges and resolves them, and reports the outcome.
+     *
+     * @param files The JSON files with the genealogy data.
+     * @param progress Receives progress reports, or null for none.
+     * @param completion Receives the outcome of the load.
+     */
+    private void run(Path[] files, LoadProgressListener progress, LoadCompletionListener completion) {
+        RegisterStaging[] parts = new RegisterStaging[files.length];
+        ParseReport[] parseErrors = new ParseReport[files.length];
+        Exception[] errors = new Exception[files.length];
+        Thread[] readers = new Thread[files.length];
+        ProgressTotals totals = new ProgressTotals(files, progress);
+        pipeline.reset();
+
+        // Phase 1: parse each file into its own staging area, a few at a time
+        Semaphore permits = new Semaphore(MAX_CONCURRENT_FILES);
+        try {
+            for (int i = 0; i < files.length; i++) {
+                permits.acquire();
+                int index = i;
+                parseErrors[i] = lenient ? new ParseReport() : null;
+                readers[i] = Thread.ofVirtual().name("genealogy-loader-" + i).start(() -> {
+                    try {
+                        parts[index] = pipeline.stage(files[index], progress == null ? null
+                                : (bytesRead, totalBytes, peopleParsed, linksResolved) -> totals.update(index, bytesRead, peopleParsed),
+                                parseErrors[index]);
+                    } catch (IOException | RuntimeException e) {
+                        errors[index] = e;
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread reader : readers) {
+                if (reader != null) {
+                    reader.interrupt(); // Stop the files still being read
+                }
+            }
+            completion.onLoadCancelled();
+            return;
+        }
+
+        // A single unreadable file fails the whole load
+        for (int i = 0; i < files.length; i++) {
+            if (errors[i] != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    completion.onLoadCancelled();
+                } else {
+                    completion.onLoadFailed(new IOException("Failed to load " + files[i].getFileName(), errors[i]));
+                }
+                return;
+            }
+        }
+
+        // Phase 2: merge the files in order, then resolve against an empty register
+        String[] sources = new String[files.length];
+        ParseReport skipped = new ParseReport();
+        for (int i = 0; i < files.length; i++) {
+            sources[i] = files[i].getFileName().toString();
+            if (parseErrors[i] != null) {
+                skipped.addAll(parseErrors[i], sources[i]);
+            }
+        }
+        ValidationReport conflicts = new ValidationReport();
+        RegisterStaging staging = RegisterStaging.merge(parts, sources, conflicts);
+        Person[] people = pipeline.resolve(staging, new Person[0], progress == null ? null
+                : links -> progress.onLoadProgress(totals.totalBytes, totals.totalBytes, staging.size(), links));
+        if (Thread.currentThread().isInterrupted()) {
+            completion.onLoadCancelled();
+            return;
+        }
+        completion.onLoadCompleted(people, staging.size(), conflicts, skipped);
+    }
+
+    /**
+     * Adds up the progress reports of the files read at the same time into a
+     * single report for the whole load.
+     */
+    private static class ProgressTotals {
+
+        private final LoadProgressListener progress; // Receives the combined reports
+        private final long totalBytes; // Size of all the files together
+        private final long[] bytesRead; // Bytes read so far, per file
+        private final int[] peopleParsed; // Person records parsed so far, per file
+
+        /**
+         * Constructs the totals for a load.
+         *
+         * @param files The files of the load.
+         * @param progress Receives the combined reports, or null for none.
+         */
+        ProgressTotals(Path[] files, LoadProgressListener progress) {
+            this.progress = progress;
+            this.bytesRead = new long[files.length];
+            this.peopleParsed = new int[files.length];
+            long total = 0;
+            for (Path file : files) {
+                total += file.toFile().length();
+            }
+            this.totalBytes = total;
+        }
+
+        /**
+         * Records the progress of one file and reports the combined progress.
+         *
+         * @param file The index of the file.
+         * @param bytes The bytes of that file read so far.
+         * @param people The person records of that file parsed so far.
+         */
+        synchronized void update(int file, long bytes, int people) {
+            bytesRead[file] = bytes;
+            peopleParsed[file] = people;
+            long allBytes = 0;
+            int allPeople = 0;
+            for (int i = 0; i < bytesRead.length; i++) {
+                allBytes += bytesRead[i];
+                allPeople += peopleParsed[i];
+            }
+            progress.onLoadProgress(allBytes, totalBytes, allPeople, 0);
+        }
+    }
+}
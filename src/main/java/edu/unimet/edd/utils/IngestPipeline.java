@@ -0,0 +1,1036 @@
+package edu.unimet.edd.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import edu.unimet.edd.listeners.LoadProgressListener;
+import edu.unimet.edd.tree.GenericLinkedList;
+import edu.unimet.edd.tree.GenericNode;
+import edu.unimet.edd.tree.RegisterDiff;
+import edu.unimet.edd.tree.RegisterStaging;
+import edu.unimet.edd.tree.Tree;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads a genealogy file through explicit stages connected by bounded
+ * queues, so reading, parsing and normalizing overlap and each stage can be
+ * measured on its own:
+ * <ol>
+ * <li><b>read</b> (one worker): reads the file, decompressing gzip, and cuts
+ * it into blocks of about blockSize bytes at record boundaries: between two
+ * members of a house, or after a newline for NDJSON. The cut only tracks
+ * brackets and strings, it does not decode anything.</li>
+ * <li><b>parse</b> (parseWorkers): turns each block into person records and
+ * child stubs, leaving the names as written.</li>
+ * <li><b>normalize</b> (normalizeWorkers): normalizes the names of the
+ * records.</li>
+ * <li><b>resolve</b> (one worker): stages the blocks in file order as they
+ * arrive, then resolves fathers and duplicates once the input ends (see
+ * {@link RegisterStaging}).</li>
+ * <li><b>index</b> (one worker): publishes the resolved people into the
+ * register, applying only what changed (see Tree.reload).</li>
+ * </ol>
+ * <p>
+ * The queues hold at most queueCapacity blocks, so a fast stage blocks when
+ * the next one falls behind instead of filling the memory. The read stage
+ * also takes a permit for every block it hands over, given back once the
+ * block is staged, so at most (3 queueCapacity + workers) blocks are in
+ * flight even while the resolve stage holds blocks that overtook a slow one.
+ * Resolve and index need every record, so they run after the other stages
+ * drain; their counters still show how long they take.
+ * </p>
+ * <p>
+ * Every stage has its own {@link StageCounters}, shared by all its workers;
+ * {@link #getReport()} lists them and names the bottleneck. The result is
+ * the same as a load through {@link LoadJson}, including lenient mode.
+ * </p>
+ */
+public class IngestPipeline {
+
+    /**
+     * The default size of the blocks the read stage hands to the parsers.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(); // Decodes escaped house names
+    private static final int READ_BUFFER_SIZE = 64 * 1024; // Bytes read from the file at a time
+    private static final long POLL_INTERVAL_MS = 50; // How often the resolve stage checks for failed workers
+    private static final Block END = new Block(-1, null, null, 0, 0); // Tells a worker its input is over
+
+    private final LoadJson loadJson; // Parser that leaves normalization to its own stage
+    private final LoadJson lazyLoadJson; // The same parser, leaving Fate and Notes in the file
+    private final int parseWorkers; // Workers of the parse stage
+    private final int normalizeWorkers; // Workers of the normalize stage
+    private final int queueCapacity; // Blocks each queue holds before its producers wait
+    private final int blockSize; // Target size of a block in bytes
+    private final StageCounters read = new StageCounters("read");
+    private final StageCounters parse = new StageCounters("parse");
+    private final StageCounters normalize = new StageCounters("normalize");
+    private final StageCounters resolve = new StageCounters("resolve");
+    private final StageCounters index = new StageCounters("index");
+    private volatile boolean lazyDetails; // True to leave Fate and Notes in uncompressed files
+    private volatile ColdFieldStore coldStore; // Receives the cold fields of indexed people, null to keep them
+
+    /**
+     * Constructs a pipeline sized for this machine: one parse worker per
+     * processor, one normalize worker per four, and queues of two blocks per
+     * parse worker.
+     */
+    public IngestPipeline() {
+        this(Runtime.getRuntime().availableProcessors(), Math.max(1, Runtime.getRuntime().availableProcessors() / 4),
+                2 * Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param parseWorkers The number of parse workers.
+     * @param normalizeWorkers The number of normalize workers.
+     * @param queueCapacity The number of blocks each queue holds.
+     * @param blockSize The target size of a block in bytes.
+     */
+    public IngestPipeline(int parseWorkers, int normalizeWorkers, int queueCapacity, int blockSize) {
+        if (parseWorkers < 1 || normalizeWorkers < 1 || queueCapacity < 1 || blockSize < 1) {
+            throw new IllegalArgumentException("Worker counts, queue capacity and block size must be positive");
+        }
+        this.loadJson = new LoadJson(true, false);
+        this.lazyLoadJson = new LoadJson(true, true);
+        this.parseWorkers = parseWorkers;
+        this.normalizeWorkers = normalizeWorkers;
+        this.queueCapacity = queueCapacity;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Sets whether the long details of every person, Fate and Notes, are left
+     * in uncompressed files and decoded on demand (see
+     * {@link LoadJson#LoadJson(boolean)}).
+     *
+     * @param lazyDetails True to read Fate and Notes on demand.
+     */
+    public void setLazyDetails(boolean lazyDetails) {
+        this.lazyDetails = lazyDetails;
+    }
+
+    /**
+     * Checks if Fate and Notes are left in uncompressed files.
+     *
+     * @return true if they are read on demand.
+     */
+    public boolean isLazyDetails() {
+        return lazyDetails;
+    }
+
+    /**
+     * Sets the store the index stage moves the cold fields of every newly
+     * registered person to (see {@link ColdFieldStore}).
+     *
+     * @param coldStore The store, or null to keep the fields in memory.
+     */
+    public void setColdFieldStore(ColdFieldStore coldStore) {
+        this.coldStore = coldStore;
+    }
+
+    /**
+     * Get the store the cold fields are moved to.
+     *
+     * @return The store, or null if the fields stay in memory.
+     */
+    public ColdFieldStore getColdFieldStore() {
+        return coldStore;
+    }
+
+    /**
+     * Loads a genealogy file as the new register of the tree, through all
+     * five stages.
+     *
+     * @param file The genealogy file.
+     * @param tree The tree whose register is replaced.
+     * @param errors Receives the malformed records in lenient mode, or null
+     * to fail at the first invalid JSON.
+     * @return The changes applied to the register.
+     * @throws IOException If the file cannot be read, or is not valid JSON
+     * and no report is given.
+     */
+    public RegisterDiff load(Path file, Tree tree, ParseReport errors) throws IOException {
+        RegisterStaging staging = stage(file, null, errors);
+        return index(tree, resolve(staging, new Person[0]));
+    }
+
+    /**
+     * Runs the read, parse and normalize stages over a file and stages the
+     * records in file order. The calling thread collects the blocks; it can
+     * be interrupted to cancel the load.
+     *
+     * @param file The genealogy file.
+     * @param progress Receives progress reports, or null for none.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @return The staged records, ready to be resolved.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the file cannot be read, or is not valid JSON
+     * and no report is given.
+     */
+    public RegisterStaging stage(Path file, LoadProgressListener progress, ParseReport errors) throws IOException {
+        boolean ndjson = LoadJson.isNdjsonFileName(file.getFileName().toString());
+        RecordSource source = lazyDetails && !LoadJson.isGzip(file) ? new RecordSource(file) : null;
+        try (InputStream input = Files.newInputStream(file)) {
+            return stage(input, Files.size(file), ndjson, source, progress, errors);
+        }
+    }
+
+    /**
+     * Runs the read, parse and normalize stages over content in memory, such
+     * as a file already read by the caller. Fate and Notes are always parsed,
+     * since there is no file to leave them in.
+     *
+     * @param content The genealogy data, encoded in UTF-8, optionally
+     * gzip-compressed.
+     * @param ndjson True if the content holds one person record per line.
+     * @param progress Receives progress reports, or null for none.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @return The staged records, ready to be resolved.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the content is not valid JSON and no report is
+     * given.
+     */
+    public RegisterStaging stage(byte[] content, boolean ndjson, LoadProgressListener progress, ParseReport errors) throws IOException {
+        return stage(new ByteArrayInputStream(content), content.length, ndjson, null, progress, errors);
+    }
+
+    /**
+     * Runs the read, parse and normalize stages over a stream. The stream is
+     * read to the end but not closed.
+     *
+     * @param input The genealogy data, optionally gzip-compressed.
+     * @param totalBytes The size of the input, for progress reports.
+     * @param ndjson True if the input holds one person record per line.
+     * @param source The mapped file to leave Fate and Notes in, or null to
+     * parse them.
+     * @param progress Receives progress reports, or null for none.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @return The staged records.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the input cannot be read, or is not valid JSON
+     * and no report is given.
+     */
+    private RegisterStaging stage(InputStream input, long totalBytes, boolean ndjson, RecordSource source,
+            LoadProgressListener progress, ParseReport errors) throws IOException {
+        boolean lenient = errors != null;
+        BlockingQueue<Block> toParse = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Block> toNormalize = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Block> toResolve = new ArrayBlockingQueue<>(queueCapacity);
+        Semaphore window = new Semaphore(getWindow());
+        Workers workers = new Workers();
+        LoadJson.CountingInputStream counted = new LoadJson.CountingInputStream(input);
+        try {
+            InputStream content = LoadJson.decompressIfGzip(counted);
+            workers.start(read, () -> readBlocks(content, ndjson, lenient, window, toParse));
+            AtomicInteger parsing = new AtomicInteger(parseWorkers);
+            for (int i = 0; i < parseWorkers; i++) {
+                workers.start(parse, () -> parseBlocks(toParse, toNormalize, lenient, source, parsing));
+            }
+            AtomicInteger normalizing = new AtomicInteger(normalizeWorkers);
+            for (int i = 0; i < normalizeWorkers; i++) {
+                workers.start(normalize, () -> normalizeBlocks(toNormalize, toResolve, normalizing));
+            }
+            return collect(toResolve, window, workers, progress, counted, totalBytes, errors);
+        } finally {
+            workers.stop(); // Before the input is closed
+        }
+    }
+
+    /**
+     * Get the number of blocks that can be between the read stage and the
+     * end of the collect loop at once: everything the three queues and the
+     * workers can hold. The read stage waits for a permit before handing
+     * over a block, which also bounds the blocks the resolve stage keeps
+     * while waiting for an earlier one.
+     *
+     * @return The number of blocks in flight at most.
+     */
+    private int getWindow() {
+        return 3 * queueCapacity + parseWorkers + normalizeWorkers;
+    }
+
+    /**
+     * Runs the resolve stage over staged records.
+     *
+     * @param staging The staged records.
+     * @param existing The people already in the register.
+     * @return The people to register.
+     */
+    public Person[] resolve(RegisterStaging staging, Person[] existing) {
+        return resolve(staging, existing, null);
+    }
+
+    /**
+     * Runs the resolve stage over staged records, reporting the number of
+     * fathers linked so far as it goes.
+     *
+     * @param staging The staged records.
+     * @param existing The people already in the register.
+     * @param linkProgress Receives the number of links resolved so far, or
+     * null for no reports.
+     * @return The people to register.
+     */
+    public Person[] resolve(RegisterStaging staging, Person[] existing, IntConsumer linkProgress) {
+        resolve.markStarted();
+        long begin = System.nanoTime();
+        Person[] people = staging.resolve(existing, linkProgress);
+        resolve.addItem(0, 0, System.nanoTime() - begin); // The records were counted as they were staged
+        resolve.workerFinished();
+        return people;
+    }
+
+    /**
+     * Runs the index stage: publishes resolved people as the new register of
+     * the tree, then moves the cold fields of the inserted and updated people
+     * to the cold field store, if one is set. People left unchanged by the
+     * reload keep their records. Must run on the thread that owns the
+     * register.
+     *
+     * @param tree The tree whose register is replaced.
+     * @param people The resolved people.
+     * @return The changes applied to the register.
+     */
+    public RegisterDiff index(Tree tree, Person[] people) {
+        index.workerStarted();
+        long begin = System.nanoTime();
+        RegisterDiff diff = tree.reload(people);
+        ColdFieldStore store = coldStore;
+        if (store != null) {
+            store.spill(diff.getInserts());
+            store.spill(diff.getUpdates());
+        }
+        index.addItem(people.length, 0, System.nanoTime() - begin);
+        index.workerFinished();
+        return diff;
+    }
+
+    /**
+     * Clears the counters of every stage, so the next load is measured on
+     * its own.
+     */
+    public void reset() {
+        for (StageCounters stage : getStages()) {
+            stage.reset();
+        }
+    }
+
+    /**
+     * Get the counters of every stage, in pipeline order.
+     *
+     * @return The counters of read, parse, normalize, resolve and index.
+     */
+    public StageCounters[] getStages() {
+        return new StageCounters[]{read, parse, normalize, resolve, index};
+    }
+
+    /**
+     * Builds a table with the counters of every stage and the name of the
+     * bottleneck: the overlapping stage whose workers were busy for the
+     * largest share of the time.
+     *
+     * @return The report text.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-10s %7s %7s %9s %9s %8s %7s %9s %9s %12s", "Stage", "Workers", "Items",
+                "Records", "MB", "Wall ms", "Busy", "Starved", "Blocked", "Records/s"));
+        StageCounters bottleneck = read;
+        for (StageCounters stage : getStages()) {
+            report.append("\n").append(stage);
+            if (stage != resolve && stage != index && stage.getUtilization() > bottleneck.getUtilization()) {
+                bottleneck = stage;
+            }
+        }
+        report.append(String.format("%nBottleneck: %s (busy %.1f%% of the time)", bottleneck.getName(), bottleneck.getUtilization() * 100));
+        return report.toString();
+    }
+
+    /**
+     * Body of the read stage: reads the input and hands it to the parsers in
+     * blocks, then tells every parse worker that the input is over.
+     *
+     * @param input The decompressed content.
+     * @param ndjson True to cut after newlines, false to cut between members.
+     * @param lenient True to report houses that are not lists.
+     * @param window Permits for the blocks in flight, one per block.
+     * @param out The queue of the parse stage.
+     * @throws IOException If the input cannot be read or is not a JSON
+     * object.
+     * @throws InterruptedException If the load is stopped.
+     */
+    private void readBlocks(InputStream input, boolean ndjson, boolean lenient, Semaphore window, BlockingQueue<Block> out) throws IOException, InterruptedException {
+        BlockReader reader = new BlockReader(out, lenient, window);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        while (true) {
+            long begin = System.nanoTime();
+            int length = input.read(buffer);
+            if (length == -1) {
+                break;
+            }
+            long waited = reader.waitedNanos;
+            if (ndjson) {
+                reader.scanLines(buffer, length);
+            } else {
+                reader.scanHouses(buffer, length);
+            }
+            read.addItem(0, length, System.nanoTime() - begin - (reader.waitedNanos - waited));
+        }
+        reader.finish(ndjson);
+        for (int i = 0; i < parseWorkers; i++) {
+            put(out, END, read);
+        }
+    }
+
+    /**
+     * Body of a parse worker. The last worker to finish tells every normalize
+     * worker that the input is over.
+     *
+     * @param in The queue of the parse stage.
+     * @param out The queue of the normalize stage.
+     * @param lenient True to skip and report malformed records.
+     * @param source The mapped file to leave Fate and Notes in, or null to
+     * parse them.
+     * @param running The parse workers still running.
+     * @throws IOException If a block is not valid JSON in strict mode.
+     * @throws InterruptedException If the load is stopped.
+     */
+    private void parseBlocks(BlockingQueue<Block> in, BlockingQueue<Block> out, boolean lenient, RecordSource source, AtomicInteger running) throws IOException, InterruptedException {
+        LoadJson parser = source != null ? lazyLoadJson : loadJson;
+        while (true) {
+            Block block = take(in, parse);
+            if (block == END) {
+                break;
+            }
+            long begin = System.nanoTime();
+            if (block.length > 0) {
+                if (lenient && block.errors == null) {
+                    block.errors = new ParseReport();
+                }
+                parser.parseBlock(block.data, 0, block.length, block.houseName, block.people::add, block.children::add, block.errors);
+            }
+            if (source != null) {
+                for (GenericNode<Person> node = block.people.getFirst(); node != null; node = node.getNext()) {
+                    node.getData().shiftDetailsRange(block.offset); // Ranges start at data[0]
+                    node.getData().bindDetailsSource(source);
+                }
+            }
+            block.data = null; // The raw bytes are no longer needed
+            parse.addItem(block.people.getSize(), block.length, System.nanoTime() - begin);
+            put(out, block, parse);
+        }
+        if (running.decrementAndGet() == 0) {
+            for (int i = 0; i < normalizeWorkers; i++) {
+                put(out, END, parse);
+            }
+        }
+    }
+
+    /**
+     * Body of a normalize worker. The last worker to finish tells the resolve
+     * stage that the input is over.
+     *
+     * @param in The queue of the normalize stage.
+     * @param out The queue of the resolve stage.
+     * @param running The normalize workers still running.
+     * @throws InterruptedException If the load is stopped.
+     */
+    private void normalizeBlocks(BlockingQueue<Block> in, BlockingQueue<Block> out, AtomicInteger running) throws InterruptedException {
+        while (true) {
+            Block block = take(in, normalize);
+            if (block == END) {
+                break;
+            }
+            long begin = System.nanoTime();
+            for (GenericNode<Person> node = block.people.getFirst(); node != null; node = node.getNext()) {
+                loadJson.normalizeRecord(node.getData(), false);
+            }
+            for (GenericNode<Person> node = block.children.getFirst(); node != null; node = node.getNext()) {
+                loadJson.normalizeRecord(node.getData(), true);
+            }
+            normalize.addItem(block.people.getSize(), block.length, System.nanoTime() - begin);
+            put(out, block, normalize);
+        }
+        if (running.decrementAndGet() == 0) {
+            put(out, END, normalize);
+        }
+    }
+
+    /**
+     * Front of the resolve stage, run on the calling thread: stages the
+     * normalized blocks in file order, whatever order they arrive in. Blocks
+     * that arrive before their predecessors wait in a ring indexed by
+     * sequence; the read stage holds a permit of the window for every block
+     * not staged yet, so the ring never needs more slots than the window.
+     *
+     * @param in The queue of the resolve stage.
+     * @param window Permits for the blocks in flight, released as the blocks
+     * are staged.
+     * @param workers The workers of the other stages.
+     * @param progress Receives progress reports, or null for none.
+     * @param counted Counts the bytes read from the input.
+     * @param totalBytes The size of the input.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @return The staged records.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If a worker failed.
+     */
+    private RegisterStaging collect(BlockingQueue<Block> in, Semaphore window, Workers workers, LoadProgressListener progress,
+            LoadJson.CountingInputStream counted, long totalBytes, ParseReport errors) throws IOException {
+        resolve.workerStarted();
+        RegisterStaging staging = new RegisterStaging();
+        Block[] pending = new Block[getWindow()]; // Blocks that arrived before their predecessors, by sequence
+        int next = 0; // Sequence of the next block to stage
+        while (true) {
+            long waitBegin = System.nanoTime();
+            Block block;
+            try {
+                block = in.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Genealogy load cancelled");
+            }
+            resolve.addInputWait(System.nanoTime() - waitBegin);
+            workers.checkFailure();
+            if (block == null) {
+                continue;
+            }
+            if (block == END) {
+                break;
+            }
+
+            long begin = System.nanoTime();
+            pending[block.sequence % pending.length] = block;
+            while (pending[next % pending.length] != null) {
+                Block ready = pending[next % pending.length];
+                pending[next++ % pending.length] = null;
+                for (GenericNode<Person> node = ready.people.getFirst(); node != null; node = node.getNext()) {
+                    staging.addPerson(node.getData());
+                }
+                for (GenericNode<Person> node = ready.children.getFirst(); node != null; node = node.getNext()) {
+                    staging.addChild(node.getData());
+                }
+                if (errors != null && ready.errors != null) {
+                    errors.addAll(ready.errors, ready.offset); // Block offsets start at its first byte
+                }
+                window.release(); // Room for one more block
+            }
+            resolve.addItem(block.people.getSize(), block.length, System.nanoTime() - begin);
+            if (progress != null) {
+                progress.onLoadProgress(counted.getCount(), totalBytes, staging.size(), 0);
+            }
+        }
+        return staging;
+    }
+
+    /**
+     * Takes a block from a queue, counting the wait as starved time.
+     *
+     * @param queue The queue.
+     * @param stage The stage taking the block.
+     * @return The block.
+     * @throws InterruptedException If the load is stopped.
+     */
+    private static Block take(BlockingQueue<Block> queue, StageCounters stage) throws InterruptedException {
+        long begin = System.nanoTime();
+        Block block = queue.take();
+        stage.addInputWait(System.nanoTime() - begin);
+        return block;
+    }
+
+    /**
+     * Puts a block in a queue, counting the wait as blocked time.
+     *
+     * @param queue The queue.
+     * @param block The block.
+     * @param stage The stage handing over the block.
+     * @return The time waited in nanoseconds.
+     * @throws InterruptedException If the load is stopped.
+     */
+    private static long put(BlockingQueue<Block> queue, Block block, StageCounters stage) throws InterruptedException {
+        long begin = System.nanoTime();
+        queue.put(block);
+        long waited = System.nanoTime() - begin;
+        stage.addOutputWait(waited);
+        return waited;
+    }
+
+    /**
+     * The body of a worker.
+     */
+    private interface StageBody {
+
+        /**
+         * Runs the worker until its input is over.
+         *
+         * @throws IOException If the input is invalid or cannot be read.
+         * @throws InterruptedException If the load is stopped.
+         */
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * The worker threads of one load. The first failure is kept and every
+     * other worker is stopped, so the resolve stage never waits for input
+     * that will not come.
+     */
+    private static class Workers {
+
+        private final GenericLinkedList<Thread> threads = new GenericLinkedList<>(); // Every worker started
+        private Throwable failure; // The first error of a worker, null while all is well
+        private boolean stopped; // True once the load is over
+
+        /**
+         * Starts a worker on a new virtual thread.
+         *
+         * @param stage The counters of its stage.
+         * @param body What the worker does.
+         */
+        synchronized void start(StageCounters stage, StageBody body) {
+            Thread thread = Thread.ofVirtual().name("ingest-" + stage.getName()).unstarted(() -> {
+                stage.workerStarted();
+                try {
+                    body.run();
+                } catch (InterruptedException | InterruptedIOException e) {
+                    // Stopped because the load failed, was cancelled or is over
+                } catch (Throwable e) {
+                    fail(e);
+                } finally {
+                    stage.workerFinished();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        /**
+         * Records a failure and stops every worker.
+         *
+         * @param error The error of a worker.
+         */
+        synchronized void fail(Throwable error) {
+            if (failure == null && !stopped) {
+                failure = error;
+                interruptAll();
+            }
+        }
+
+        /**
+         * Throws the failure of a worker, if there was one.
+         *
+         * @throws IOException The failure, as is or wrapped.
+         */
+        synchronized void checkFailure() throws IOException {
+            if (failure == null) {
+                return;
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IOException("Ingestion failed", failure);
+        }
+
+        /**
+         * Stops every worker still running and waits for them to end.
+         */
+        void stop() {
+            synchronized (this) {
+                stopped = true;
+                interruptAll();
+            }
+            for (GenericNode<Thread> node = threads.getFirst(); node != null; node = node.getNext()) {
+                try {
+                    node.getData().join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Cancelled: the workers end on their own
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Interrupts every worker that is still alive.
+         */
+        private void interruptAll() {
+            for (GenericNode<Thread> node = threads.getFirst(); node != null; node = node.getNext()) {
+                if (node.getData().isAlive()) {
+                    node.getData().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * The read stage's scanner: cuts the input into blocks at record
+     * boundaries while it is read. For the nested format it follows only
+     * brackets, strings and the house names, and a block is always a valid
+     * array of whole members of one house.
+     */
+    private class BlockReader {
+
+        private final BlockingQueue<Block> out; // The queue of the parse stage
+        private final boolean lenient; // True to report houses that are not lists
+        private final Semaphore window; // Permits for the blocks in flight
+        private long waitedNanos; // Time spent waiting for room in the queue
+        private long position; // Offset of the chunk being scanned in the input
+        private int sequence; // Sequence of the next block
+
+        private byte[] block = new byte[blockSize + READ_BUFFER_SIZE]; // The block being filled
+        private int blockLength; // Bytes in the block
+        private long blockOffset; // Offset in the input of the first byte of the block
+
+        private int depth; // Nesting of objects and arrays
+        private boolean started; // True once the top-level object opened
+        private boolean inString; // True inside a string
+        private boolean escaped; // True after a backslash inside a string
+        private boolean inKey; // True inside a string at the top level
+        private byte[] key = new byte[64]; // Raw bytes of the last top-level string
+        private int keyLength; // Bytes in key
+        private boolean expectValue; // True after the colon of a top-level field
+        private boolean inHouse; // True inside the member array of a house
+        private String houseName; // The name of that house
+
+        /**
+         * Constructs a scanner.
+         *
+         * @param out The queue of the parse stage.
+         * @param lenient True to report houses that are not lists.
+         * @param window Permits for the blocks in flight.
+         */
+        BlockReader(BlockingQueue<Block> out, boolean lenient, Semaphore window) {
+            this.out = out;
+            this.lenient = lenient;
+            this.window = window;
+        }
+
+        /**
+         * Scans a chunk of NDJSON: whenever the block reaches blockSize it is
+         * cut after its last newline.
+         *
+         * @param chunk The bytes read.
+         * @param length The number of bytes read.
+         * @throws InterruptedException If the load is stopped.
+         */
+        void scanLines(byte[] chunk, int length) throws InterruptedException {
+            append(chunk, 0, length);
+            while (blockLength >= blockSize) {
+                int cut = blockLength;
+                while (cut > 0 && block[cut - 1] != '\n') {
+                    cut--;
+                }
+                if (cut == 0) {
+                    break; // A line longer than a block: keep reading
+                }
+                byte[] rest = new byte[blockSize + READ_BUFFER_SIZE];
+                int restLength = blockLength - cut;
+                System.arraycopy(block, cut, rest, 0, restLength);
+                blockLength = cut;
+                emit(null);
+                block = rest;
+                blockLength = restLength;
+                blockOffset += cut;
+            }
+            position += length;
+        }
+
+        /**
+         * Scans a chunk of the nested format, copying the members of every
+         * house into blocks.
+         *
+         * @param chunk The bytes read.
+         * @param length The number of bytes read.
+         * @throws IOException If the content is not a JSON object.
+         * @throws InterruptedException If the load is stopped.
+         */
+        void scanHouses(byte[] chunk, int length) throws IOException, InterruptedException {
+            int copyFrom = inHouse ? 0 : -1; // Start of the bytes of this chunk that belong to the block
+            for (int i = 0; i < length; i++) {
+                byte b = chunk[i];
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                        inKey = false;
+                        continue;
+                    }
+                    if (inKey) {
+                        appendKey(b);
+                    }
+                    continue;
+                }
+                if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    continue;
+                }
+                if (started && depth == 0) {
+                    break; // Whatever follows the top-level object is not read
+                }
+                if (depth == 0 && b != '{') {
+                    throw new IOException("Expected START_OBJECT but found '" + (char) b + "' at byte " + (position + i));
+                }
+                if (expectValue) {
+                    expectValue = false;
+                    if (b == '[') {
+                        // A house: its members are copied from the opening bracket on
+                        depth++;
+                        inHouse = true;
+                        houseName = decodeKey();
+                        blockLength = 0;
+                        blockOffset = position + i;
+                        copyFrom = i;
+                        continue;
+                    }
+                    if (lenient) {
+                        reportNotAList(position + i);
+                    }
+                }
+
+                switch (b) {
+                    case '"':
+                        inString = true;
+                        if (depth == 1) {
+                            inKey = true;
+                            keyLength = 0;
+                        }
+                        break;
+                    case '{':
+                    case '[':
+                        started = true;
+                        depth++;
+                        break;
+                    case '}':
+                    case ']':
+                        depth--;
+                        if (inHouse && depth == 1) {
+                            append(chunk, copyFrom, i + 1); // Up to the closing bracket
+                            emit(houseName);
+                            inHouse = false;
+                            copyFrom = -1;
+                        }
+                        break;
+                    case ':':
+                        if (depth == 1) {
+                            expectValue = true;
+                        }
+                        break;
+                    case ',':
+                        if (inHouse && depth == 2 && blockLength + (i - copyFrom) >= blockSize) {
+                            // Cut between two members: close this block and open the next
+                            append(chunk, copyFrom, i);
+                            appendByte((byte) ']');
+                            emit(houseName);
+                            blockLength = 0;
+                            blockOffset = position + i; // The opening bracket stands for the comma
+                            appendByte((byte) '[');
+                            copyFrom = i + 1;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (inHouse) {
+                append(chunk, copyFrom, length);
+            }
+            position += length;
+        }
+
+        /**
+         * Hands over what is left once the input is over. An unfinished house
+         * is handed over as is, so its parser reports the error.
+         *
+         * @param ndjson True for NDJSON input.
+         * @throws IOException If the nested content ends outside a house
+         * before the top-level object is closed, in strict mode.
+         * @throws InterruptedException If the load is stopped.
+         */
+        void finish(boolean ndjson) throws IOException, InterruptedException {
+            if (ndjson) {
+                if (blockLength > 0) {
+                    emit(null);
+                }
+                return;
+            }
+            if (inHouse) {
+                emit(houseName);
+            } else if (started && depth != 0) {
+                if (!lenient) {
+                    throw new IOException("Unexpected end of input at byte " + position);
+                }
+                Block error = new Block(sequence++, null, null, 0, 0);
+                error.errors = new ParseReport();
+                error.errors.add(new ParseError(null, position, null, null, "invalid JSON: unexpected end of input"));
+                error.errors.markTruncated();
+                hand(error);
+            }
+        }
+
+        /**
+         * Hands over a block with the error of a house that is not a list of
+         * members; offsets of such blocks are absolute.
+         *
+         * @param offset The offset of the value of the house.
+         * @throws InterruptedException If the load is stopped.
+         */
+        private void reportNotAList(long offset) throws InterruptedException {
+            Block error = new Block(sequence++, null, null, 0, 0);
+            error.errors = new ParseReport();
+            error.errors.add(new ParseError(null, offset, decodeKey(), null, "house is not a list of members"));
+            hand(error);
+        }
+
+        /**
+         * Hands the current block to the parse stage and starts a new one.
+         *
+         * @param house The house of the block, or null for NDJSON lines.
+         * @throws InterruptedException If the load is stopped.
+         */
+        private void emit(String house) throws InterruptedException {
+            hand(new Block(sequence++, house, block, blockLength, blockOffset));
+            block = new byte[blockSize + READ_BUFFER_SIZE];
+            blockLength = 0;
+        }
+
+        /**
+         * Hands a block to the parse stage once the window has room for it,
+         * counting both waits as blocked time.
+         *
+         * @param next The block.
+         * @throws InterruptedException If the load is stopped.
+         */
+        private void hand(Block next) throws InterruptedException {
+            long begin = System.nanoTime();
+            window.acquire();
+            long waited = System.nanoTime() - begin;
+            read.addOutputWait(waited);
+            waitedNanos += waited + put(out, next, read);
+        }
+
+        /**
+         * Appends a range of a chunk to the block.
+         *
+         * @param chunk The chunk.
+         * @param from The first byte to copy.
+         * @param to The byte after the last one.
+         */
+        private void append(byte[] chunk, int from, int to) {
+            int length = to - from;
+            if (blockLength + length > block.length) {
+                byte[] larger = new byte[Math.max(block.length * 2, blockLength + length)]; // A member larger than a block
+                System.arraycopy(block, 0, larger, 0, blockLength);
+                block = larger;
+            }
+            System.arraycopy(chunk, from, block, blockLength, length);
+            blockLength += length;
+        }
+
+        /**
+         * Appends one byte to the block.
+         *
+         * @param b The byte.
+         */
+        private void appendByte(byte b) {
+            append(new byte[]{b}, 0, 1);
+        }
+
+        /**
+         * Appends one byte to the raw top-level string.
+         *
+         * @param b The byte.
+         */
+        private void appendKey(byte b) {
+            if (keyLength == key.length) {
+                byte[] larger = new byte[key.length * 2];
+                System.arraycopy(key, 0, larger, 0, keyLength);
+                key = larger;
+            }
+            key[keyLength++] = b;
+        }
+
+        /**
+         * Decodes the last top-level string, the name of the current house.
+         *
+         * @return The house name.
+         */
+        private String decodeKey() {
+            for (int i = 0; i < keyLength; i++) {
+                if (key[i] == '\\') {
+                    return decodeEscaped(); // Escapes need a JSON decoder
+                }
+            }
+            return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Decodes a top-level string holding escape sequences.
+         *
+         * @return The decoded string.
+         */
+        private String decodeEscaped() {
+            byte[] quoted = new byte[keyLength + 2];
+            quoted[0] = '"';
+            System.arraycopy(key, 0, quoted, 1, keyLength);
+            quoted[keyLength + 1] = '"';
+            try (JsonParser parser = JSON_FACTORY.createParser(quoted)) {
+                parser.nextToken();
+                return parser.getText();
+            } catch (IOException e) {
+                return new String(key, 0, keyLength, StandardCharsets.UTF_8); // Leave it to the parse stage
+            }
+        }
+    }
+
+    /**
+     * A block of the input on its way through the pipeline: raw bytes after
+     * the read stage, records after the parse stage.
+     */
+    private static class Block {
+
+        private final int sequence; // Position of the block in the input
+        private final String houseName; // The house of the members, null for NDJSON lines
+        private byte[] data; // The raw bytes, dropped once parsed
+        private final int length; // Bytes used in data
+        private final long offset; // Offset in the input of data[0]
+        private final GenericLinkedList<Person> people = new GenericLinkedList<>(); // Person records in order
+        private final GenericLinkedList<Person> children = new GenericLinkedList<>(); // Child stubs in order
+        private ParseReport errors; // Malformed records in lenient mode, offsets from data[0]
+
+        /**
+         * Constructs a block.
+         *
+         * @param sequence The position of the block in the input.
+         * @param houseName The house of the members, or null for NDJSON.
+         * @param data The raw bytes.
+         * @param length The bytes used in data.
+         * @param offset The offset in the input of data[0].
+         */
+        Block(int sequence, String houseName, byte[] data, int length, long offset) {
+            this.sequence = sequence;
+            this.houseName = houseName;
+            this.data = data;
+            this.length = length;
+            this.offset = offset;
+        }
+    }
+}
@@ -1,53 +1,706 @@
 package edu.unimet.edd.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.listeners.LoadProgressListener;
+import edu.unimet.edd.tree.GenericLinkedList;
+import edu.unimet.edd.tree.GenericNode;
+import edu.unimet.edd.tree.RegisterStaging;
 import edu.unimet.edd.tree.Tree;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Utility class to load genealogy data from a JSON string.
+ * Utility class to load genealogy data from JSON.
+ * <p>
+ * The data is read token by token with a Jackson streaming JsonParser instead
+ * of building a document tree first, and each Person is handed to the tree as
+ * soon as its record is complete. Only the record being read is held in
+ * memory, so loading a file needs memory for the register itself but not for
+ * a copy of the file or its parsed tree.
+ * </p>
+ * <p>
+ * Files and content already in memory are loaded through an
+ * {@link IngestPipeline}, which cuts them into blocks of whole members and
+ * parses the blocks with this class on several threads; the records are then
+ * staged in file order, so the result is the same as a sequential load.
+ * Streams and strings are parsed here on the calling thread.
+ * </p>
+ * <p>
+ * Compressed content is recognized by the gzip magic bytes and decompressed
+ * through a GZIPInputStream as it is read, so no decompressed copy is kept in
+ * memory or on disk.
+ * </p>
+ * <p>
+ * Files named ".ndjson" or ".jsonl" hold one person per line instead, each
+ * line carrying a "House" field.
+ * </p>
+ * <p>
+ * Either way, loading has two phases: parsing only stages the records in a
+ * {@link RegisterStaging}, and fathers, children and duplicates are resolved
+ * afterwards in one linear pass by Tree.addPeople. The first phase is also
+ * available on its own through
+ * {@link IngestPipeline#stage(Path, LoadProgressListener, ParseReport)},
+ * which {@link GenealogyLoader} runs in the background.
+ * </p>
+ * <p>
+ * By default a load stops at the first content that is not valid JSON. Given
+ * a {@link ParseReport}, the load is lenient instead: a record that does not
+ * have the expected layout, such as a detail that is not a string, is
+ * recorded with its byte offset and skipped, and the load goes on. NDJSON is
+ * then read line by line, so even a line that is not valid JSON only loses
+ * its own record; in the nested format invalid JSON inside a house loses
+ * the member it is in, and the load goes on at the next member of the house.
+ * If the input ends inside unfinished JSON, every record before the end is
+ * kept and the report is marked as truncated.
+ * </p>
  */
 public class LoadJson {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(); // Thread-safe, shared by every load
+    private static final int GZIP_MAGIC_FIRST = 0x1f; // First byte of every gzip stream
+    private static final int GZIP_MAGIC_SECOND = 0x8b; // Second byte of every gzip stream
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024; // Compressed bytes read at a time
+    static final String HOUSE_FIELD = "House"; // Field naming the house of an NDJSON record, shared with ExportJson
+    private static final int LINE_BUFFER_SIZE = 64 * 1024; // Initial size of the buffer of a lenient NDJSON load
+
+    private final boolean deferNormalization; // True if names are left as written for a later normalize stage
+    private final boolean lazyDetails; // True if Fate and Notes are left in the mapped file
+
+    /**
+     * Constructs a loader that normalizes names while parsing.
+     */
+    public LoadJson() {
+        this(false, false);
+    }
+
+    /**
+     * Constructs a loader that can leave the long details of every person,
+     * Fate and Notes, in the file. Only the byte range of each details array
+     * is kept, and the details are decoded from a {@link RecordSource} when
+     * they are read, which saves their memory on registers with a lot of
+     * text. This only applies to uncompressed files loaded by path; streams,
+     * strings and compressed files are always parsed in full.
+     *
+     * @param lazyDetails True to leave Fate and Notes in the file.
+     */
+    public LoadJson(boolean lazyDetails) {
+        this(false, lazyDetails);
+    }
+
+    /**
+     * Constructs a loader for {@link IngestPipeline}, which can leave the
+     * names as written so a separate stage normalizes them with
+     * {@link #normalizeRecord(Person, boolean)}.
+     *
+     * @param deferNormalization True to leave the names as written.
+     * @param lazyDetails True to leave Fate and Notes in the file.
+     */
+    LoadJson(boolean deferNormalization, boolean lazyDetails) {
+        this.deferNormalization = deferNormalization;
+        this.lazyDetails = lazyDetails;
+    }
+
+    /**
+     * Checks if Fate and Notes are left in the file by loads of uncompressed
+     * files.
+     *
+     * @return true if the long details are read on demand.
+     */
+    public boolean isLazyDetails() {
+        return lazyDetails;
+    }
+
+    /**
+     * Get a loader with the same settings that parses every detail, for
+     * input that cannot be mapped.
+     *
+     * @return This loader, or an eager copy of it.
+     */
+    LoadJson eager() {
+        return lazyDetails ? new LoadJson(deferNormalization, false) : this;
+    }
+
+    /**
+     * Loads the genealogy data from a file and populates the tree. The file
+     * is streamed through an {@link IngestPipeline}, so it is parsed on
+     * several threads and only a few blocks of it are held in memory.
+     *
+     * @param file The JSON file with the genealogy data.
+     * @param tree The tree to populate with the genealogy data.
+     * @return The number of person records loaded.
+     * @throws IOException If the file cannot be read or is not valid JSON.
+     */
+    public int loadGenealogy(Path file, Tree tree) throws IOException {
+        return loadGenealogy(file, tree, null);
+    }
+
+    /**
+     * Loads the genealogy data from a file and populates the tree, skipping
+     * malformed records when a report is given.
+     *
+     * @param file The JSON file with the genealogy data.
+     * @param tree The tree to populate with the genealogy data.
+     * @param errors Receives the malformed records in lenient mode, or null
+     * to stop at the first invalid JSON.
+     * @return The number of person records loaded.
+     * @throws IOException If the file cannot be read, or is not valid JSON
+     * and no report is given.
+     */
+    public int loadGenealogy(Path file, Tree tree, ParseReport errors) throws IOException {
+        IngestPipeline pipeline = new IngestPipeline();
+        pipeline.setLazyDetails(lazyDetails);
+        RegisterStaging staging = pipeline.stage(file, null, errors);
+        tree.addPeople(staging);
+        return staging.size();
+    }
+
+    /**
+     * Checks if a file name has the extension of the newline-delimited
+     * format: ".ndjson" or ".jsonl", optionally followed by ".gz".
+     *
+     * @param fileName The name of the file.
+     * @return true if the file holds one person record per line.
+     */
+    public static boolean isNdjsonFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    /**
+     * Checks if a file name has one of the extensions of genealogy files:
+     * ".json", ".json.gz" for compressed archives, or one of the NDJSON
+     * extensions.
+     *
+     * @param fileName The name of the file.
+     * @return true if the file can be loaded.
+     */
+    public static boolean isGenealogyFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".json") || name.endsWith(".json.gz") || isNdjsonFileName(fileName);
+    }
+
+    /**
+     * Checks if a file is gzip-compressed by reading its magic bytes, so the
+     * extension does not matter.
+     *
+     * @param file The file to check.
+     * @return true if the file starts with the gzip magic bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    static boolean isGzip(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return input.read() == GZIP_MAGIC_FIRST && input.read() == GZIP_MAGIC_SECOND;
+        }
+    }
+
+    /**
+     * Wraps a stream in a GZIPInputStream if it starts with the gzip magic
+     * bytes. The bytes are peeked with mark and reset, not consumed.
+     *
+     * @param input The stream to check.
+     * @return A stream with the decompressed content, or the content as is.
+     * @throws IOException If the stream cannot be read.
+     */
+    static InputStream decompressIfGzip(InputStream input) throws IOException {
+        InputStream buffered = input.markSupported() ? input : new BufferedInputStream(input);
+        buffered.mark(2);
+        boolean gzip = buffered.read() == GZIP_MAGIC_FIRST && buffered.read() == GZIP_MAGIC_SECOND;
+        buffered.reset();
+        return gzip ? new GZIPInputStream(buffered, GZIP_BUFFER_SIZE) : buffered;
+    }
+
+    /**
+     * Loads the genealogy data from the given stream and populates the tree.
+     * The stream is read to the end and closed; gzip-compressed content is
+     * decompressed on the fly.
+     *
+     * @param input The stream with the JSON genealogy data.
+     * @param tree The tree to populate with the genealogy data.
+     * @return The number of person records loaded.
+     * @throws IOException If the stream cannot be read or is not valid JSON.
+     */
+    public int loadGenealogy(InputStream input, Tree tree) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(decompressIfGzip(input))) {
+            RegisterStaging staging = eager().stageGenealogy(parser);
+            tree.addPeople(staging);
+            return staging.size();
+        }
+    }
+
     /**
      * Loads the genealogy data from the given JSON string and populates the
      * tree.
      *
      * @param jsonContent The JSON content containing genealogy data.
      * @param tree The tree to populate with the genealogy data.
+     * @return The number of person records loaded.
      */
-    public void loadGenealogy(String jsonContent, Tree tree) {
-        JSONObject jsonObject = new JSONObject(jsonContent);
+    public int loadGenealogy(String jsonContent, Tree tree) {
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonContent)) {
+            RegisterStaging staging = eager().stageGenealogy(parser);
+            tree.addPeople(staging);
+            return staging.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid genealogy JSON", e);
+        }
+    }
 
-        // Parse each house and its members
-        for (String houseName : jsonObject.keySet()) {
-            JSONArray houseArray = jsonObject.getJSONArray(houseName);
+    /**
+     * Reads the houses and their members from the parser into a staging area.
+     * The expected layout is an object mapping each house name to an array of
+     * single-key objects, each mapping a person name to the array of their
+     * details.
+     *
+     * @param parser The parser positioned before the first token.
+     * @return The staged records.
+     * @throws IOException If the content cannot be read or is not valid JSON.
+     */
+    private RegisterStaging stageGenealogy(JsonParser parser) throws IOException {
+        RegisterStaging staging = new RegisterStaging();
+        if (parser.nextToken() == null) {
+            return staging; // Nothing but whitespace
+        }
+        expect(parser, JsonToken.START_OBJECT);
 
-            // Load each person from the house
-            for (int i = 0; i < houseArray.length(); i++) {
-                JSONObject personEntry = houseArray.getJSONObject(i);
+        // Parse each house and its members into the staging area
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String houseName = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren(); // Not a list of members
+                continue;
+            }
+            parseHouse(parser, houseName, staging::addPerson, staging::addChild, null);
+        }
+        return staging;
+    }
 
-                String personName = personEntry.keys().next();
+    /**
+     * Loads the genealogy data from the given JSON content, parsing the houses
+     * concurrently. The content is cut into blocks of whole members and the
+     * blocks are parsed by the workers of an {@link IngestPipeline}, then
+     * staged in file order and resolved in one pass, exactly as in a
+     * sequential load.
+     *
+     * @param content The JSON genealogy data, encoded in UTF-8.
+     * @param tree The tree to populate with the genealogy data.
+     * @return The number of person records loaded.
+     * @throws IOException If the content is not valid JSON.
+     */
+    public int loadGenealogyParallel(byte[] content, Tree tree) throws IOException {
+        RegisterStaging staging = new IngestPipeline().stage(content, false, null, null);
+        tree.addPeople(staging);
+        return staging.size();
+    }
 
-                JSONArray personDetails = personEntry.getJSONArray(personName);
+    /**
+     * Parses a block of content: either the array of members of a house, or
+     * whole NDJSON lines. Used by the parse stage of {@link IngestPipeline}.
+     * <p>
+     * In lenient mode, invalid JSON in the members of a house is reported and
+     * the records completed before it are kept; parsing then resumes at the
+     * next member, found by the same scan for commas between members that
+     * cuts houses into blocks. The records kept and the errors reported
+     * therefore do not depend on where the house was cut.
+     * </p>
+     *
+     * @param content The buffer holding the block. In lenient mode, the comma
+     * before a member parsing resumes at is overwritten.
+     * @param start The offset of the block in the buffer.
+     * @param end The offset just after the block.
+     * @param houseName The house of the members, or null for NDJSON lines.
+     * @param personSink Receives every person record, in order.
+     * @param childSink Receives every child stub, in order.
+     * @param errors Receives the malformed records in lenient mode, with
+     * offsets from the start of the block, or null.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the block is not valid JSON and no report is
+     * given.
+     */
+    void parseBlock(byte[] content, int start, int end, String houseName, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        if (houseName == null && errors != null) {
+            // NDJSON lines, read line by line
+            parseLines(new ByteArrayInputStream(content, start, end - start), personSink, childSink, errors);
+            return;
+        }
+        if (houseName != null && errors != null) {
+            parseMembers(content, start, end, houseName, personSink, childSink, errors);
+            return;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(content, start, end - start)) {
+            if (houseName == null) {
+                parseRecords(parser, personSink, childSink, null); // NDJSON lines
+                return;
+            }
+            parser.nextToken(); // The START_ARRAY of the house
+            parseHouse(parser, houseName, personSink, childSink, null);
+        }
+    }
+
+    /**
+     * Parses the members of a house in lenient mode, resuming at the next
+     * member after invalid JSON. The comma before that member is overwritten
+     * with an opening bracket, so the rest of the block is read as an array
+     * of its own, and the offsets of its errors and details ranges are moved
+     * back to the start of the block.
+     *
+     * @param content The buffer holding the block.
+     * @param start The offset of the opening bracket of the block.
+     * @param end The offset just after the block.
+     * @param houseName The house of the members.
+     * @param personSink Receives every person record, in order.
+     * @param childSink Receives every child stub, in order.
+     * @param errors Receives the malformed records, with offsets from the
+     * start of the block.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the content cannot be read.
+     */
+    private void parseMembers(byte[] content, int start, int end, String houseName, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        int from = start;
+        while (from < end) {
+            long shift = from - start;
+            Consumer<Person> sink = shift == 0 ? personSink : person -> {
+                person.shiftDetailsRange(shift); // Ranges start at the start of the block
+                personSink.accept(person);
+            };
+            ParseReport partErrors = new ParseReport(); // Offsets from the resumed part
+            int next = -1;
+            try (JsonParser parser = JSON_FACTORY.createParser(content, from, end - from)) {
+                parser.nextToken(); // The START_ARRAY of the house
+                parseHouse(parser, houseName, sink, childSink, partErrors);
+            } catch (JsonProcessingException e) {
+                reportInvalidJson(partErrors, e, houseName); // Keep the records before the error
+                if (e instanceof JsonEOFException) {
+                    partErrors.markTruncated(); // Nothing after the error could be read
+                }
+                long at = errorOffset(e);
+                next = at < 0 ? -1 : nextMember(content, from, end, from + (int) at);
+            }
+            errors.addAll(partErrors, shift);
+            if (next == -1) {
+                return;
+            }
+            content[next] = '['; // The rest of the block is read as an array of its own
+            from = next;
+        }
+    }
+
+    /**
+     * Finds the comma that starts the next member of a house at or after a
+     * position, tracking strings and nesting as the block cutter of
+     * {@link IngestPipeline} does.
+     *
+     * @param content The buffer holding the members.
+     * @param from The offset of the opening bracket of the members.
+     * @param end The offset just after the members.
+     * @param position The first offset the comma may be at.
+     * @return The offset of the comma, or -1 if the members end first.
+     */
+    private static int nextMember(byte[] content, int from, int end, int position) {
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = from; i < end; i++) {
+            byte b = content[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (--depth == 0) {
+                        return -1; // The end of the members
+                    }
+                    break;
+                case ',':
+                    if (depth == 1 && i >= position) {
+                        return i;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads NDJSON content line by line, parsing each line with its own
+     * parser. A line that is not valid JSON is reported and skipped; lines are
+     * never split, since JSON strings cannot hold a raw newline.
+     *
+     * @param input The NDJSON content.
+     * @param personSink Receives every person record, in file order.
+     * @param childSink Receives every child stub, in file order.
+     * @param errors Receives the malformed records, with offsets from the
+     * start of the input.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the content cannot be read.
+     */
+    private void parseLines(InputStream input, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        byte[] buffer = new byte[LINE_BUFFER_SIZE];
+        long bufferOffset = 0; // Offset of buffer[0] in the input
+        int start = 0; // Start of the current line in the buffer
+        int length = 0; // Bytes in the buffer
+        int scanned = 0; // Bytes already searched for a newline
+        boolean ended = false;
+        ParseReport lineErrors = new ParseReport(); // Errors of the current line, offsets from its start
+
+        while (true) {
+            int newline = -1;
+            for (int i = scanned; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+
+            if (newline == -1) {
+                if (ended) {
+                    if (start < length) {
+                        parseLine(buffer, start, length - start, bufferOffset + start, personSink, childSink, lineErrors); // Last line without a newline
+                        errors.addAll(lineErrors, bufferOffset + start);
+                    }
+                    return;
+                }
+                // Move the partial line to the front and read more
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, length - start);
+                    bufferOffset += start;
+                    length -= start;
+                    start = 0;
+                }
+                if (length == buffer.length) {
+                    byte[] larger = new byte[buffer.length * 2]; // A line longer than the buffer
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                }
+                scanned = length;
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read == -1) {
+                    ended = true;
+                } else {
+                    length += read;
+                }
+                continue;
+            }
 
-//                // Normalize the name before passing it to parsePersonDetails
-//                personName = normalizeName(personName);  // Normalizing the person's name
-                // Parse and add the person to the tree
-                Person person = parsePersonDetails(personName, personDetails, tree);
-                tree.addPerson(person);
+            parseLine(buffer, start, newline + 1 - start, bufferOffset + start, personSink, childSink, lineErrors);
+            if (!lineErrors.isEmpty()) {
+                errors.addAll(lineErrors, bufferOffset + start);
+                lineErrors.clear();
             }
+            start = newline + 1;
+            scanned = start;
         }
     }
 
     /**
-     * Parses the details of a person from the given JSON array.
+     * Parses the records of one NDJSON line.
+     *
+     * @param buffer The buffer holding the line.
+     * @param offset The start of the line in the buffer.
+     * @param length The length of the line, newline included.
+     * @param lineOffset The offset of the line in the input, added to the
+     * details ranges in lazy mode.
+     * @param personSink Receives every person record.
+     * @param childSink Receives every child stub.
+     * @param errors Receives the malformed records, with offsets from the
+     * start of the line.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the line cannot be read.
+     */
+    private void parseLine(byte[] buffer, int offset, int length, long lineOffset, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        Consumer<Person> sink = personSink;
+        if (lazyDetails) {
+            sink = person -> {
+                person.shiftDetailsRange(lineOffset); // Ranges start at the line
+                personSink.accept(person);
+            };
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(buffer, offset, length)) {
+            parseRecords(parser, sink, childSink, errors);
+        } catch (JsonProcessingException e) {
+            reportInvalidJson(errors, e, null); // Only the record of this line is lost
+        }
+    }
+
+    /**
+     * Reads NDJSON records until the end of the input. Each record is a root
+     * object; the parser reads consecutive root values on its own.
+     *
+     * @param parser The parser positioned before the first record.
+     * @param personSink Receives every person record, in file order.
+     * @param childSink Receives every child stub, in file order.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the content cannot be read or is not valid JSON.
+     */
+    private void parseRecords(JsonParser parser, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        while (parser.nextToken() != null) {
+            if (errors != null && parser.currentToken() != JsonToken.START_OBJECT) {
+                markMalformed(errors, false, parser, null, null, "record is not an object");
+                parser.skipChildren();
+                continue;
+            }
+            expect(parser, JsonToken.START_OBJECT);
+            parseRecord(parser, personSink, childSink, errors);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Genealogy load cancelled");
+            }
+        }
+    }
+
+    /**
+     * Reads one NDJSON record: a "House" field and the person, given as a
+     * field whose value is the array of their details. The house may come
+     * before or after the person, so it is set once the record is read.
+     *
+     * @param parser The parser positioned on the START_OBJECT of the record.
+     * @param personSink Receives the person record.
+     * @param childSink Receives the children found in "Father to".
+     * @param errors Receives the record if it is malformed in lenient mode,
+     * or null.
+     * @throws IOException If the content cannot be read or is not valid JSON.
+     */
+    private void parseRecord(JsonParser parser, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        String houseName = null;
+        GenericLinkedList<Person> people = new GenericLinkedList<>();
+        GenericLinkedList<Person> children = new GenericLinkedList<>();
+        boolean malformed = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals(HOUSE_FIELD) && token == JsonToken.VALUE_STRING) {
+                houseName = parser.getText();
+                continue;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                malformed = markMalformed(errors, malformed, parser, houseName, field,
+                        field.equals(HOUSE_FIELD) ? "\"House\" is not a string" : "details are not a list");
+                parser.skipChildren(); // Neither the house nor a person
+                continue;
+            }
+            Person person = parsePersonDetails(field, parser, null, children::add, malformed ? null : errors);
+            if (person == null) {
+                malformed = true; // Already reported
+            } else {
+                people.add(person);
+            }
+        }
+        if (malformed) {
+            return; // Lenient mode drops the whole record
+        }
+
+        // Hand over the record and its children with their house
+        for (GenericNode<Person> node = people.getFirst(); node != null; node = node.getNext()) {
+            node.getData().setHouse(houseName);
+            personSink.accept(node.getData());
+        }
+        for (GenericNode<Person> node = children.getFirst(); node != null; node = node.getNext()) {
+            node.getData().setHouse(houseName);
+            childSink.accept(node.getData());
+        }
+    }
+
+    /**
+     * Reads the members of a house. Every Person is passed on as soon as it is
+     * complete; children listed in "Father to" go to their own sink.
+     *
+     * @param parser The parser positioned on the START_ARRAY token of the
+     * house.
+     * @param houseName The name of the house.
+     * @param personSink Receives every person record, in file order.
+     * @param childSink Receives every child stub, in file order.
+     * @param errors Receives the malformed records in lenient mode, or null.
+     * @return The number of person records read, not counting children.
+     * @throws InterruptedIOException If the thread is interrupted.
+     * @throws IOException If the content cannot be read or is not valid JSON.
+     */
+    private int parseHouse(JsonParser parser, String houseName, Consumer<Person> personSink, Consumer<Person> childSink, ParseReport errors) throws IOException {
+        int count = 0;
+
+        // Load each person from the house
+        JsonToken member;
+        while ((member = parser.nextToken()) != JsonToken.END_ARRAY && member != null) {
+            if (member != JsonToken.START_OBJECT) {
+                markMalformed(errors, false, parser, houseName, null, "member is not an object");
+                parser.skipChildren(); // Members are always objects
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String personName = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    markMalformed(errors, false, parser, houseName, personName, "details are not a list");
+                    parser.skipChildren(); // A person without a details array
+                    continue;
+                }
+
+                Person person = parsePersonDetails(personName, parser, houseName, childSink, errors);
+                if (person == null) {
+                    continue; // Malformed, already reported
+                }
+                personSink.accept(person);
+                count++;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Genealogy load cancelled");
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses the details of a person from the parser, which must be positioned
+     * on the START_ARRAY token of the details. On return it is positioned on
+     * the matching END_ARRAY token. In lazy mode Fate and Notes are skipped and
+     * the byte range of the details array is recorded instead, relative to
+     * the start of the parser's input.
      *
      * @param name The name of the person.
-     * @param personDetails The JSON array containing the person's details.
-     * @return A Person object with the parsed data.
+     * @param parser The parser positioned at the start of the details.
+     * @param houseName The house the person is registered under.
+     * @param childSink Receives the children found in "Father to", only once
+     * the record is known to be valid.
+     * @param errors Receives the record if it is malformed in lenient mode,
+     * or null to skip malformed details silently.
+     * @return A Person object with the parsed data, or null if the record is
+     * malformed and was reported.
+     * @throws IOException If the content cannot be read or is not valid JSON.
      */
-    private Person parsePersonDetails(String name, JSONArray personDetails, Tree tree) {
+    private Person parsePersonDetails(String name, JsonParser parser, String houseName, Consumer<Person> childSink, ParseReport errors) throws IOException {
         String title = null;
         String nickname = null;
         String father = null;
@@ -59,95 +712,259 @@ public class LoadJson {
         String notes = null;
         String wedTo = null;
         PersonLinkedList children = new PersonLinkedList();
+        GenericLinkedList<Person> stubs = null; // Child stubs, handed over once the record is complete
+        boolean malformed = false; // Only set in lenient mode
+        long detailsStart = lazyDetails ? parser.currentTokenLocation().getByteOffset() : -1; // -1 for text input
+        boolean coldDetails = false; // True if Fate or Notes were left in the input
 
-        for (int i = 0; i < personDetails.length(); i++) {
-            JSONObject detail = personDetails.getJSONObject(i);
-            String key = detail.keys().next();
-            Object value = detail.get(key);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                malformed = markMalformed(errors, malformed, parser, houseName, name, "detail is not an object");
+                parser.skipChildren(); // Details are always single-key objects
+                continue;
+            }
 
-            switch (key) {
-                case "Held title":
-                    title = (String) value;
-                    break;
-                case "Known throughout as":
-                    nickname = (String) value;
-                    break;
-                case "Born to":
-                    if (father == null) {
-                        father = (String) value;
-                    } else {
-                        mother = (String) value;
-                    }
-                    break;
-                case "Fate":
-                    fate = (String) value;
-                    break;
-                case "Of his name":
-                    ofHisName = (String) value;
-                    break;
-                case "Father to":
-                    if (value instanceof JSONArray) {
-                        JSONArray childrenArray = (JSONArray) value;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
 
-                        for (int j = 0; j < childrenArray.length(); j++) {
-                            String childName = childrenArray.getString(j);
-                            // Check for duplicates using isChildPresent
+                if (key.equals("Father to")) {
+                    if (valueToken == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                                malformed = markMalformed(errors, malformed, parser, houseName, name, "\"Father to\" holds a name that is not a string");
+                                parser.skipChildren();
+                                continue;
+                            }
+                            String childName = parser.getText();
                             children.addString(childName);
+                            if (stubs == null) {
+                                stubs = new GenericLinkedList<>();
+                            }
+                            stubs.add(createChild(childName, name, ofHisName, houseName));
+                        }
+                    } else {
+                        malformed = markMalformed(errors, malformed, parser, houseName, name, "\"Father to\" is not a list");
+                        parser.skipChildren();
+                    }
+                    continue;
+                }
 
-                            String normalizedChildrenName = normalizeName(childName);
-                            String fatherNormalizedName = normalizeName(name);
+                if (valueToken == JsonToken.START_ARRAY || valueToken == JsonToken.START_OBJECT) {
+                    if (isDetail(key)) {
+                        malformed = markMalformed(errors, malformed, parser, houseName, name, "\"" + key + "\" is not a string");
+                    }
+                    parser.skipChildren(); // Only "Father to" holds a list
+                    continue;
+                }
+                if (valueToken != JsonToken.VALUE_STRING && isDetail(key)) {
+                    // Numbers and booleans are read as text in strict mode
+                    malformed = markMalformed(errors, malformed, parser, houseName, name, "\"" + key + "\" is " + parser.getText() + ", not a string");
+                }
+                if (detailsStart >= 0 && (key.equals("Fate") || key.equals("Notes"))) {
+                    coldDetails = true; // Decoded from the file when read
+                    continue;
+                }
+                String value = parser.getValueAsString();
 
-                            // Create a new Person object for the child with minimal details
-                            Person child = new Person(normalizedChildrenName, null, null, fatherNormalizedName, null, null, null, null, null, null, null, null, null);
-                            // Set the parent as the father of the child
-                            child.setFather(normalizeName(getFullName(name, ofHisName)));
-//                                 Add the child to the tree
-                            tree.addPerson(child);
+                switch (key) {
+                    case "Held title":
+                        title = value;
+                        break;
+                    case "Known throughout as":
+                        nickname = value;
+                        break;
+                    case "Born to":
+                        if (father == null) {
+                            father = value;
+                        } else {
+                            mother = value;
                         }
-                    }
-                    break;
-                case "Of eyes":
-                    eyesColor = (String) value;
-                    break;
-                case "Of hair":
-                    hairColor = (String) value;
-                    break;
-                case "Notes":
-                    notes = (String) value;
-                    break;
-                case "Wed to":
-                    wedTo = (String) value;
-                    break;
-                default:
-                    break;
+                        break;
+                    case "Fate":
+                        fate = value;
+                        break;
+                    case "Of his name":
+                        ofHisName = value;
+                        break;
+                    case "Of eyes":
+                        eyesColor = value;
+                        break;
+                    case "Of hair":
+                        hairColor = value;
+                        break;
+                    case "Notes":
+                        notes = value;
+                        break;
+                    case "Wed to":
+                        wedTo = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (malformed) {
+            return null; // Lenient mode drops the record and its children
+        }
+        if (stubs != null) {
+            for (GenericNode<Person> stub = stubs.getFirst(); stub != null; stub = stub.getNext()) {
+                childSink.accept(stub.getData());
             }
         }
 
         // Generate the full name using the new method and normalize it
         String fullName = getFullName(name, ofHisName);
-        fullName = normalizeName(fullName); // Normalizing the full name
+        if (!deferNormalization) {
+            fullName = HashTable.normalizeName(fullName); // Normalizing the full name
+
+            // Now we ensure the nickname is normalized as well if it exists
+            if (nickname != null) {
+                nickname = HashTable.normalizeName(nickname);
+            }
+        }
+
+        Person person = new Person(fullName, title, nickname, father, mother, fate, ofHisName, eyesColor, hairColor, notes, wedTo, null, children);
+        person.setHouse(houseName);
+        if (coldDetails) {
+            person.setDetailsRange(detailsStart, (int) (parser.currentLocation().getByteOffset() - detailsStart));
+        }
+        return person;
+    }
 
-        // Now we ensure the nickname is normalized as well if it exists
-        if (nickname != null) {
-            nickname = normalizeName(nickname);
-        };
+    /**
+     * Creates a child listed in "Father to" as a person with minimal details,
+     * linked to the father being parsed.
+     *
+     * @param childName The name of the child as written in the record.
+     * @param fatherName The name of the father.
+     * @param ofHisName The "Of his name" value of the father read so far.
+     * @param houseName The house the father is registered under.
+     * @return The child.
+     */
+    private Person createChild(String childName, String fatherName, String ofHisName, String houseName) {
+        if (deferNormalization) {
+            Person child = new Person(childName, null, null, getFullName(fatherName, ofHisName), null, null, null, null, null, null, null, null, null);
+            child.setHouse(houseName);
+            return child; // Normalized later by normalizeRecord
+        }
+        String normalizedChildrenName = HashTable.normalizeName(childName);
+        String fatherNormalizedName = HashTable.normalizeName(fatherName);
 
-        return new Person(fullName, title, nickname, father, mother, fate, ofHisName, eyesColor, hairColor, notes, wedTo, null, children);
+        // Create a new Person object for the child with minimal details
+        Person child = new Person(normalizedChildrenName, null, null, fatherNormalizedName, null, null, null, null, null, null, null, null, null);
+        // Set the parent as the father of the child
+        child.setFather(HashTable.normalizeName(getFullName(fatherName, ofHisName)));
+        child.setHouse(houseName);
+        return child;
     }
 
     /**
-     * Normalizes a name by standardizing the format for comparison. This method
-     * handles names with commas and other special characters.
+     * Normalizes the names of a record parsed with deferred normalization,
+     * exactly as a regular load would have while parsing.
      *
-     * @param name The name to normalize.
-     * @return The normalized name.
+     * @param person The parsed record.
+     * @param childStub True for a child stub created from "Father to", whose
+     * father reference is normalized as well.
      */
-    private String normalizeName(String name) {
-        if (name == null) {
-            return null;
+    void normalizeRecord(Person person, boolean childStub) {
+        person.setName(HashTable.normalizeName(person.getName()));
+        if (person.getNickname() != null) {
+            person.setNickname(HashTable.normalizeName(person.getNickname()));
+        }
+        if (childStub) {
+            person.setFather(HashTable.normalizeName(person.getFather()));
         }
-        // Remove commas and extra spaces, then convert to lowercase for consistent comparison
-        return name.trim().replace(",", "").toLowerCase();
+    }
+
+    /**
+     * Checks that the parser is on the expected token.
+     *
+     * @param parser The parser.
+     * @param expected The expected token.
+     * @throws IOException If the current token is a different one.
+     */
+    private void expect(JsonParser parser, JsonToken expected) throws IOException {
+        if (parser.currentToken() != expected) {
+            throw new IOException("Expected " + expected + " but found " + parser.currentToken()
+                    + " at " + parser.currentLocation());
+        }
+    }
+
+    /**
+     * Checks if a key is one of the details read into a Person. Other keys
+     * are ignored, whatever their value.
+     *
+     * @param key The key of a detail object.
+     * @return true if the value is stored.
+     */
+    private static boolean isDetail(String key) {
+        switch (key) {
+            case "Held title":
+            case "Known throughout as":
+            case "Born to":
+            case "Fate":
+            case "Of his name":
+            case "Of eyes":
+            case "Of hair":
+            case "Notes":
+            case "Wed to":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reports a malformed record in lenient mode, once per record.
+     *
+     * @param errors Receives the error, or null in strict mode.
+     * @param malformed True if the record was already reported.
+     * @param parser The parser, on the offending token.
+     * @param houseName The house being read, or null if unknown.
+     * @param personName The person being read, or null if unknown.
+     * @param message A description of the problem.
+     * @return True if the record must be skipped, which is never the case in
+     * strict mode.
+     */
+    private boolean markMalformed(ParseReport errors, boolean malformed, JsonParser parser, String houseName, String personName, String message) {
+        if (errors == null) {
+            return false; // Strict mode skips the detail silently
+        }
+        if (!malformed) {
+            errors.add(new ParseError(null, parser.currentTokenLocation().getByteOffset(), houseName, personName, message));
+        }
+        return true;
+    }
+
+    /**
+     * Reports content that is not valid JSON.
+     *
+     * @param errors Receives the error.
+     * @param error The exception thrown by the parser.
+     * @param houseName The house being read, or null if unknown.
+     */
+    private void reportInvalidJson(ParseReport errors, JsonProcessingException error, String houseName) {
+        String message = error.getOriginalMessage();
+        int context = message.indexOf(" (for ");
+        if (context > 0 && message.indexOf(" starting at [", context) > 0) {
+            message = message.substring(0, context); // A position within the parsed block, not the file
+        }
+        errors.add(new ParseError(null, errorOffset(error), houseName, null, "invalid JSON: " + message));
+    }
+
+    /**
+     * Get the offset of the byte that made the parser fail.
+     *
+     * @param error The exception thrown by the parser.
+     * @return The offset from the start of the parser's input, or -1 if
+     * unknown.
+     */
+    private static long errorOffset(JsonProcessingException error) {
+        JsonLocation location = error.getLocation();
+        // The parser reports the position after the offending byte
+        return location != null && location.getByteOffset() > 0 ? location.getByteOffset() - 1 : -1;
     }
 
     /**
@@ -180,4 +997,56 @@ public class LoadJson {
 //        // Use the parent's checkDuplicateChild method to verify if the child is already present
 ////        return parent.checkDuplicateChild(parent, childName,);
 //    }
+
+    /**
+     * A stream that counts the bytes read through it, used to report the
+     * progress of a compressed load in compressed bytes.
+     */
+    static class CountingInputStream extends FilterInputStream {
+
+        private volatile long count; // Bytes read so far, read by the progress reports
+
+        /**
+         * Constructs a counting stream.
+         *
+         * @param input The stream to count.
+         */
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        /**
+         * Get the number of bytes read so far.
+         *
+         * @return The number of bytes.
+         */
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long length) throws IOException {
+            long skipped = super.skip(length);
+            count += skipped;
+            return skipped;
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package edu.unimet.edd.utils;
+
+/**
+ * A malformed record found while loading a genealogy file in lenient mode:
+ * where it is in the file and what was wrong with it.
+ */
+public class ParseError {
+
+    private final String source; // The file the record is in, null while a single file is parsed
+    private final long byteOffset; // Offset of the offending token in the (decompressed) content
+    private final String houseName; // The house being read, null if unknown
+    private final String personName; // The person being read, null if unknown
+    private final String message; // What was wrong
+
+    /**
+     * Constructs a parse error.
+     *
+     * @param source The file the record is in, or null.
+     * @param byteOffset The offset of the offending token in the content.
+     * @param houseName The house being read, or null if unknown.
+     * @param personName The person being read, or null if unknown.
+     * @param message A description of the problem.
+     */
+    public ParseError(String source, long byteOffset, String houseName, String personName, String message) {
+        this.source = source;
+        this.byteOffset = byteOffset;
+        this.houseName = houseName;
+        this.personName = personName;
+        this.message = message;
+    }
+
+    /**
+     * Creates a copy of this error found in another part of the input.
+     *
+     * @param newSource The file the record is in, or null to keep the current
+     * one.
+     * @param shift The offset of the part in the whole content, added to the
+     * byte offset.
+     * @return The moved error.
+     */
+    ParseError moved(String newSource, long shift) {
+        return new ParseError(newSource != null ? newSource : source, byteOffset + shift, houseName, personName, message);
+    }
+
+    /**
+     * Retrieves the file the record is in.
+     *
+     * @return the source, or null while a single file is parsed
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Retrieves the offset of the offending token. For a compressed file it is
+     * an offset in the decompressed content.
+     *
+     * @return the byteOffset
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    /**
+     * Retrieves the house being read when the problem was found.
+     *
+     * @return the houseName, or null if unknown
+     */
+    public String getHouseName() {
+        return houseName;
+    }
+
+    /**
+     * Retrieves the person being read when the problem was found.
+     *
+     * @return the personName, or null if unknown
+     */
+    public String getPersonName() {
+        return personName;
+    }
+
+    /**
+     * Retrieves the description of the problem.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (source != null) {
+            text.append(source).append(", ");
+        }
+        text.append("byte ").append(byteOffset);
+        if (houseName != null) {
+            text.append(", ").append(houseName);
+        }
+        if (personName != null) {
+            text.append(", ").append(personName);
+        }
+        return text.append(": ").append(message).toString();
+    }
+}
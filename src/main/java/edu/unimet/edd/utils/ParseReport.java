@@ -0,0 +1,163 @@
+package edu.unimet.edd.utils;
+
+import edu.unimet.edd.tree.GenericLinkedList;
+import edu.unimet.edd.tree.GenericNode;
+
+/**
+ * The malformed records skipped by a lenient load. Passing a report to
+ * {@link IngestPipeline#stage(java.nio.file.Path, edu.unimet.edd.listeners.LoadProgressListener, ParseReport)}
+ * turns lenient parsing on: a record that does not have the expected layout
+ * is recorded here with its byte offset and skipped, and the load goes on
+ * with the next one.
+ * <p>
+ * Only the first MAX_STORED_ERRORS errors are kept, so a file that is
+ * garbage from start to end cannot fill the memory with errors; the rest are
+ * still counted.
+ * </p>
+ */
+public class ParseReport {
+
+    /**
+     * The largest number of errors kept in the report.
+     */
+    public static final int MAX_STORED_ERRORS = 1000;
+
+    private GenericLinkedList<ParseError> errors = new GenericLinkedList<>(); // The first errors, in file order
+    private int errorCount; // Every error found, stored or not
+    private boolean truncated; // True if the input ended inside unfinished JSON
+
+    /**
+     * Adds an error to the report.
+     *
+     * @param error The error to add.
+     */
+    public void add(ParseError error) {
+        errorCount++;
+        if (errors.getSize() < MAX_STORED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Adds the errors found in one part of the input, such as a house parsed
+     * on its own, moving their offsets to the whole content.
+     *
+     * @param other The errors of the part.
+     * @param shift The offset of the part in the whole content.
+     */
+    public void addAll(ParseReport other, long shift) {
+        addAll(other, null, shift);
+    }
+
+    /**
+     * Adds the errors found in one of several files loaded together.
+     *
+     * @param other The errors of the file.
+     * @param source The name of the file.
+     */
+    public void addAll(ParseReport other, String source) {
+        addAll(other, source, 0);
+    }
+
+    /**
+     * Marks the input as ending before its JSON was complete. Every record
+     * before the end was kept.
+     */
+    public void markTruncated() {
+        truncated = true;
+    }
+
+    /**
+     * Checks if the input ended before its JSON was complete.
+     *
+     * @return true if the input was cut short.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Retrieves the stored errors, at most MAX_STORED_ERRORS.
+     *
+     * @return The errors in the order they were found.
+     */
+    public GenericLinkedList<ParseError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Get the number of errors found, including those not stored.
+     *
+     * @return The number of errors.
+     */
+    public int size() {
+        return errorCount;
+    }
+
+    /**
+     * Checks if the input was read without errors.
+     *
+     * @return true if no errors were found, false otherwise.
+     */
+    public boolean isEmpty() {
+        return errorCount == 0 && !truncated;
+    }
+
+    /**
+     * Removes every error from the report.
+     */
+    public void clear() {
+        errors = new GenericLinkedList<>();
+        errorCount = 0;
+        truncated = false;
+    }
+
+    /**
+     * Builds a short summary of the errors.
+     *
+     * @return The summary text.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Lenient load skipped ").append(errorCount).append(" malformed record(s)");
+        GenericNode<ParseError> first = errors.getFirst();
+        if (first != null) {
+            summary.append("\nFirst error: ").append(first.getData());
+        }
+        if (truncated) {
+            summary.append("\nThe input ended before its JSON was complete; the records before the end were kept.");
+        }
+        if (errorCount > errors.getSize()) {
+            summary.append("\nOnly the first ").append(errors.getSize()).append(" errors were kept.");
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(getSummary());
+        GenericNode<ParseError> current = errors.getFirst();
+        while (current != null) {
+            text.append("\n").append(current.getData());
+            current = current.getNext();
+        }
+        return text.toString();
+    }
+
+    /**
+     * Adds the errors of another report, moving them to a file and offset.
+     *
+     * @param other The errors to add.
+     * @param source The file of the errors, or null to keep their own.
+     * @param shift The offset added to every error.
+     */
+    private void addAll(ParseReport other, String source, long shift) {
+        for (GenericNode<ParseError> node = other.errors.getFirst(); node != null; node = node.getNext()) {
+            if (errors.getSize() < MAX_STORED_ERRORS) {
+                errors.add(node.getData().moved(source, shift));
+            }
+        }
+        errorCount += other.errorCount;
+        truncated |= other.truncated;
+    }
+}
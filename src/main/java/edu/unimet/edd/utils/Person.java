@@ -1,6 +1,7 @@
 package edu.unimet.edd.utils;
 
 import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.tree.RegisterDiff;
 
 /**
  * Represents a person in the genealogy tree.
@@ -19,7 +20,16 @@ public class Person {
     private String notes = null;
     private String wedTo = null;
     private Integer generation = null;
+    private String house = null;
     private PersonLinkedList children;
+    private RecordSource detailsSource = null; // Where Fate and Notes are read from in a lazy load
+    private long detailsOffset = -1; // Offset of the details array in the source, -1 if not recorded
+    private int detailsLength; // Length of the details array in bytes
+    private ColdFieldStore coldStore = null; // Side file holding the cold fields in memory-budget mode
+    private long coldOffset = -1; // Offset of the record in the side file
+    private int overridden; // Cold fields set since they left memory, one bit per ColdFieldStore index
+    private long fingerprint; // Fingerprint of the details, valid while fingerprinted is true
+    private boolean fingerprinted; // False until the fingerprint is computed and after any detail is set
 
     /**
      * Constructs a new Person object.
@@ -110,6 +120,7 @@ public class Person {
             StringBuilder details = new StringBuilder();
             details.append("Details of the person: \n");
             details.append("Name: ").append(this.getName()).append("\n");
+            details.append("House: ").append(this.getHouse() != null ? this.getHouse() : "Unknown").append("\n");
             details.append("Title: ").append(this.getTitle() != null ? this.getTitle() : "None").append("\n");
             details.append("Nickname: ").append(this.getNickname() != null ? this.getNickname() : "None").append("\n");
             details.append("Father: ").append(this.getFather() != null ? this.getFather() : "Unknown").append("\n");
@@ -172,6 +183,9 @@ public class Person {
         if (newPerson.getChildren() != null && newPerson.getChildren().size() > 0) {
             this.setChildren(newPerson.getChildren());
         }
+        if (newPerson.getHouse() != null && !newPerson.getHouse().isEmpty()) {
+            this.setHouse(newPerson.getHouse());
+        }
     }
 
     /**
@@ -242,6 +256,7 @@ public class Person {
      */
     public void setName(String name) {
         this.name = name;
+        this.fingerprinted = false;
     }
 
     /**
@@ -258,6 +273,7 @@ public class Person {
      */
     public void setTitle(String title) {
         this.title = title;
+        this.fingerprinted = false;
     }
 
     /**
@@ -274,6 +290,7 @@ public class Person {
      */
     public void setNickname(String nickname) {
         this.nickname = nickname;
+        this.fingerprinted = false;
     }
 
     /**
@@ -290,6 +307,7 @@ public class Person {
      */
     public void setFather(String father) {
         this.father = father;
+        this.fingerprinted = false;
     }
 
     /**
@@ -306,13 +324,22 @@ public class Person {
      */
     public void setMother(String mother) {
         this.mother = mother;
+        this.fingerprinted = false;
     }
 
     /**
-     * Retrieves the fate of the person.
+     * Retrieves the fate of the person. After a lazy load it is decoded from
+     * the source file on every call, and in memory-budget mode it is read from
+     * the cold field store, unless it was set afterwards.
      * @return the fate
      */
     public String getFate() {
+        if (coldStore != null && !isOverridden(ColdFieldStore.FATE)) {
+            return coldStore.read(coldOffset, ColdFieldStore.FATE);
+        }
+        if (detailsSource != null && !isOverridden(ColdFieldStore.FATE)) {
+            return detailsSource.readDetail(detailsOffset, detailsLength, "Fate");
+        }
         return fate;
     }
 
@@ -322,6 +349,8 @@ public class Person {
      */
     public void setFate(String fate) {
         this.fate = fate;
+        this.fingerprinted = false;
+        this.overridden |= 1 << ColdFieldStore.FATE; // Even null replaces the stored value
     }
 
     /**
@@ -338,6 +367,7 @@ public class Person {
      */
     public void setChildren(PersonLinkedList children) {
         this.children = children;
+        this.fingerprinted = false;
     }
 
     /**
@@ -354,13 +384,18 @@ public class Person {
      */
     public void setOfHisName(String ofHisName) {
         this.ofHisName = ofHisName;
+        this.fingerprinted = false;
     }
 
     /**
-     * Retrieves the eye color of the person.
+     * Retrieves the eye color of the person, from the cold field store in
+     * memory-budget mode unless it was set afterwards.
      * @return the eyesColor
      */
     public String getEyesColor() {
+        if (coldStore != null && !isOverridden(ColdFieldStore.EYES_COLOR)) {
+            return coldStore.read(coldOffset, ColdFieldStore.EYES_COLOR);
+        }
         return eyesColor;
     }
 
@@ -370,13 +405,19 @@ public class Person {
      */
     public void setEyesColor(String eyesColor) {
         this.eyesColor = eyesColor;
+        this.fingerprinted = false;
+        this.overridden |= 1 << ColdFieldStore.EYES_COLOR; // Even null replaces the stored value
     }
 
     /**
-     * Retrieves the hair color of the person.
+     * Retrieves the hair color of the person, from the cold field store in
+     * memory-budget mode unless it was set afterwards.
      * @return the hairColor
      */
     public String getHairColor() {
+        if (coldStore != null && !isOverridden(ColdFieldStore.HAIR_COLOR)) {
+            return coldStore.read(coldOffset, ColdFieldStore.HAIR_COLOR);
+        }
         return hairColor;
     }
 
@@ -386,13 +427,24 @@ public class Person {
      */
     public void setHairColor(String hairColor) {
         this.hairColor = hairColor;
+        this.fingerprinted = false;
+        this.overridden |= 1 << ColdFieldStore.HAIR_COLOR; // Even null replaces the stored value
     }
 
     /**
-     * Retrieves additional notes about the person.
+     * Retrieves additional notes about the person. After a lazy load they are
+     * decoded from the source file on every call, and in memory-budget mode
+     * they are read from the cold field store, unless they were set
+     * afterwards.
      * @return the notes
      */
     public String getNotes() {
+        if (coldStore != null && !isOverridden(ColdFieldStore.NOTES)) {
+            return coldStore.read(coldOffset, ColdFieldStore.NOTES);
+        }
+        if (detailsSource != null && !isOverridden(ColdFieldStore.NOTES)) {
+            return detailsSource.readDetail(detailsOffset, detailsLength, "Notes");
+        }
         return notes;
     }
 
@@ -402,13 +454,19 @@ public class Person {
      */
     public void setNotes(String notes) {
         this.notes = notes;
+        this.fingerprinted = false;
+        this.overridden |= 1 << ColdFieldStore.NOTES; // Even null replaces the stored value
     }
 
     /**
-     * Retrieves the name of the person the individual is wed to.
+     * Retrieves the name of the person the individual is wed to, from the
+     * cold field store in memory-budget mode unless it was set afterwards.
      * @return the wedTo
      */
     public String getWedTo() {
+        if (coldStore != null && !isOverridden(ColdFieldStore.WED_TO)) {
+            return coldStore.read(coldOffset, ColdFieldStore.WED_TO);
+        }
         return wedTo;
     }
 
@@ -418,6 +476,8 @@ public class Person {
      */
     public void setWedTo(String wedTo) {
         this.wedTo = wedTo;
+        this.fingerprinted = false;
+        this.overridden |= 1 << ColdFieldStore.WED_TO; // Even null replaces the stored value
     }
 
     /**
@@ -436,4 +496,128 @@ public class Person {
         this.generation = generation;
     }
 
+    /**
+     * Retrieves the house (lineage) the person was registered under.
+     * @return the house
+     */
+    public String getHouse() {
+        return house;
+    }
+
+    /**
+     * Sets the house (lineage) the person was registered under.
+     * @param house the house to set
+     */
+    public void setHouse(String house) {
+        this.house = house;
+        this.fingerprinted = false;
+    }
+
+    /**
+     * Retrieves the fingerprint of every detail of the person (see
+     * {@link RegisterDiff#fingerprint(Person)}). It is computed on the first
+     * call, which a reload makes when the record is indexed, and kept until a
+     * detail is set, so later reloads compare it without reading the details
+     * back from the source file or the cold field store. Changes made through
+     * the children list itself are not seen.
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        if (!fingerprinted) {
+            fingerprint = RegisterDiff.fingerprint(this);
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Checks if Fate and Notes are left in the source file instead of being
+     * held in memory.
+     * @return true if they are read on demand
+     */
+    public boolean hasLazyDetails() {
+        return detailsSource != null;
+    }
+
+    /**
+     * Checks if Fate and Notes are read on demand from a file that changed
+     * after the load, so they can no longer be read.
+     * @return true if the details were lost
+     */
+    public boolean hasStaleDetails() {
+        return detailsSource != null && !detailsSource.isCurrent();
+    }
+
+    /**
+     * Records where the details array of this person is in the parsed input,
+     * in place of its Fate and Notes.
+     * @param offset the offset of the array in the parsed input
+     * @param length the length of the array in bytes
+     */
+    void setDetailsRange(long offset, int length) {
+        this.detailsOffset = offset;
+        this.detailsLength = length;
+    }
+
+    /**
+     * Moves the recorded details range by the offset of the parsed part in
+     * the whole file.
+     * @param shift the offset of the part
+     */
+    void shiftDetailsRange(long shift) {
+        if (detailsOffset >= 0) {
+            detailsOffset += shift;
+        }
+    }
+
+    /**
+     * Attaches the file the recorded details range points into. Does nothing
+     * if no range was recorded.
+     * @param source the mapped file
+     */
+    void bindDetailsSource(RecordSource source) {
+        if (detailsOffset >= 0) {
+            this.detailsSource = source;
+            this.overridden &= ~(1 << ColdFieldStore.FATE | 1 << ColdFieldStore.NOTES);
+        }
+    }
+
+    /**
+     * Checks if the cold fields of this person were moved to a cold field
+     * store.
+     * @return true if they are read from the side file
+     */
+    public boolean hasSpilledFields() {
+        return coldStore != null;
+    }
+
+    /**
+     * Drops the cold fields from memory once they were written to a store.
+     * They are read from the store from then on, and the source file of a
+     * lazy load is no longer needed.
+     * @param store the store holding the fields
+     * @param offset the offset of the record in the store
+     */
+    void moveColdFields(ColdFieldStore store, long offset) {
+        this.coldStore = store;
+        this.coldOffset = offset;
+        this.fate = null;
+        this.notes = null;
+        this.eyesColor = null;
+        this.hairColor = null;
+        this.wedTo = null;
+        this.detailsSource = null;
+        this.overridden = 0;
+    }
+
+    /**
+     * Checks if a cold field was set after it left memory, so the value in
+     * memory wins over the store and the source file, even when it is null.
+     * @param field the index of the field in a ColdFieldStore record
+     * @return true if the field was set afterwards
+     */
+    private boolean isOverridden(int field) {
+        return (overridden & 1 << field) != 0;
+    }
+
 }
@@ -7,6 +7,7 @@ package edu.unimet.edd.utils;
 public class PersonLinkedList {
 
     private Node head;  // Head node of the list
+    private Node tail;  // Last node of the list, so appends are O(1)
     private int size;   // Size of the list
 
     
@@ -16,6 +17,7 @@ public class PersonLinkedList {
     */
     public PersonLinkedList() {
         this.head = null;
+        this.tail = null;
         this.size = 0;
     }
 
@@ -29,12 +31,9 @@ public class PersonLinkedList {
         if (head == null) {
             head = newNode;
         } else {
-            Node current = head;
-            while (current.getNext() != null) {
-                current = current.getNext();
-            }
-            current.setNext(newNode);
+            tail.setNext(newNode);
         }
+        tail = newNode;
         size++;
     }
 
@@ -48,12 +47,9 @@ public class PersonLinkedList {
         if (head == null) {
             head = newNode;
         } else {
-            Node current = head;
-            while (current.getNext() != null) {
-                current = current.getNext();
-            }
-            current.setNext(newNode);
+            tail.setNext(newNode);
         }
+        tail = newNode;
         size++;
     }
 
@@ -151,6 +147,9 @@ public class PersonLinkedList {
         // Special case: the value to remove is at the head of the list
         if (head.getValue().equals(value)) {
             head = head.getNext(); // Move head to the next node
+            if (head == null) {
+                tail = null;
+            }
             size--;
             return true;
         }
@@ -160,6 +159,9 @@ public class PersonLinkedList {
         while (current.getNext() != null) {
             if (current.getNext().getValue().equals(value)) {
                 // Found the node, remove it by skipping it
+                if (current.getNext() == tail) {
+                    tail = current;
+                }
                 current.setNext(current.getNext().getNext());
                 size--;
                 return true;
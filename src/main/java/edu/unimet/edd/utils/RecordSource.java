@@ -0,0 +1,155 @@
+package edu.unimet.edd.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * An uncompressed genealogy file mapped into memory, from which the long
+ * details of a person (Fate and Notes) are decoded only when they are read.
+ * A lazy load records the byte range of each person's details array instead
+ * of building those Strings; the mapped pages are managed by the operating
+ * system and only take memory while they are being read.
+ * <p>
+ * The file must not change while its people are registered. Its size and
+ * modification time are checked before every read (at most once every
+ * CHECK_INTERVAL_MS), and once they change the source is stale: its details
+ * read as null, and the people loaded from it count as changed in a reload.
+ * </p>
+ */
+public class RecordSource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(); // Thread-safe, shared by every source
+    private static final long WINDOW_SIZE = 1L << 30; // Bytes per mapping; a buffer is limited to 2 GB
+    private static final long CHECK_INTERVAL_MS = 1000; // How long a check of the file stays valid
+
+    private final Path file; // The mapped file
+    private final long size; // Its size when it was mapped
+    private final FileTime modified; // Its modification time when it was mapped
+    private final MappedByteBuffer[] windows; // Consecutive mappings of WINDOW_SIZE bytes
+    private volatile long checkedAt; // When the file was last checked
+    private volatile boolean stale; // True once the file changed
+
+    /**
+     * Maps a file.
+     *
+     * @param file The uncompressed genealogy file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public RecordSource(Path file) throws IOException {
+        this.file = file;
+        this.modified = Files.getLastModifiedTime(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            int count = (int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE);
+            this.windows = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * WINDOW_SIZE;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            }
+        }
+        this.checkedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the mapped file.
+     *
+     * @return The path of the file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Checks that the file still has the size and modification time it had
+     * when it was mapped.
+     *
+     * @return true if the recorded ranges can still be read.
+     */
+    public boolean isCurrent() {
+        if (stale) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - checkedAt >= CHECK_INTERVAL_MS) {
+            try {
+                stale = Files.size(file) != size || !Files.getLastModifiedTime(file).equals(modified);
+            } catch (IOException e) {
+                stale = true; // Deleted or unreadable
+            }
+            checkedAt = now;
+        }
+        return !stale;
+    }
+
+    /**
+     * Decodes one detail from the details array of a person. When the key
+     * appears more than once the last value wins, as in an eager load.
+     *
+     * @param offset The offset of the details array in the file.
+     * @param length The length of the details array in bytes.
+     * @param key The key of the detail, for example "Notes".
+     * @return The value, or null if the person has none or the file changed.
+     */
+    public String readDetail(long offset, int length, String key) {
+        if (!isCurrent() || offset < 0 || offset + length > size) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = read(offset, length);
+        } catch (InternalError e) {
+            stale = true; // The file was truncated under the mapping
+            return null;
+        }
+
+        String value = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken token = parser.nextToken();
+                    if (name.equals(key) && token != JsonToken.START_ARRAY && token != JsonToken.START_OBJECT) {
+                        value = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            return null; // Not the range that was recorded
+        }
+        return value;
+    }
+
+    /**
+     * Copies a range of the file out of the mappings.
+     *
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @return The bytes.
+     */
+    private byte[] read(long offset, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            MappedByteBuffer window = windows[(int) (position / WINDOW_SIZE)];
+            int start = (int) (position % WINDOW_SIZE);
+            int count = Math.min(length - copied, window.capacity() - start);
+            window.get(start, bytes, copied, count);
+            copied += count;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,222 @@
+package edu.unimet.edd.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput counters of one stage of an {@link IngestPipeline}. Every worker
+ * of the stage adds to the same counters, so they can be read while the load
+ * runs and compared across stages afterwards.
+ * <p>
+ * Besides the work done, each stage records how long its workers waited on
+ * either side: a stage that often waits for input is starved by the one
+ * before it, and a stage that often waits to hand over its output is held
+ * back by the one after it. The bottleneck is the stage whose workers are
+ * busy for the largest share of the time.
+ * </p>
+ */
+public class StageCounters {
+
+    private final String name; // Name of the stage
+    private final LongAdder workers = new LongAdder(); // Worker threads that ran the stage
+    private final LongAdder items = new LongAdder(); // Blocks processed
+    private final LongAdder records = new LongAdder(); // Person records processed
+    private final LongAdder bytes = new LongAdder(); // Input bytes processed
+    private final LongAdder busyNanos = new LongAdder(); // Time spent working, summed over the workers
+    private final LongAdder inputWaitNanos = new LongAdder(); // Time spent waiting for input
+    private final LongAdder outputWaitNanos = new LongAdder(); // Time spent waiting for room downstream
+    private final AtomicLong startNanos = new AtomicLong(); // When the first worker started, 0 before
+    private final AtomicLong endNanos = new AtomicLong(); // When the last worker finished
+
+    /**
+     * Constructs the counters of a stage.
+     *
+     * @param name The name of the stage.
+     */
+    public StageCounters(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records that a worker started running the stage.
+     */
+    void workerStarted() {
+        workers.increment();
+        markStarted();
+    }
+
+    /**
+     * Records the start of the stage, unless it had already started.
+     */
+    void markStarted() {
+        startNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    /**
+     * Records that a worker finished running the stage.
+     */
+    void workerFinished() {
+        endNanos.accumulateAndGet(System.nanoTime(), Math::max);
+    }
+
+    /**
+     * Records one processed block.
+     *
+     * @param recordCount The person records in the block.
+     * @param byteCount The input bytes of the block.
+     * @param nanos The time spent processing it.
+     */
+    void addItem(long recordCount, long byteCount, long nanos) {
+        items.increment();
+        records.add(recordCount);
+        bytes.add(byteCount);
+        busyNanos.add(nanos);
+    }
+
+    /**
+     * Records time spent waiting for input.
+     *
+     * @param nanos The time waited.
+     */
+    void addInputWait(long nanos) {
+        inputWaitNanos.add(nanos);
+    }
+
+    /**
+     * Records time spent waiting for room in the next queue.
+     *
+     * @param nanos The time waited.
+     */
+    void addOutputWait(long nanos) {
+        outputWaitNanos.add(nanos);
+    }
+
+    /**
+     * Clears every counter before a new load.
+     */
+    void reset() {
+        workers.reset();
+        items.reset();
+        records.reset();
+        bytes.reset();
+        busyNanos.reset();
+        inputWaitNanos.reset();
+        outputWaitNanos.reset();
+        startNanos.set(0);
+        endNanos.set(0);
+    }
+
+    /**
+     * Get the name of the stage.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of worker threads that ran the stage.
+     *
+     * @return The number of workers.
+     */
+    public long getWorkers() {
+        return workers.sum();
+    }
+
+    /**
+     * Get the number of blocks processed.
+     *
+     * @return The number of blocks.
+     */
+    public long getItems() {
+        return items.sum();
+    }
+
+    /**
+     * Get the number of person records processed.
+     *
+     * @return The number of records.
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Get the number of input bytes processed.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Get the time the workers spent working, summed over the workers.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getBusyMillis() {
+        return busyNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * Get the time the workers spent waiting for input.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getInputWaitMillis() {
+        return inputWaitNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * Get the time the workers spent waiting for room in the next queue.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getOutputWaitMillis() {
+        return outputWaitNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * Get the time from the start of the first worker to the end of the
+     * last one.
+     *
+     * @return The time in milliseconds, 0 if the stage did not run.
+     */
+    public long getWallMillis() {
+        long start = startNanos.get();
+        long end = endNanos.get();
+        return start == 0 || end < start ? 0 : (end - start) / 1_000_000;
+    }
+
+    /**
+     * Get the share of the time the workers of the stage were busy.
+     *
+     * @return A value between 0 and 1.
+     */
+    public double getUtilization() {
+        long start = startNanos.get();
+        long end = endNanos.get();
+        long capacity = (end - start) * Math.max(1, workers.sum());
+        return start == 0 || capacity <= 0 ? 0 : Math.min(1.0, (double) busyNanos.sum() / capacity);
+    }
+
+    /**
+     * Get the number of person records processed per second of busy time of
+     * one worker.
+     *
+     * @return The records per second, 0 if the stage did no work.
+     */
+    public double getRecordsPerSecond() {
+        long busy = busyNanos.sum();
+        return busy == 0 ? 0 : records.sum() * 1e9 / busy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s %7d %7d %9d %9.1f %8d %6.1f%% %9d %9d %12.0f", name, getWorkers(), getItems(), getRecords(),
+                getBytes() / (1024.0 * 1024.0), getWallMillis(), getUtilization() * 100, getInputWaitMillis(),
+                getOutputWaitMillis(), getRecordsPerSecond());
+    }
+}
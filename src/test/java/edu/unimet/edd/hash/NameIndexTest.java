@@ -0,0 +1,85 @@
+package edu.unimet.edd.hash;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link NameIndex}, in particular that removing keys never hides
+ * the keys that probed past them.
+ */
+public class NameIndexTest {
+
+    /**
+     * Stored keys map to their ids and missing keys to -1.
+     */
+    @Test
+    public void getReturnsStoredIds() {
+        NameIndex index = new NameIndex();
+        index.put("eddard stark", 0);
+        index.put("jon snow", 1);
+
+        assertEquals(0, index.get("eddard stark"));
+        assertEquals(1, index.get("jon snow"));
+        assertEquals(-1, index.get("robb stark"));
+        assertEquals(-1, index.get(null));
+        assertEquals(2, index.size());
+    }
+
+    /**
+     * putIfAbsent keeps the first id of a key and reports whether it stored
+     * anything, while put replaces it.
+     */
+    @Test
+    public void putIfAbsentKeepsTheFirstId() {
+        NameIndex index = new NameIndex();
+
+        assertTrue(index.putIfAbsent("arya stark", 3));
+        assertFalse(index.putIfAbsent("arya stark", 4));
+        assertEquals(3, index.get("arya stark"));
+
+        index.put("arya stark", 5);
+        assertEquals(5, index.get("arya stark"));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * A removed key is gone and can be stored again.
+     */
+    @Test
+    public void removeDeletesTheKey() {
+        NameIndex index = new NameIndex();
+        index.put("sansa stark", 7);
+
+        assertTrue(index.remove("sansa stark"));
+        assertFalse(index.remove("sansa stark"));
+        assertEquals(-1, index.get("sansa stark"));
+        assertEquals(0, index.size());
+
+        assertTrue(index.putIfAbsent("sansa stark", 8));
+        assertEquals(8, index.get("sansa stark"));
+    }
+
+    /**
+     * Removing every other key of a crowded index, through several resizes,
+     * leaves every remaining key reachable.
+     */
+    @Test
+    public void removeKeepsTheOtherKeysReachable() {
+        NameIndex index = new NameIndex(4);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            index.put("person " + i, i);
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(index.remove("person " + i));
+        }
+
+        assertEquals(count / 2, index.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? -1 : i, index.get("person " + i), "person " + i);
+        }
+    }
+}
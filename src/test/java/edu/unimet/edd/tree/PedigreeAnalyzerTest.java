@@ -0,0 +1,128 @@
+package edu.unimet.edd.tree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.unimet.edd.utils.Person;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@link PedigreeAnalyzer#findCollapsedPeople()} agrees with the
+ * analysis of each person on its own.
+ */
+public class PedigreeAnalyzerTest {
+
+    private static final int GENERATIONS = 300; // Depth of the generated house
+    private static final int LORDS = 4; // Lords of the house in each generation
+
+    /**
+     * Creates a record with a name, a father and a mother.
+     *
+     * @param name The name of the person.
+     * @param father The father, or "[Unknown]".
+     * @param mother The mother, or null.
+     * @return The record.
+     */
+    private static Person person(String name, String father, String mother) {
+        return new Person(name, null, null, father, mother, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Builds one deep house descending from a single founder. Each lord has
+     * two sons with a wife who is either a cousin from the house or an
+     * outsider whose founder father has another daughter, so there are far
+     * more founders than signature bits and most couples have overlapping
+     * signatures whether or not their ancestries meet.
+     *
+     * @param seed The seed of the random choices.
+     * @param cousinRate The chance that a lord marries inside the house.
+     * @return The register, the founder first.
+     */
+    private static Person[] deepHouse(long seed, double cousinRate) {
+        Random random = new Random(seed);
+        Person[] people = new Person[1 + (GENERATIONS - 1) * LORDS * 5];
+        int count = 0;
+        people[count++] = person("Lord 0 0", "[Unknown]", null);
+        String[] lords = {"Lord 0 0"};
+        for (int generation = 1; generation < GENERATIONS; generation++) {
+            String[] sons = new String[LORDS * 2];
+            for (int i = 0; i < LORDS; i++) {
+                String father = lords[random.nextInt(lords.length)];
+                String mother;
+                if (random.nextDouble() < cousinRate) {
+                    mother = lords[random.nextInt(lords.length)];
+                } else {
+                    String founder = "Founder " + generation + " " + i;
+                    mother = "Wife " + generation + " " + i;
+                    people[count++] = person(founder, "[Unknown]", null);
+                    people[count++] = person(mother, founder, null);
+                    people[count++] = person("Sister " + generation + " " + i, founder, null);
+                }
+                for (int son = 0; son < 2; son++) {
+                    sons[2 * i + son] = "Lord " + generation + " " + (2 * i + son);
+                    people[count++] = person(sons[2 * i + son], father, mother);
+                }
+            }
+            lords = sons;
+        }
+        return Arrays.copyOf(people, count);
+    }
+
+    /**
+     * Checks the whole-register scan against analyze() for every person.
+     *
+     * @param people The register.
+     * @return The number of people with a collapsed pedigree.
+     */
+    private static int assertMatchesAnalyze(Person[] people) {
+        GenealogyGraph graph = GenealogyGraph.build(people);
+        PedigreeAnalyzer analyzer = new PedigreeAnalyzer(graph);
+        boolean[] collapsed = analyzer.findCollapsedPeople();
+        int count = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            assertEquals(analyzer.analyze(id).hasCollapse(), collapsed[id], graph.getPerson(id).getName());
+            if (collapsed[id]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A deep house where lords only marry outsiders never collapses, even
+     * though the outsiders' families have other children.
+     */
+    @Test
+    public void deepHouseWithoutCousinMarriages() {
+        assertEquals(0, assertMatchesAnalyze(deepHouse(1, 0)));
+    }
+
+    /**
+     * A deep house with occasional cousin marriages matches analyze() for
+     * every person, collapsed or not.
+     */
+    @Test
+    public void deepHouseWithCousinMarriages() {
+        Person[] people = deepHouse(2, 0.02);
+        int collapsed = assertMatchesAnalyze(people);
+        assertTrue(collapsed > 0);
+        assertTrue(collapsed < people.length);
+    }
+
+    /**
+     * A second scan with the same analyzer gives the same result as the
+     * first.
+     */
+    @Test
+    public void scanCanBeRepeated() {
+        GenealogyGraph graph = GenealogyGraph.build(deepHouse(3, 0.05));
+        PedigreeAnalyzer analyzer = new PedigreeAnalyzer(graph);
+        boolean[] first = analyzer.findCollapsedPeople();
+        boolean[] second = analyzer.findCollapsedPeople();
+        for (int id = 0; id < graph.size(); id++) {
+            assertEquals(first[id], second[id], graph.getPerson(id).getName());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.unimet.edd.tree;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.unimet.edd.utils.Person;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RegisterDiff#compute(Person[], Person[])}.
+ */
+public class RegisterDiffTest {
+
+    /**
+     * Creates a record with a name, a father and notes.
+     *
+     * @param name The name of the person.
+     * @param father The "Born to" reference.
+     * @param notes The notes, or null.
+     * @return The record.
+     */
+    private static Person person(String name, String father, String notes) {
+        return new Person(name, null, null, father, null, null, null, null, null, notes, null, null, null);
+    }
+
+    /**
+     * Reloading the same records changes nothing, even when they are new
+     * objects.
+     */
+    @Test
+    public void identicalRegistersGiveAnEmptyDiff() {
+        Person[] current = {person("Eddard Stark", "Rickard Stark", "Lord of Winterfell")};
+        Person[] incoming = {person("Eddard Stark", "Rickard Stark", "Lord of Winterfell")};
+
+        RegisterDiff diff = RegisterDiff.compute(current, incoming);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.size());
+    }
+
+    /**
+     * New names are inserted, changed records are updated and missing names
+     * are removed by their normalized key.
+     */
+    @Test
+    public void classifiesInsertsUpdatesAndRemoves() {
+        Person[] current = {
+            person("Eddard Stark", "Rickard Stark", null),
+            person("Robb Stark", "Eddard Stark", null),
+            person("Rickon Stark", "Eddard Stark", null)
+        };
+        Person added = person("Arya Stark", "Eddard Stark", null);
+        Person edited = person("Robb Stark", "Eddard Stark", "King in the North");
+        Person[] incoming = {person("Eddard Stark", "Rickard Stark", null), edited, added};
+
+        RegisterDiff diff = RegisterDiff.compute(current, incoming);
+
+        assertArrayEquals(new Person[]{added}, diff.getInserts());
+        assertArrayEquals(new Person[]{edited}, diff.getUpdates());
+        assertArrayEquals(new String[]{"rickon stark"}, diff.getRemoves());
+        assertEquals(0, diff.getDuplicates().length);
+        assertEquals(3, diff.size());
+    }
+
+    /**
+     * Names are matched after normalization, so a change of case or commas
+     * alone is not an insert and a remove.
+     */
+    @Test
+    public void matchesNormalizedNames() {
+        Person[] current = {person("Stark, Eddard", "Rickard Stark", null)};
+        Person[] incoming = {person("stark eddard", "Rickard Stark", null)};
+
+        RegisterDiff diff = RegisterDiff.compute(current, incoming);
+
+        assertEquals(0, diff.getInserts().length);
+        assertEquals(0, diff.getRemoves().length);
+        assertEquals(1, diff.getUpdates().length); // The name as written is part of the record
+    }
+
+    /**
+     * Only the first incoming record of a name is applied; the later ones are
+     * reported as duplicates instead of being inserted or ignored silently.
+     */
+    @Test
+    public void reportsDuplicateIncomingRecords() {
+        Person[] current = {person("Eddard Stark", "Rickard Stark", null)};
+        Person first = person("Jon Snow", "Eddard Stark", "First record");
+        Person repeated = person("jon snow", "Eddard Stark", "Second record");
+        Person repeatedCurrent = person("Eddard Stark", "Rickard Stark", "Other record");
+        Person[] incoming = {person("Eddard Stark", "Rickard Stark", null), first, repeated, repeatedCurrent};
+
+        RegisterDiff diff = RegisterDiff.compute(current, incoming);
+
+        assertArrayEquals(new Person[]{first}, diff.getInserts());
+        assertEquals(0, diff.getUpdates().length);
+        assertEquals(0, diff.getRemoves().length);
+        assertEquals(2, diff.getDuplicates().length);
+        assertSame(repeated, diff.getDuplicates()[0]);
+        assertSame(repeatedCurrent, diff.getDuplicates()[1]);
+        assertTrue(diff.toString().contains("2 duplicate records ignored"));
+    }
+
+    /**
+     * The fingerprint kept on a record after a reload is dropped when a
+     * detail is set, so the edit is seen by the next reload.
+     */
+    @Test
+    public void seesDetailsSetAfterIndexing() {
+        Person robb = person("Robb Stark", "Eddard Stark", null);
+        Person[] current = {robb};
+        assertTrue(RegisterDiff.compute(current, new Person[]{person("Robb Stark", "Eddard Stark", null)}).isEmpty());
+
+        robb.setNotes("King in the North");
+        RegisterDiff diff = RegisterDiff.compute(current, new Person[]{person("Robb Stark", "Eddard Stark", null)});
+
+        assertEquals(1, diff.getUpdates().length);
+        assertEquals(RegisterDiff.fingerprint(robb), robb.getFingerprint());
+    }
+}
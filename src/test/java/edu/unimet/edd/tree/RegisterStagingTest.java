@@ -0,0 +1,177 @@
+package edu.unimet.edd.tree;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.unimet.edd.utils.Person;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the resolution rules of {@link RegisterStaging}: which records
+ * are kept, and which father each one is linked to.
+ */
+public class RegisterStagingTest {
+
+    /**
+     * Creates a record with only a name, a father and a nickname.
+     *
+     * @param name The name of the person.
+     * @param father The "Born to" reference, or null.
+     * @param nickname The nickname, or null.
+     * @return The record.
+     */
+    private static Person person(String name, String father, String nickname) {
+        return new Person(name, null, nickname, father, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Get the names of resolved people, in order.
+     *
+     * @param people The resolved people.
+     * @return Their names.
+     */
+    private static String[] names(Person[] people) {
+        String[] names = new String[people.length];
+        for (int i = 0; i < people.length; i++) {
+            names[i] = people[i].getName();
+        }
+        return names;
+    }
+
+    /**
+     * Fathers are matched by normalized full name and the reference is
+     * rewritten to the father's normalized name; a father that is not in the
+     * register is left as written.
+     */
+    @Test
+    public void linksFathersByFullName() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+        staging.addPerson(person("Robb Stark", " Eddard, Stark ", null));
+
+        Person[] resolved = staging.resolve(new Person[0]);
+
+        assertArrayEquals(new String[]{"Eddard Stark", "Robb Stark"}, names(resolved));
+        assertEquals("Rickard Stark", resolved[0].getFather());
+        assertEquals("eddard stark", resolved[1].getFather());
+        assertEquals(1, staging.getLinkCount());
+    }
+
+    /**
+     * Records without a "Born to" reference are not registered.
+     */
+    @Test
+    public void skipsRecordsWithoutFather() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+        staging.addPerson(person("Nobody", null, null));
+
+        assertArrayEquals(new String[]{"Eddard Stark"}, names(staging.resolve(new Person[0])));
+    }
+
+    /**
+     * Among staged records with the same name, a full record wins over a
+     * child stub, and the first full record wins over later ones.
+     */
+    @Test
+    public void keepsOneRecordPerName() {
+        RegisterStaging staging = new RegisterStaging();
+        Person stub = person("Robb Stark", "Eddard Stark", null);
+        Person first = person("Robb Stark", "Eddard Stark", "The Young Wolf");
+        Person second = person("robb stark", "Eddard Stark", null);
+        staging.addChild(stub);
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+        staging.addPerson(first);
+        staging.addPerson(second);
+
+        Person[] resolved = staging.resolve(new Person[0]);
+
+        assertEquals(2, resolved.length);
+        assertSame(first, resolved[1]);
+    }
+
+    /**
+     * People already registered win over staged records with the same name,
+     * and staged people can be linked to them.
+     */
+    @Test
+    public void registeredPeopleWin() {
+        Person registered = person("Eddard Stark", "Rickard Stark", null);
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", "Ned"));
+        staging.addPerson(person("Arya Stark", "Eddard Stark", null));
+
+        Person[] resolved = staging.resolve(new Person[]{registered});
+
+        assertArrayEquals(new String[]{"Arya Stark"}, names(resolved));
+        assertEquals("eddard stark", resolved[0].getFather());
+    }
+
+    /**
+     * A father that is not found by full name is matched by first and last
+     * name, then by nickname.
+     */
+    @Test
+    public void matchesFathersByFirstAndLastNameThenNickname() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Aegon Targaryen the Conqueror", "Aerion Targaryen", null));
+        staging.addPerson(person("Aenys Targaryen", "Aegon Targaryen", null));
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", "Ned"));
+        staging.addPerson(person("Bran Stark", "Ned", null));
+
+        Person[] resolved = staging.resolve(new Person[0]);
+
+        assertEquals("aegon targaryen the conqueror", resolved[1].getFather());
+        assertEquals("eddard stark", resolved[3].getFather());
+    }
+
+    /**
+     * A staged person whose nickname is the name of somebody else is not
+     * registered.
+     */
+    @Test
+    public void skipsNicknamesThatNameSomebodyElse() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+        staging.addPerson(person("Impostor", "Rickard Stark", "Eddard Stark"));
+
+        assertArrayEquals(new String[]{"Eddard Stark"}, names(staging.resolve(new Person[0])));
+    }
+
+    /**
+     * A child stub is dropped when its father has a full record of a child
+     * with the same first name, and people whose father was matched to the
+     * stub are linked to that full record instead.
+     */
+    @Test
+    public void relinksFathersOfDroppedStubs() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+        staging.addChild(person("Jon", "Eddard Stark", null));
+        staging.addPerson(person("Jon Snow", "Eddard Stark", null));
+        staging.addPerson(person("Little Jon", "Jon", null));
+
+        Person[] resolved = staging.resolve(new Person[0]);
+
+        assertArrayEquals(new String[]{"Eddard Stark", "Jon Snow", "Little Jon"}, names(resolved));
+        assertEquals("eddard stark", resolved[1].getFather());
+        assertEquals("jon snow", resolved[2].getFather());
+    }
+
+    /**
+     * Child stubs that no full record replaces are registered after the full
+     * records.
+     */
+    @Test
+    public void keepsStubsWithoutFullRecord() {
+        RegisterStaging staging = new RegisterStaging();
+        staging.addChild(person("Rickon", "Eddard Stark", null));
+        staging.addPerson(person("Eddard Stark", "Rickard Stark", null));
+
+        Person[] resolved = staging.resolve(new Person[0]);
+
+        assertArrayEquals(new String[]{"Eddard Stark", "Rickon"}, names(resolved));
+        assertEquals("eddard stark", resolved[1].getFather());
+    }
+}
@@ -0,0 +1,167 @@
+package edu.unimet.edd.tree;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.unimet.edd.hash.HashTable;
+import edu.unimet.edd.utils.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@link SubtreeStats} patched one person at a time, directly or
+ * through Tree.reload, matches a full recount of the same register.
+ */
+public class SubtreeStatsTest {
+
+    /**
+     * The register before the additions: two houses, two lineages.
+     */
+    private static final String[][] BASE = {
+        {"Rickard Stark", "[Unknown]", "House Stark"},
+        {"Eddard Stark", "Rickard Stark", "House Stark"},
+        {"Benjen Stark", "Rickard Stark", "House Stark"},
+        {"Robb Stark", "Eddard Stark", "House Stark"},
+        {"Tywin Lannister", "[Unknown]", "House Lannister"},
+        {"Jaime Lannister", "Tywin Lannister", "House Lannister"}
+    };
+
+    /**
+     * The people added afterwards, in order: leaves under both lineages and
+     * a new lineage that ends up the deepest one.
+     */
+    private static final String[][] ADDED = {
+        {"Sansa Stark", "Eddard Stark", "House Stark"},
+        {"Eddard Stark II", "Robb Stark", "House Stark"},
+        {"Tyrion Lannister", "Tywin Lannister", "House Lannister"},
+        {"Aerys Targaryen", "[Unknown]", "House Targaryen"},
+        {"Rhaegar Targaryen", "Aerys Targaryen", "House Targaryen"},
+        {"Jon Targaryen", "Rhaegar Targaryen", "House Targaryen"},
+        {"Aemon Targaryen", "Jon Targaryen", "House Targaryen"},
+        {"Baelor Targaryen", "Aemon Targaryen", "House Targaryen"}
+    };
+
+    /**
+     * Empties the shared register before each test.
+     */
+    @BeforeEach
+    public void clearRegister() {
+        HashTable.getInstance().removeAll();
+    }
+
+    /**
+     * Creates the records of a table of rows.
+     *
+     * @param rows Each row holds a name, a father and a house.
+     * @return The records.
+     */
+    private static Person[] people(String[][] rows) {
+        Person[] people = new Person[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            people[i] = new Person(rows[i][0], null, null, rows[i][1], null, null, null, null, null, null, null, null, null);
+            people[i].setHouse(rows[i][2]);
+        }
+        return people;
+    }
+
+    /**
+     * Concatenates two arrays of records.
+     *
+     * @param first The first records.
+     * @param second The records that follow.
+     * @return Both, in order.
+     */
+    private static Person[] concat(Person[] first, Person[] second) {
+        Person[] all = new Person[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    /**
+     * Get the names of people by id.
+     *
+     * @param stats The statistics the ids belong to.
+     * @param ids The ids.
+     * @return The names.
+     */
+    private static String[] names(SubtreeStats stats, int[] ids) {
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = stats.getPerson(ids[i]).getName();
+        }
+        return names;
+    }
+
+    /**
+     * Checks that two statistics agree on every person, lineage and house,
+     * matching people by name since their ids may differ.
+     *
+     * @param expected The statistics of a full recount.
+     * @param actual The patched statistics.
+     */
+    private static void assertSameStats(SubtreeStats expected, SubtreeStats actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            String name = expected.getPerson(id).getName();
+            int other = actual.getId(name);
+            assertEquals(expected.getSubtreeSize(id), actual.getSubtreeSize(other), name);
+            assertEquals(expected.getHeight(id), actual.getHeight(other), name);
+            assertEquals(expected.getChildCount(id), actual.getChildCount(other), name);
+        }
+        assertEquals(expected.getPerson(expected.getLargestLineage()).getName(),
+                actual.getPerson(actual.getLargestLineage()).getName());
+        assertEquals(expected.getPerson(expected.getDeepestLine()).getName(),
+                actual.getPerson(actual.getDeepestLine()).getName());
+        assertArrayEquals(names(expected, expected.getLargestLineages(3)), names(actual, actual.getLargestLineages(3)));
+        for (String house : expected.getHouses()) {
+            HouseSummary want = expected.getHouseSummary(house);
+            HouseSummary got = actual.getHouseSummary(house);
+            assertEquals(want.getMemberCount(), got.getMemberCount(), house);
+            assertEquals(want.getRootCount(), got.getRootCount(), house);
+            assertEquals(want.getLargestLineageSize(), got.getLargestLineageSize(), house);
+            assertEquals(want.getDeepestLineHeight(), got.getDeepestLineHeight(), house);
+        }
+    }
+
+    /**
+     * People added one at a time with addPerson give the same figures as
+     * recounting the grown register, including the lineage and house maxima
+     * that the additions overtake.
+     */
+    @Test
+    public void addPersonMatchesRecount() {
+        Person[] base = people(BASE);
+        Person[] added = people(ADDED);
+        SubtreeStats patched = new SubtreeStats(GenealogyGraph.build(base));
+        for (Person person : added) {
+            patched.addPerson(person, patched.getId(person.getFather()));
+        }
+
+        SubtreeStats recounted = new SubtreeStats(GenealogyGraph.build(concat(base, added)));
+
+        assertSameStats(recounted, patched);
+        assertEquals("Aerys Targaryen", patched.getPerson(patched.getDeepestLine()).getName());
+        assertEquals("Rickard Stark", patched.getPerson(patched.getLargestLineage()).getName());
+    }
+
+    /**
+     * A reload that only adds people keeps the cached statistics object and
+     * patches it to the figures of a full recount.
+     */
+    @Test
+    public void insertOnlyReloadPatchesCachedStats() {
+        Tree tree = new Tree();
+        Person[] base = people(BASE);
+        tree.reload(base);
+        SubtreeStats cached = tree.getSubtreeStats();
+
+        Person[] grown = concat(people(BASE), people(ADDED));
+        RegisterDiff diff = tree.reload(grown);
+
+        assertEquals(ADDED.length, diff.getInserts().length);
+        assertSame(cached, tree.getSubtreeStats());
+        assertSameStats(new SubtreeStats(GenealogyGraph.build(HashTable.getInstance().getAllPeople())), cached);
+    }
+}
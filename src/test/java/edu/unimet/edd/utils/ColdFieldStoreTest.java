@@ -0,0 +1,122 @@
+package edu.unimet.edd.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@link ColdFieldStore} gives back the cold fields it was given,
+ * keeps the recently read records in its cache and lets setters override
+ * what it holds.
+ */
+public class ColdFieldStoreTest {
+
+    /**
+     * Creates a record with every cold field set.
+     *
+     * @param name The name of the person.
+     * @param notes The notes, or null.
+     * @return The record.
+     */
+    private static Person person(String name, String notes) {
+        return new Person(name, "Lord", null, "[Unknown]", null, name + " died", null, "grey", "dark", notes, "Catelyn Tully", null, null);
+    }
+
+    /**
+     * Spilled fields read back as they were, null and empty values included,
+     * while the hot fields stay in memory. A record larger than the write
+     * buffer and a person without any cold field are handled too.
+     *
+     * @throws IOException If the side file cannot be created.
+     */
+    @Test
+    public void readsBackSpilledFields() throws IOException {
+        StringBuilder longNotes = new StringBuilder();
+        while (longNotes.length() < 100_000) {
+            longNotes.append("Winter is coming é ");
+        }
+        Person eddard = person("Eddard Stark", "Lord of Winterfell");
+        Person empty = person("Benjen Stark", "");
+        Person large = person("Rickard Stark", longNotes.toString());
+        Person bare = new Person("Brandon Stark", null, null, "Rickard Stark", null, null, null, null, null, null, null, null, null);
+
+        try (ColdFieldStore store = new ColdFieldStore(ColdFieldStore.DEFAULT_CACHE_SIZE)) {
+            assertEquals(3, store.spill(new Person[]{eddard, null, empty, large, bare}));
+            assertEquals(0, store.spill(new Person[]{eddard, large})); // Already moved
+
+            assertTrue(eddard.hasSpilledFields());
+            assertFalse(bare.hasSpilledFields());
+            assertEquals("Eddard Stark died", eddard.getFate());
+            assertEquals("Lord of Winterfell", eddard.getNotes());
+            assertEquals("grey", eddard.getEyesColor());
+            assertEquals("dark", eddard.getHairColor());
+            assertEquals("Catelyn Tully", eddard.getWedTo());
+            assertEquals("Lord", eddard.getTitle());
+            assertEquals("", empty.getNotes());
+            assertEquals(longNotes.toString(), large.getNotes());
+            assertEquals("Rickard Stark died", large.getFate());
+            assertTrue(store.getSize() > longNotes.length());
+        }
+    }
+
+    /**
+     * The cache keeps the most recently read records and evicts the least
+     * recently read one when it is full.
+     *
+     * @throws IOException If the side file cannot be created.
+     */
+    @Test
+    public void evictsTheLeastRecentlyReadRecord() throws IOException {
+        Person a = person("Arya Stark", null);
+        Person b = person("Bran Stark", null);
+        Person c = person("Sansa Stark", null);
+
+        try (ColdFieldStore store = new ColdFieldStore(2)) {
+            store.spill(new Person[]{a, b, c});
+            a.getFate(); // Miss
+            b.getFate(); // Miss
+            a.getNotes(); // Hit, b is now the least recently read
+            c.getFate(); // Miss, evicts b
+            assertEquals(1, store.getHits());
+            assertEquals(3, store.getMisses());
+
+            a.getWedTo(); // Hit
+            c.getEyesColor(); // Hit
+            assertEquals(3, store.getHits());
+            assertEquals(3, store.getMisses());
+
+            assertEquals("Bran Stark died", b.getFate()); // Miss, read again from the file
+            assertEquals(4, store.getMisses());
+        }
+    }
+
+    /**
+     * A setter overrides the stored value, even with null, and leaves the
+     * other fields in the store.
+     *
+     * @throws IOException If the side file cannot be created.
+     */
+    @Test
+    public void settersOverrideSpilledFields() throws IOException {
+        Person eddard = person("Eddard Stark", "Lord of Winterfell");
+
+        try (ColdFieldStore store = new ColdFieldStore(ColdFieldStore.DEFAULT_CACHE_SIZE)) {
+            store.spill(new Person[]{eddard});
+            long spilled = eddard.getFingerprint();
+
+            eddard.setNotes(null);
+            eddard.setWedTo("Ashara Dayne");
+
+            assertNull(eddard.getNotes());
+            assertEquals("Ashara Dayne", eddard.getWedTo());
+            assertEquals("Eddard Stark died", eddard.getFate());
+            assertEquals("grey", eddard.getEyesColor());
+            assertNotEquals(spilled, eddard.getFingerprint());
+        }
+    }
+}
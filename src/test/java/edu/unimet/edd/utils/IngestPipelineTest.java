@@ -0,0 +1,282 @@
+package edu.unimet.edd.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.unimet.edd.tree.GenericNode;
+import edu.unimet.edd.tree.RegisterDiff;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the way {@link IngestPipeline} cuts its input into blocks, and
+ * how many workers parse them, never changes the staged register or the
+ * errors of a lenient load.
+ */
+public class IngestPipelineTest {
+
+    private static final int HOUSES = 4; // Houses of the generated register
+    private static final int MEMBERS = 40; // Members of each house
+
+    /**
+     * A house whose second member misses a comma inside its details, with
+     * Fate and Notes around the damage.
+     */
+    private static final String DAMAGED_HOUSE = "\"House Damaged\": ["
+            + "{\"Damaged A\": [{\"Born to\": \"[Unknown]\"}, {\"Notes\": \"Before [the] damage\"}]}, "
+            + "{\"Damaged B\": [{\"Born to\": \"X\"} {\"Fate\": \"y\"}]}, "
+            + "{\"Damaged C\": [{\"Born to\": \"[Unknown]\"}, {\"Fate\": \"After, \\\"the\\\" damage\"}]}]";
+
+    /**
+     * Pipelines from one byte per block and single workers, so every member
+     * is its own block, up to the default block size, so every house is one
+     * block.
+     */
+    private static final IngestPipeline[] PIPELINES = {
+        new IngestPipeline(1, 1, 1, 1),
+        new IngestPipeline(2, 1, 1, 64),
+        new IngestPipeline(4, 2, 3, 300),
+        new IngestPipeline(3, 2, 2, IngestPipeline.DEFAULT_BLOCK_SIZE)
+    };
+
+    /**
+     * Get the house name of a generated house, as written in the JSON. The
+     * second house has escaped quotes in its name.
+     *
+     * @param house The index of the house.
+     * @return The JSON-escaped name.
+     */
+    private static String houseName(int house) {
+        return house == 1 ? "House \\\"Dayne\\\"" : "House " + house;
+    }
+
+    /**
+     * Writes the details array of a generated member: a binary tree of
+     * fathers inside each house, notes with brackets, braces and escapes that
+     * the block cutter has to step over, and a "Father to" list that creates
+     * child stubs for the full records that follow.
+     *
+     * @param house The index of the house.
+     * @param member The index of the member.
+     * @return The member object.
+     */
+    private static String member(int house, int member) {
+        String father = member == 0 ? "[Unknown]" : "P" + house + "x" + (member - 1) / 2 + " Line";
+        StringBuilder json = new StringBuilder();
+        json.append("{\"P").append(house).append('x').append(member).append(" Line\": [");
+        json.append("{\"Born to\": \"").append(father).append("\"}, ");
+        json.append("{\"Notes\": \"Said \\\"[no], {never}\\\" \\\\ ").append(member).append(" é\"}");
+        if (2 * member + 1 < MEMBERS) {
+            json.append(", {\"Father to\": [\"P").append(house).append('x').append(2 * member + 1).append("\"]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Builds the generated register in the nested format.
+     *
+     * @param extra JSON inserted as one more top-level field after the
+     * second house, or null.
+     * @return The content.
+     */
+    private static byte[] nested(String extra) {
+        StringBuilder json = new StringBuilder("{\n");
+        for (int h = 0; h < HOUSES; h++) {
+            json.append("  \"").append(houseName(h)).append("\": [\n");
+            for (int m = 0; m < MEMBERS; m++) {
+                json.append("    ").append(member(h, m)).append(m + 1 < MEMBERS ? ",\n" : "\n");
+            }
+            json.append(h + 1 < HOUSES ? "  ],\n" : "  ]\n");
+            if (h == 1 && extra != null) {
+                json.append("  ").append(extra).append(",\n");
+            }
+        }
+        return json.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the generated register in NDJSON, one member per line.
+     *
+     * @return The content.
+     */
+    private static byte[] ndjson() {
+        StringBuilder json = new StringBuilder();
+        for (int h = 0; h < HOUSES; h++) {
+            for (int m = 0; m < MEMBERS; m++) {
+                String record = member(h, m);
+                json.append("{\"House\": \"").append(houseName(h)).append("\", ").append(record.substring(1)).append('\n');
+            }
+        }
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolves staged records and fingerprints the result in order.
+     *
+     * @param staging The staged records.
+     * @return The fingerprint of every resolved person.
+     */
+    private static long[] fingerprints(edu.unimet.edd.tree.RegisterStaging staging) {
+        Person[] people = staging.resolve(new Person[0]);
+        long[] prints = new long[people.length];
+        for (int i = 0; i < people.length; i++) {
+            prints[i] = RegisterDiff.fingerprint(people[i]);
+        }
+        return prints;
+    }
+
+    /**
+     * Lists the errors of a report as offset and message.
+     *
+     * @param report The report.
+     * @return One line per error.
+     */
+    private static String describe(ParseReport report) {
+        StringBuilder errors = new StringBuilder();
+        for (GenericNode<ParseError> node = report.getErrors().getFirst(); node != null; node = node.getNext()) {
+            errors.append(node.getData().getByteOffset()).append(' ').append(node.getData().getMessage()).append('\n');
+        }
+        return errors.toString();
+    }
+
+    /**
+     * Every block size stages the same register, and the register has every
+     * member with the father written in the file, child stubs dropped.
+     *
+     * @throws IOException If the content cannot be parsed.
+     */
+    @Test
+    public void blockSizeDoesNotChangeTheRegister() throws IOException {
+        byte[] content = nested(null);
+        long[] expected = fingerprints(PIPELINES[PIPELINES.length - 1].stage(content, false, null, null));
+        for (IngestPipeline pipeline : PIPELINES) {
+            assertArrayEquals(expected, fingerprints(pipeline.stage(content, false, null, null)));
+        }
+
+        Person[] people = PIPELINES[0].stage(content, false, null, null).resolve(new Person[0]);
+        assertEquals(HOUSES * MEMBERS, people.length);
+        assertEquals("p2x1 line", people[2 * MEMBERS + 4].getFather());
+        assertEquals("House \"Dayne\"", people[MEMBERS].getHouse());
+        assertTrue(people[0].getNotes().startsWith("Said \"[no], {never}\" \\ 0"));
+    }
+
+    /**
+     * NDJSON holding the same members stages the same register as the nested
+     * format, whatever the block size.
+     *
+     * @throws IOException If the content cannot be parsed.
+     */
+    @Test
+    public void ndjsonMatchesTheNestedFormat() throws IOException {
+        long[] expected = fingerprints(PIPELINES[PIPELINES.length - 1].stage(nested(null), false, null, null));
+        byte[] content = ndjson();
+        for (IngestPipeline pipeline : PIPELINES) {
+            assertArrayEquals(expected, fingerprints(pipeline.stage(content, true, null, null)));
+        }
+    }
+
+    /**
+     * A lenient load reports the same errors at the same offsets and keeps
+     * the same records whatever the block size.
+     *
+     * @throws IOException If the content cannot be parsed.
+     */
+    @Test
+    public void blockSizeDoesNotChangeLenientErrors() throws IOException {
+        String badMember = "\"House Bad\": [{\"Bad Record\": [{\"Born to\": \"X\"}, {\"Fate\": 42}]}]";
+        byte[] content = nested("\"House Number\": 5, " + badMember);
+
+        ParseReport expectedErrors = new ParseReport();
+        long[] expected = fingerprints(PIPELINES[PIPELINES.length - 1].stage(content, false, null, expectedErrors));
+        assertEquals(2, expectedErrors.size());
+        assertEquals(HOUSES * MEMBERS, expected.length);
+        long notAList = expectedErrors.getErrors().getFirst().getData().getByteOffset();
+        assertEquals('5', content[(int) notAList]); // Offsets count bytes, not characters
+
+        for (IngestPipeline pipeline : PIPELINES) {
+            ParseReport errors = new ParseReport();
+            assertArrayEquals(expected, fingerprints(pipeline.stage(content, false, null, errors)));
+            assertEquals(describe(expectedErrors), describe(errors));
+        }
+    }
+
+    /**
+     * Invalid JSON inside one member of a house loses only that member: the
+     * load goes on at the next member and the next houses, whatever the
+     * block size.
+     *
+     * @throws IOException If the content cannot be parsed.
+     */
+    @Test
+    public void invalidJsonLosesOnlyItsMember() throws IOException {
+        byte[] content = nested(DAMAGED_HOUSE);
+
+        ParseReport expectedErrors = new ParseReport();
+        long[] expected = fingerprints(PIPELINES[PIPELINES.length - 1].stage(content, false, null, expectedErrors));
+        assertEquals(1, expectedErrors.size());
+        assertFalse(expectedErrors.isTruncated());
+        assertEquals(HOUSES * MEMBERS + 2, expected.length);
+        Person[] people = PIPELINES[PIPELINES.length - 1].stage(content, false, null, new ParseReport()).resolve(new Person[0]);
+        assertEquals("damaged a", people[2 * MEMBERS].getName());
+        assertEquals("damaged c", people[2 * MEMBERS + 1].getName());
+        assertEquals("House 2", people[2 * MEMBERS + 2].getHouse());
+
+        for (IngestPipeline pipeline : PIPELINES) {
+            ParseReport errors = new ParseReport();
+            assertArrayEquals(expected, fingerprints(pipeline.stage(content, false, null, errors)));
+            assertEquals(describe(expectedErrors), describe(errors));
+            assertFalse(errors.isTruncated());
+        }
+    }
+
+    /**
+     * Stages a file with Fate and Notes left in it, on every pipeline, and
+     * checks that they read back the same as a load that parses them.
+     *
+     * @param content The content of the file.
+     * @param ndjson True if the content holds one person record per line.
+     * @param errors True for a lenient load.
+     * @throws IOException If the file cannot be written or parsed.
+     */
+    private static void assertLazyMatchesEager(byte[] content, boolean ndjson, boolean errors) throws IOException {
+        long[] expected = fingerprints(PIPELINES[0].stage(content, ndjson, null, errors ? new ParseReport() : null));
+        Path file = Files.createTempFile("lazy", ndjson ? ".ndjson" : ".json");
+        try {
+            Files.write(file, content);
+            for (IngestPipeline pipeline : PIPELINES) {
+                pipeline.setLazyDetails(true);
+                try {
+                    Person[] people = pipeline.stage(file, null, errors ? new ParseReport() : null).resolve(new Person[0]);
+                    assertTrue(people[0].hasLazyDetails());
+                    long[] prints = new long[people.length];
+                    for (int i = 0; i < people.length; i++) {
+                        prints[i] = RegisterDiff.fingerprint(people[i]);
+                    }
+                    assertArrayEquals(expected, prints);
+                } finally {
+                    pipeline.setLazyDetails(false);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * The detail ranges recorded by a lazy load point at the right bytes
+     * whatever the block size, in both formats and after a damaged member.
+     *
+     * @throws IOException If the file cannot be written or parsed.
+     */
+    @Test
+    public void lazyDetailsMatchAnEagerLoad() throws IOException {
+        assertLazyMatchesEager(nested(null), false, false);
+        assertLazyMatchesEager(ndjson(), true, false);
+        assertLazyMatchesEager(nested(DAMAGED_HOUSE), false, true);
+    }
+}